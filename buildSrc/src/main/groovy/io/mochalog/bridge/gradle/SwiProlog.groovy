@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.gradle
+
+import org.gradle.api.GradleException
+import org.gradle.internal.os.OperatingSystem
+
+/**
+ * Locations within the SWI-Prolog installation Mochalog
+ * bridge subprojects are tested and benchmarked against
+ */
+class SwiProlog {
+    /**
+     * Get the filepath of the SWI-Prolog shared library directory
+     * @return Absolute filepath
+     * @throws GradleException SWI_HOME_DIR environment variable not set
+     */
+    static String getBinaryDir() throws GradleException {
+        def swiPrologHomeDir = System.getenv('SWI_HOME_DIR')
+        if (!swiPrologHomeDir) {
+            throw new GradleException('SWI_HOME_DIR system environment variable not ' +
+                    'set. Should be set to root of SWI-Prolog platform installation.')
+        }
+
+        def os = OperatingSystem.current()
+        // Currently only supports 64 bit Linux
+        def librarySubDir = os.isWindows() ? "bin" : "lib/x86_64-linux"
+        return swiPrologHomeDir + "/" + librarySubDir
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of clause assertion and update throughput against
+ * equivalent raw JPL queries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssertBenchmark
+{
+    // Name of the module clauses are asserted into
+    private static final String MODULE = "assert_benchmark";
+
+    // Context clauses are asserted into
+    private SandboxedPrologContext prolog;
+    // Number of clauses asserted
+    private int count;
+
+    /**
+     * Construct the context clauses are asserted into
+     */
+    @Setup
+    public void setup()
+    {
+        prolog = new SandboxedPrologContext(MODULE);
+        prolog.assertLast("counter(0)");
+    }
+
+    /**
+     * Remove asserted clauses to avoid unbounded
+     * database growth between iterations
+     */
+    @TearDown(Level.Iteration)
+    public void clear()
+    {
+        prolog.retractAll("record(_, _)");
+        count = 0;
+    }
+
+    /**
+     * Assert a clause to the end of a predicate
+     */
+    @Benchmark
+    public boolean assertLast()
+    {
+        return prolog.assertLast("record(@I, @S)", ++count, "value");
+    }
+
+    /**
+     * Assert a clause to the end of a predicate with a raw JPL query
+     */
+    @Benchmark
+    public boolean jplAssertz()
+    {
+        return new org.jpl7.Query(
+            MODULE + ":assertz(record(" + ++count + ", \"value\"))"
+        ).hasSolution();
+    }
+
+    /**
+     * Update a fact with setter syntax (compiled into
+     * replace_clauses/2, compare with jplRetractAssert)
+     */
+    @Benchmark
+    public boolean setterUpdate()
+    {
+        return prolog.prove("counter(N <- @I)", ++count);
+    }
+
+    /**
+     * Update a fact with a raw JPL retract/assert query
+     */
+    @Benchmark
+    public boolean jplRetractAssert()
+    {
+        return new org.jpl7.Query(
+            MODULE + ":(counter(N), retractall(counter(N)), assertz(counter(" + ++count + ")))"
+        ).hasSolution();
+    }
+}
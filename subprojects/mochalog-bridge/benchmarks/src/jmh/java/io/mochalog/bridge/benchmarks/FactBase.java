@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark state providing a sandboxed Prolog context
+ * populated with a fact base of parameterised size
+ */
+@State(Scope.Benchmark)
+public class FactBase
+{
+    // Number of fact/2 clauses in the fact base
+    @Param({ "10", "1000", "100000" })
+    public int factCount;
+
+    // Context containing the fact base
+    public SandboxedPrologContext prolog;
+    // Name of the module the fact base is defined in
+    public String module;
+
+    /**
+     * Populate the fact base with clauses of the
+     * form fact(Key, key_Key)
+     */
+    @Setup
+    public void setup()
+    {
+        module = "benchmark_" + factCount;
+        prolog = new SandboxedPrologContext(module);
+        prolog.retractAll("fact(_, _)");
+        for (int i = 0; i < factCount; ++i)
+        {
+            prolog.assertLast("fact(@I, @A)", i, "key_" + i);
+        }
+    }
+
+    /**
+     * Qualify a query with the fact base module for
+     * raw JPL baselines
+     * @param text Query text
+     * @return Module-qualified query text
+     */
+    public String qualify(String text)
+    {
+        return module + ":(" + text + ")";
+    }
+}
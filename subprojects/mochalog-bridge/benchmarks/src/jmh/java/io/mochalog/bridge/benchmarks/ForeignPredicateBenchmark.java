@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of calls from Prolog to a Java method registered
+ * as a foreign predicate against the same method called
+ * through jpl_call/4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForeignPredicateBenchmark
+{
+    // Context the foreign predicate is registered in
+    private SandboxedPrologContext prolog;
+    // Argument passed to the Java method
+    private int value;
+
+    /**
+     * Register Math.abs(int) as a foreign predicate
+     * @throws ReflectiveOperationException Method not found
+     */
+    @Setup
+    public void setup() throws ReflectiveOperationException
+    {
+        prolog = new SandboxedPrologContext("foreign_predicate_benchmark");
+        prolog.registerPredicate("java_abs", 2, MethodHandles.lookup().findStatic(
+            Math.class, "abs", MethodType.methodType(int.class, int.class)));
+    }
+
+    /**
+     * Call the method through the registered foreign predicate
+     */
+    @Benchmark
+    public boolean foreignPredicate()
+    {
+        return prolog.prove("java_abs(@I, _)", --value);
+    }
+
+    /**
+     * Call the method through jpl_call/4
+     */
+    @Benchmark
+    public boolean jplCall()
+    {
+        return prolog.prove("jpl_call('java.lang.Math', abs, [@I], _)", --value);
+    }
+}
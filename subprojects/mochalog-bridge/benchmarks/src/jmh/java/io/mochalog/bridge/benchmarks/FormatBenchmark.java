@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import io.mochalog.bridge.prolog.query.Query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of query formatting (no interpreter calls)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark
+{
+    /**
+     * Format a query without substitution arguments
+     * @return Formatted query
+     */
+    @Benchmark
+    public Query formatPlain()
+    {
+        return Query.format("fact(X, Y), X > 10");
+    }
+
+    /**
+     * Format a query with atom, string and integer
+     * substitution arguments
+     * @return Formatted query
+     */
+    @Benchmark
+    public Query formatArguments()
+    {
+        return Query.format("record(@A, @S, @I)", "key", "value", 42);
+    }
+
+    /**
+     * Format a query containing setter syntax
+     * @return Formatted query
+     */
+    @Benchmark
+    public Query formatSetter()
+    {
+        return Query.format("student(Student, 0 <- @I), school(Student, School <- @S)",
+            2, "New School");
+    }
+}
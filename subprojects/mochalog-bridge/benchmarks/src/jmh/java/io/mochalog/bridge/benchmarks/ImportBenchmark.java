@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of source file importing against
+ * equivalent raw JPL file loading
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark
+{
+    // Name of the module files are imported into
+    private static final String MODULE = "import_benchmark";
+
+    // Context files are imported into
+    private SandboxedPrologContext prolog;
+    // Source file copied out of benchmark resources
+    private Path source;
+
+    /**
+     * Construct the context files are imported into and
+     * copy the benchmark source file to the filesystem
+     */
+    @Setup
+    public void setup() throws IOException
+    {
+        prolog = new SandboxedPrologContext(MODULE);
+
+        // Files must be on the filesystem to be imported
+        source = Files.createTempFile("mochalog_benchmark", ".pl");
+        try (InputStream stream =
+                 ImportBenchmark.class.getResourceAsStream("/prolog/benchmark.pl"))
+        {
+            Files.copy(stream, source, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Remove the copied benchmark source file
+     */
+    @TearDown
+    public void teardown() throws IOException
+    {
+        Files.deleteIfExists(source);
+    }
+
+    /**
+     * Import the benchmark source file into the context
+     */
+    @Benchmark
+    public boolean importFile() throws IOException
+    {
+        return prolog.importFile(source);
+    }
+
+    /**
+     * Load the benchmark source file with a raw JPL query
+     */
+    @Benchmark
+    public boolean jplLoadFiles()
+    {
+        String path = source.toAbsolutePath().toString().replace("\\", "/");
+        return new org.jpl7.Query(
+            MODULE + ":load_files('" + path + "', [if(true)])"
+        ).hasSolution();
+    }
+}
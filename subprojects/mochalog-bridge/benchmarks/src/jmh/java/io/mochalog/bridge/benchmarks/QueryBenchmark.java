@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import io.mochalog.bridge.prolog.query.QuerySolution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.jpl7.Term;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of Mochalog query operations against
+ * equivalent raw JPL queries
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark
+{
+    /**
+     * Per-thread rotating fact key, avoiding repeated
+     * queries of the same clause
+     */
+    @State(Scope.Thread)
+    public static class Key
+    {
+        // Last key queried
+        private int key;
+
+        /**
+         * Get the next key within the fact base
+         * @param facts Fact base
+         * @return Fact key
+         */
+        public int next(FactBase facts)
+        {
+            key = key + 1 < facts.factCount ? key + 1 : 0;
+            return key;
+        }
+    }
+
+    /**
+     * Prove a query for a single fact
+     */
+    @Benchmark
+    public boolean prove(FactBase facts, Key key)
+    {
+        return facts.prolog.prove("fact(@I, _)", key.next(facts));
+    }
+
+    /**
+     * Prove a raw JPL query for a single fact
+     */
+    @Benchmark
+    public boolean jplProve(FactBase facts, Key key)
+    {
+        return new org.jpl7.Query(facts.qualify("fact(" + key.next(facts) + ", _)"))
+            .hasSolution();
+    }
+
+    /**
+     * Fetch the solution of a query for a single fact
+     */
+    @Benchmark
+    public QuerySolution askForSolution(FactBase facts, Key key)
+    {
+        return facts.prolog.askForSolution("fact(@I, Name)", key.next(facts));
+    }
+
+    /**
+     * Fetch the solution of a raw JPL query for a single fact
+     */
+    @Benchmark
+    public Map<String, Term> jplOneSolution(FactBase facts, Key key)
+    {
+        return new org.jpl7.Query(facts.qualify("fact(" + key.next(facts) + ", Name)"))
+            .oneSolution();
+    }
+
+    /**
+     * Iterate over all solutions of a query over the fact base
+     */
+    @Benchmark
+    public void askForAllSolutions(FactBase facts, Blackhole blackhole)
+    {
+        for (QuerySolution solution : facts.prolog.askForAllSolutions("fact(Key, Name)"))
+        {
+            blackhole.consume(solution.get("Name"));
+        }
+    }
+
+    /**
+     * Iterate over all solutions of a raw JPL query over the fact base
+     */
+    @Benchmark
+    public void jplAllSolutions(FactBase facts, Blackhole blackhole)
+    {
+        org.jpl7.Query query = new org.jpl7.Query(facts.qualify("fact(Key, Name)"));
+        while (query.hasMoreSolutions())
+        {
+            blackhole.consume(query.nextSolution().get("Name"));
+        }
+    }
+}
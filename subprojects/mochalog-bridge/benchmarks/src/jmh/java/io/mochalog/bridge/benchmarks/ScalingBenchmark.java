@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks;
+
+import io.mochalog.bridge.benchmarks.data.Dataset;
+import io.mochalog.bridge.benchmarks.data.Datasets;
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of dataset load time as the size and
+ * shape of the dataset scales
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScalingBenchmark
+{
+    // Shape of the loaded dataset
+    @Param({ "relational", "sparse-graph", "dense-graph", "hierarchy", "chain" })
+    public String shape;
+    // Number of facts in the loaded dataset
+    @Param({ "1000", "100000", "1000000" })
+    public long factCount;
+
+    // Source file of the generated dataset
+    private Path source;
+    // Context the dataset is loaded into
+    private SandboxedPrologContext prolog;
+    // Number of loads performed (used to give each
+    // load a fresh module)
+    private int loads;
+
+    /**
+     * Generate the dataset source file
+     * @throws IOException Unable to write source file
+     */
+    @Setup(Level.Trial)
+    public void generate() throws IOException
+    {
+        Dataset dataset = Datasets.create(shape, factCount, Datasets.DEFAULT_SEED);
+        source = Files.createTempFile("mochalog_" + shape, ".pl");
+        Datasets.write(dataset, source);
+    }
+
+    /**
+     * Construct an empty context to load the dataset into
+     */
+    @Setup(Level.Iteration)
+    public void createContext()
+    {
+        prolog = new SandboxedPrologContext(
+            "scaling_" + shape.replace('-', '_') + "_" + factCount + "_" + loads++);
+    }
+
+    /**
+     * Remove the dataset source file
+     * @throws IOException Unable to delete source file
+     */
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException
+    {
+        Files.deleteIfExists(source);
+    }
+
+    /**
+     * Import the dataset source file into an empty context
+     * @return True if loading was successful, false otherwise.
+     * @throws IOException Unable to read source file
+     */
+    @Benchmark
+    public boolean load() throws IOException
+    {
+        return prolog.importFile(source);
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+% Knowledge base imported by ImportBenchmark
+
+parent(person_1, person_2).
+parent(person_1, person_3).
+parent(person_2, person_4).
+parent(person_2, person_5).
+parent(person_3, person_6).
+parent(person_3, person_7).
+parent(person_4, person_8).
+parent(person_4, person_9).
+parent(person_5, person_10).
+parent(person_5, person_11).
+parent(person_6, person_12).
+parent(person_6, person_13).
+parent(person_7, person_14).
+parent(person_7, person_15).
+parent(person_8, person_16).
+parent(person_8, person_17).
+parent(person_9, person_18).
+parent(person_9, person_19).
+parent(person_10, person_20).
+parent(person_10, person_21).
+parent(person_11, person_22).
+parent(person_11, person_23).
+parent(person_12, person_24).
+parent(person_12, person_25).
+parent(person_13, person_26).
+parent(person_13, person_27).
+parent(person_14, person_28).
+parent(person_14, person_29).
+parent(person_15, person_30).
+parent(person_15, person_31).
+parent(person_16, person_32).
+parent(person_16, person_33).
+parent(person_17, person_34).
+parent(person_17, person_35).
+parent(person_18, person_36).
+parent(person_18, person_37).
+parent(person_19, person_38).
+parent(person_19, person_39).
+parent(person_20, person_40).
+parent(person_20, person_41).
+parent(person_21, person_42).
+parent(person_21, person_43).
+parent(person_22, person_44).
+parent(person_22, person_45).
+parent(person_23, person_46).
+parent(person_23, person_47).
+parent(person_24, person_48).
+parent(person_24, person_49).
+parent(person_25, person_50).
+parent(person_25, person_51).
+parent(person_26, person_52).
+parent(person_26, person_53).
+parent(person_27, person_54).
+parent(person_27, person_55).
+parent(person_28, person_56).
+parent(person_28, person_57).
+parent(person_29, person_58).
+parent(person_29, person_59).
+parent(person_30, person_60).
+parent(person_30, person_61).
+parent(person_31, person_62).
+parent(person_31, person_63).
+parent(person_32, person_64).
+parent(person_32, person_65).
+parent(person_33, person_66).
+parent(person_33, person_67).
+parent(person_34, person_68).
+parent(person_34, person_69).
+parent(person_35, person_70).
+parent(person_35, person_71).
+parent(person_36, person_72).
+parent(person_36, person_73).
+parent(person_37, person_74).
+parent(person_37, person_75).
+parent(person_38, person_76).
+parent(person_38, person_77).
+parent(person_39, person_78).
+parent(person_39, person_79).
+parent(person_40, person_80).
+parent(person_40, person_81).
+parent(person_41, person_82).
+parent(person_41, person_83).
+parent(person_42, person_84).
+parent(person_42, person_85).
+parent(person_43, person_86).
+parent(person_43, person_87).
+parent(person_44, person_88).
+parent(person_44, person_89).
+parent(person_45, person_90).
+parent(person_45, person_91).
+parent(person_46, person_92).
+parent(person_46, person_93).
+parent(person_47, person_94).
+parent(person_47, person_95).
+parent(person_48, person_96).
+parent(person_48, person_97).
+parent(person_49, person_98).
+parent(person_49, person_99).
+parent(person_50, person_100).
+parent(person_50, person_101).
+parent(person_51, person_102).
+parent(person_51, person_103).
+parent(person_52, person_104).
+parent(person_52, person_105).
+parent(person_53, person_106).
+parent(person_53, person_107).
+parent(person_54, person_108).
+parent(person_54, person_109).
+parent(person_55, person_110).
+parent(person_55, person_111).
+parent(person_56, person_112).
+parent(person_56, person_113).
+parent(person_57, person_114).
+parent(person_57, person_115).
+parent(person_58, person_116).
+parent(person_58, person_117).
+parent(person_59, person_118).
+parent(person_59, person_119).
+parent(person_60, person_120).
+parent(person_60, person_121).
+parent(person_61, person_122).
+parent(person_61, person_123).
+parent(person_62, person_124).
+parent(person_62, person_125).
+parent(person_63, person_126).
+parent(person_63, person_127).
+parent(person_64, person_128).
+parent(person_64, person_129).
+parent(person_65, person_130).
+parent(person_65, person_131).
+parent(person_66, person_132).
+parent(person_66, person_133).
+parent(person_67, person_134).
+parent(person_67, person_135).
+parent(person_68, person_136).
+parent(person_68, person_137).
+parent(person_69, person_138).
+parent(person_69, person_139).
+parent(person_70, person_140).
+parent(person_70, person_141).
+parent(person_71, person_142).
+parent(person_71, person_143).
+parent(person_72, person_144).
+parent(person_72, person_145).
+parent(person_73, person_146).
+parent(person_73, person_147).
+parent(person_74, person_148).
+parent(person_74, person_149).
+parent(person_75, person_150).
+parent(person_75, person_151).
+parent(person_76, person_152).
+parent(person_76, person_153).
+parent(person_77, person_154).
+parent(person_77, person_155).
+parent(person_78, person_156).
+parent(person_78, person_157).
+parent(person_79, person_158).
+parent(person_79, person_159).
+parent(person_80, person_160).
+parent(person_80, person_161).
+parent(person_81, person_162).
+parent(person_81, person_163).
+parent(person_82, person_164).
+parent(person_82, person_165).
+parent(person_83, person_166).
+parent(person_83, person_167).
+parent(person_84, person_168).
+parent(person_84, person_169).
+parent(person_85, person_170).
+parent(person_85, person_171).
+parent(person_86, person_172).
+parent(person_86, person_173).
+parent(person_87, person_174).
+parent(person_87, person_175).
+parent(person_88, person_176).
+parent(person_88, person_177).
+parent(person_89, person_178).
+parent(person_89, person_179).
+parent(person_90, person_180).
+parent(person_90, person_181).
+parent(person_91, person_182).
+parent(person_91, person_183).
+parent(person_92, person_184).
+parent(person_92, person_185).
+parent(person_93, person_186).
+parent(person_93, person_187).
+parent(person_94, person_188).
+parent(person_94, person_189).
+parent(person_95, person_190).
+parent(person_95, person_191).
+parent(person_96, person_192).
+parent(person_96, person_193).
+parent(person_97, person_194).
+parent(person_97, person_195).
+parent(person_98, person_196).
+parent(person_98, person_197).
+parent(person_99, person_198).
+parent(person_99, person_199).
+parent(person_100, person_200).
+parent(person_100, person_201).
+
+ancestor(X, Y) :- parent(X, Y).
+ancestor(X, Z) :- parent(X, Y), ancestor(Y, Z).
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import java.io.IOException;
+
+/**
+ * Synthetic Prolog fact base of controlled size and shape.
+ * <p>
+ * Clauses are streamed to a writer as they are generated, so
+ * datasets of any size can be produced in constant memory.
+ * Generation is deterministic for a given seed.
+ */
+public interface Dataset
+{
+    /**
+     * Get the name identifying the dataset shape
+     * @return Dataset name
+     */
+    String getName();
+
+    /**
+     * Get the number of facts generated
+     * @return Fact count
+     */
+    long getFactCount();
+
+    /**
+     * Generate the clauses of the dataset
+     * @param writer Destination of generated clauses
+     * @throws IOException Unable to write clauses
+     */
+    void generate(FactWriter writer) throws IOException;
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import io.mochalog.bridge.prolog.PrologContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writing and loading of synthetic datasets, and command line
+ * generation of dataset source files
+ * <pre>
+ * Datasets SHAPE FACTS OUTPUT [SEED]
+ *     SHAPE  relational | sparse-graph | dense-graph | hierarchy | chain
+ *     FACTS  Number of facts (e.g. 1000 to 100000000)
+ * </pre>
+ */
+public final class Datasets
+{
+    // Default seed of generated values
+    public static final long DEFAULT_SEED = 42;
+
+    /**
+     * Private constructor. Static utility.
+     */
+    private Datasets()
+    {
+
+    }
+
+    /**
+     * Construct a dataset of the given shape
+     * @param shape Dataset shape
+     * @param factCount Number of facts
+     * @param seed Seed of generated values
+     * @return Dataset
+     * @throws IllegalArgumentException Unknown shape
+     */
+    public static Dataset create(String shape, long factCount, long seed)
+    {
+        switch (shape)
+        {
+            case "relational":
+                return new RelationalDataset(factCount, seed);
+            case "sparse-graph":
+                return GraphDataset.sparse(factCount, seed);
+            case "dense-graph":
+                return GraphDataset.dense(factCount, seed);
+            case "hierarchy":
+                return new HierarchyDataset(factCount, 4);
+            case "chain":
+                return new HierarchyDataset(factCount, 1);
+            default:
+                throw new IllegalArgumentException("Unknown dataset shape " + shape + ".");
+        }
+    }
+
+    /**
+     * Write a dataset as a Prolog source file
+     * @param dataset Dataset to write
+     * @param path Path of source file
+     * @throws IOException Unable to write source file
+     */
+    public static void write(Dataset dataset, Path path) throws IOException
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            writer.write("% Generated " + dataset.getName() + " dataset of " +
+                dataset.getFactCount() + " facts");
+            writer.newLine();
+
+            dataset.generate(clause -> {
+                writer.write(clause);
+                writer.write('.');
+                writer.newLine();
+            });
+        }
+    }
+
+    /**
+     * Load a dataset into a Prolog context. Clauses are written
+     * to a temporary source file and imported, which is
+     * considerably faster than asserting each clause.
+     * @param dataset Dataset to load
+     * @param prolog Context to load dataset into
+     * @return True if loading was successful, false otherwise.
+     * @throws IOException Unable to write temporary source file
+     */
+    public static boolean load(Dataset dataset, PrologContext prolog) throws IOException
+    {
+        Path source = Files.createTempFile("mochalog_" + dataset.getName(), ".pl");
+        try
+        {
+            write(dataset, source);
+            return prolog.importFile(source);
+        }
+        finally
+        {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    /**
+     * Generate a dataset source file
+     * @param args Command line arguments
+     * @throws IOException Unable to write source file
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 3)
+        {
+            System.err.println("Usage: Datasets SHAPE FACTS OUTPUT [SEED]");
+            System.exit(1);
+        }
+
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        Dataset dataset = create(args[0], Long.parseLong(args[1]), seed);
+        write(dataset, Paths.get(args[2]));
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import java.io.IOException;
+
+/**
+ * Destination of clauses produced by a dataset
+ */
+@FunctionalInterface
+public interface FactWriter
+{
+    /**
+     * Write a single clause
+     * @param clause Clause text (without terminating full stop)
+     * @throws IOException Unable to write clause
+     */
+    void write(String clause) throws IOException;
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Directed graph of the form edge(From, To) with
+ * uniformly random endpoints
+ */
+public class GraphDataset implements Dataset
+{
+    // Number of graph nodes
+    private final long nodes;
+    // Number of outgoing edges per node
+    private final long degree;
+    // Seed of generated edges
+    private final long seed;
+
+    /**
+     * Constructor.
+     * @param nodes Number of graph nodes
+     * @param degree Number of outgoing edges per node
+     * @param seed Seed of generated edges
+     */
+    public GraphDataset(long nodes, long degree, long seed)
+    {
+        if (nodes <= 0 || degree <= 0)
+        {
+            throw new IllegalArgumentException("Node count and degree must be positive.");
+        }
+
+        this.nodes = nodes;
+        this.degree = degree;
+        this.seed = seed;
+    }
+
+    /**
+     * Construct a sparse graph (two outgoing edges per node)
+     * @param edgeCount Total number of edges
+     * @param seed Seed of generated edges
+     * @return Graph dataset
+     */
+    public static GraphDataset sparse(long edgeCount, long seed)
+    {
+        return new GraphDataset(Math.max(1, edgeCount / 2), 2, seed);
+    }
+
+    /**
+     * Construct a dense graph (each node connected to a
+     * quarter of all nodes)
+     * @param edgeCount Total number of edges (rounded down to
+     * a multiple of the node count)
+     * @param seed Seed of generated edges
+     * @return Graph dataset
+     */
+    public static GraphDataset dense(long edgeCount, long seed)
+    {
+        // n * n / 4 edges given n nodes
+        long nodes = Math.max(1, (long) Math.sqrt(4.0 * edgeCount));
+        return new GraphDataset(nodes, Math.max(1, edgeCount / nodes), seed);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "graph";
+    }
+
+    @Override
+    public long getFactCount()
+    {
+        return nodes * degree;
+    }
+
+    @Override
+    public void generate(FactWriter writer) throws IOException
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long from = 0; from < nodes; ++from)
+        {
+            for (long i = 0; i < degree; ++i)
+            {
+                writer.write("edge(" + from + ", " + random.nextLong(nodes) + ")");
+            }
+        }
+    }
+}
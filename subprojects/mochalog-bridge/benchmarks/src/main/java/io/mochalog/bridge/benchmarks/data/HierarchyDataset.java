@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import java.io.IOException;
+
+/**
+ * Tree hierarchy of the form parent(Child, Parent), rooted at
+ * node 0, alongside the ancestor/2 closure rules. A branching
+ * factor of 1 produces a chain of maximal depth.
+ */
+public class HierarchyDataset implements Dataset
+{
+    // Number of parent/2 facts (nodes excluding the root)
+    private final long factCount;
+    // Number of children per node
+    private final long branching;
+
+    /**
+     * Constructor.
+     * @param factCount Number of parent/2 facts
+     * @param branching Number of children per node
+     */
+    public HierarchyDataset(long factCount, long branching)
+    {
+        if (branching <= 0)
+        {
+            throw new IllegalArgumentException("Branching factor must be positive.");
+        }
+
+        this.factCount = factCount;
+        this.branching = branching;
+    }
+
+    @Override
+    public String getName()
+    {
+        return branching == 1 ? "chain" : "hierarchy";
+    }
+
+    @Override
+    public long getFactCount()
+    {
+        return factCount;
+    }
+
+    /**
+     * Get the depth of the deepest node in the hierarchy
+     * @return Hierarchy depth
+     */
+    public long getDepth()
+    {
+        if (branching == 1)
+        {
+            return factCount;
+        }
+
+        long depth = 0;
+        long levelEnd = 0;
+        // Walk down the levels until the last node index is reached
+        for (long levelSize = 1; levelEnd < factCount; levelSize *= branching)
+        {
+            levelEnd += levelSize * branching;
+            ++depth;
+        }
+
+        return depth;
+    }
+
+    @Override
+    public void generate(FactWriter writer) throws IOException
+    {
+        for (long child = 1; child <= factCount; ++child)
+        {
+            writer.write("parent(" + child + ", " + (child - 1) / branching + ")");
+        }
+
+        writer.write("ancestor(X, Y) :- parent(X, Y)");
+        writer.write("ancestor(X, Z) :- parent(X, Y), ancestor(Y, Z)");
+    }
+}
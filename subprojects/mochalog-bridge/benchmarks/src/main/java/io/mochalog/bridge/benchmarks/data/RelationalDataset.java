@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.data;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Relational tables of the form department(Id, Name) and
+ * employee(Id, Name, DepartmentId, Salary), with one
+ * department for every 100 employees
+ */
+public class RelationalDataset implements Dataset
+{
+    // Number of employees per department
+    private static final int DEPARTMENT_SIZE = 100;
+
+    // Number of employee rows
+    private final long employees;
+    // Number of department rows
+    private final long departments;
+    // Seed of generated values
+    private final long seed;
+
+    /**
+     * Constructor.
+     * @param factCount Total number of facts
+     * @param seed Seed of generated values
+     */
+    public RelationalDataset(long factCount, long seed)
+    {
+        this.departments = Math.max(1, factCount / (DEPARTMENT_SIZE + 1));
+        this.employees = Math.max(0, factCount - departments);
+        this.seed = seed;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "relational";
+    }
+
+    @Override
+    public long getFactCount()
+    {
+        return employees + departments;
+    }
+
+    @Override
+    public void generate(FactWriter writer) throws IOException
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long id = 0; id < departments; ++id)
+        {
+            writer.write("department(" + id + ", dept_" + id + ")");
+        }
+
+        for (long id = 0; id < employees; ++id)
+        {
+            long department = random.nextLong(departments);
+            int salary = 20000 + random.nextInt(180000);
+            writer.write("employee(" + id + ", \"employee " + id + "\", " +
+                department + ", " + salary + ")");
+        }
+    }
+}
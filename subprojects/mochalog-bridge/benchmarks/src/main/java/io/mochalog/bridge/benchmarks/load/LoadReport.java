@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency and throughput measured over a load test,
+ * rendered as a machine-readable JSON report
+ */
+public class LoadReport
+{
+    /**
+     * Measurements of a single operation
+     */
+    private static class OperationResult
+    {
+        // Latencies of successful operations in nanoseconds
+        private final Histogram latency = new Histogram(3);
+        // Number of failed operations
+        private long errors;
+    }
+
+    // Options the load test was run with
+    private final LoadTestOptions options;
+    // Measured wall-clock duration in nanoseconds
+    private final long elapsedNanos;
+    // Measurements of each operation, in workload order
+    private final Map<String, OperationResult> results = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     * @param options Options the load test was run with
+     * @param elapsedNanos Measured wall-clock duration
+     */
+    public LoadReport(LoadTestOptions options, long elapsedNanos)
+    {
+        this.options = options;
+        this.elapsedNanos = elapsedNanos;
+        for (Operation operation : options.getOperations())
+        {
+            results.put(operation.getName(), new OperationResult());
+        }
+    }
+
+    /**
+     * Merge the measurements of a worker into the report
+     * @param name Operation name
+     * @param latency Latencies of successful operations
+     * @param errors Number of failed operations
+     */
+    public void add(String name, Histogram latency, long errors)
+    {
+        OperationResult result = results.get(name);
+        result.latency.add(latency);
+        result.errors += errors;
+    }
+
+    /**
+     * Render the report as JSON. Latencies are
+     * reported in microseconds.
+     * @return JSON report
+     */
+    public String toJson()
+    {
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+
+        StringBuilder operations = new StringBuilder();
+        for (Map.Entry<String, OperationResult> entry : results.entrySet())
+        {
+            OperationResult result = entry.getValue();
+            total.add(result.latency);
+            totalErrors += result.errors;
+
+            operations.append(operations.length() == 0 ? "" : ",\n")
+                .append("    \"").append(entry.getKey()).append("\": ")
+                .append(toJson(result.latency, result.errors, "    "));
+        }
+
+        return String.format(Locale.ROOT,
+            "{\n" +
+            "  \"threads\": %d,\n" +
+            "  \"durationSeconds\": %.3f,\n" +
+            "  \"factCount\": %d,\n" +
+            "  \"total\": %s,\n" +
+            "  \"operations\": {\n%s\n  }\n" +
+            "}\n",
+            options.getThreads(), elapsedNanos / 1e9, options.getFactCount(),
+            toJson(total, totalErrors, "  "), operations);
+    }
+
+    /**
+     * Render the measurements of an operation as JSON
+     * @param latency Latencies of successful operations
+     * @param errors Number of failed operations
+     * @param indent Indentation of the enclosing object
+     * @return JSON object
+     */
+    private String toJson(Histogram latency, long errors, String indent)
+    {
+        long count = latency.getTotalCount();
+        return String.format(Locale.ROOT,
+            "{ \"count\": %d, \"errors\": %d, \"throughput\": %.1f,\n" +
+            "%s  \"latencyMicros\": { \"mean\": %.1f, \"p50\": %.1f, \"p90\": %.1f, " +
+            "\"p99\": %.1f, \"p999\": %.1f, \"max\": %.1f } }",
+            count, errors, count / (elapsedNanos / 1e9), indent,
+            latency.getMean() / 1e3,
+            latency.getValueAtPercentile(50) / 1e3,
+            latency.getValueAtPercentile(90) / 1e3,
+            latency.getValueAtPercentile(99) / 1e3,
+            latency.getValueAtPercentile(99.9) / 1e3,
+            latency.getMaxValue() / 1e3);
+    }
+}
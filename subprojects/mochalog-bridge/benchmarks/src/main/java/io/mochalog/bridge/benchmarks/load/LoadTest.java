@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.load;
+
+import io.mochalog.bridge.prolog.PrologContext;
+import io.mochalog.bridge.prolog.SandboxedPrologContext;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test harness driving a weighted mix of operations against
+ * a single shared Prolog context from many threads for a fixed
+ * duration, reporting throughput and latency percentiles.
+ * <p>
+ * Workers operate in a closed loop (each issues its next operation
+ * once the previous completes), so latencies reflect service time
+ * under the configured concurrency. See {@link LoadTestOptions}
+ * for command line options.
+ */
+public class LoadTest
+{
+    /**
+     * Worker thread issuing operations and recording
+     * their latencies locally
+     */
+    private static class Worker implements Runnable
+    {
+        // Context shared by all workers
+        private final PrologContext prolog;
+        // Options the load test is run with
+        private final LoadTestOptions options;
+        // Operations of the workload
+        private final Operation[] operations;
+        // Cumulative operation weights
+        private final int[] cumulativeWeights;
+        // Latencies recorded for each operation
+        private final Histogram[] latencies;
+        // Failed operations for each operation
+        private final long[] errors;
+        // Time at which recording starts
+        private final long measureStart;
+        // Time at which the worker stops
+        private final long end;
+        // Latch to count down on completion
+        private final CountDownLatch done;
+
+        /**
+         * Constructor.
+         * @param prolog Shared context
+         * @param options Load test options
+         * @param measureStart Time at which recording starts
+         * @param end Time at which the worker stops
+         * @param done Latch to count down on completion
+         */
+        private Worker(PrologContext prolog, LoadTestOptions options,
+            long measureStart, long end, CountDownLatch done)
+        {
+            this.prolog = prolog;
+            this.options = options;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.done = done;
+
+            List<Operation> workload = options.getOperations();
+            operations = workload.toArray(new Operation[0]);
+            cumulativeWeights = new int[operations.length];
+            latencies = new Histogram[operations.length];
+            errors = new long[operations.length];
+
+            int totalWeight = 0;
+            for (int i = 0; i < operations.length; ++i)
+            {
+                totalWeight += operations[i].getWeight();
+                cumulativeWeights[i] = totalWeight;
+                latencies[i] = new Histogram(3);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+
+            try
+            {
+                long now = System.nanoTime();
+                while (now < end)
+                {
+                    int index = select(random.nextInt(totalWeight));
+                    int key = random.nextInt(options.getFactCount());
+
+                    long start = now;
+                    boolean failed = false;
+                    try
+                    {
+                        operations[index].run(prolog, key);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        failed = true;
+                        operations[index].reportFailure(e);
+                    }
+                    now = System.nanoTime();
+
+                    // Discard measurements taken during warmup
+                    if (start >= measureStart)
+                    {
+                        if (failed)
+                        {
+                            ++errors[index];
+                        }
+                        else
+                        {
+                            latencies[index].recordValue(now - start);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Select the operation corresponding to a random weight
+         * @param weight Random weight in range [0, total weight)
+         * @return Operation index
+         */
+        private int select(int weight)
+        {
+            int index = 0;
+            while (weight >= cumulativeWeights[index])
+            {
+                ++index;
+            }
+
+            return index;
+        }
+    }
+
+    /**
+     * Private constructor. Static entry point.
+     */
+    private LoadTest()
+    {
+
+    }
+
+    /**
+     * Run the load test
+     * @param args Command line options
+     * @throws IOException Unable to write report
+     * @throws InterruptedException Interrupted awaiting workers
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        System.err.printf("Loading %d facts...%n", options.getFactCount());
+        PrologContext prolog = new SandboxedPrologContext("load_test");
+        prolog.prove("dynamic load_record/1");
+        for (int i = 0; i < options.getFactCount(); ++i)
+        {
+            prolog.assertLast("fact(@I, @A)", i, "key_" + i);
+        }
+
+        System.err.printf("Running %d threads for %ds (%ds warmup)...%n",
+            options.getThreads(), options.getDurationSeconds(), options.getWarmupSeconds());
+
+        long measureStart = System.nanoTime() +
+            TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+
+        CountDownLatch done = new CountDownLatch(options.getThreads());
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < options.getThreads(); ++i)
+        {
+            Worker worker = new Worker(prolog, options, measureStart, end, done);
+            workers.add(worker);
+
+            Thread thread = new Thread(worker, "mochalog-load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        done.await();
+        long elapsed = Math.max(0, System.nanoTime() - measureStart);
+
+        LoadReport report = new LoadReport(options, elapsed);
+        for (Worker worker : workers)
+        {
+            for (int i = 0; i < worker.operations.length; ++i)
+            {
+                report.add(worker.operations[i].getName(), worker.latencies[i], worker.errors[i]);
+            }
+        }
+
+        String json = report.toJson();
+        if (options.getOutput() == null)
+        {
+            System.out.print(json);
+        }
+        else
+        {
+            Files.write(options.getOutput(), json.getBytes(StandardCharsets.UTF_8));
+            System.err.printf("Report written to %s%n", options.getOutput());
+        }
+    }
+}
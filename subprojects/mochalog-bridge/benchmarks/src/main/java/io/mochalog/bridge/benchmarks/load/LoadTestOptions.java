@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of the load test harness
+ * <pre>
+ * --threads N          Number of worker threads (default 64)
+ * --duration S         Measured duration in seconds (default 30)
+ * --warmup S           Unmeasured warmup duration in seconds (default 5)
+ * --facts N            Size of the fact/2 fact base (default 10000)
+ * --mix name=W,...     Weights of built-in operations
+ *                      (default prove=5,solution=3,all=1,assert=1)
+ * --query name=W:Q     Additional weighted query template (repeatable,
+ *                      quote templates containing whitespace)
+ * --queries FILE       File of additional query templates, one
+ *                      name=W:Q per line (# begins a comment line)
+ * --output FILE        Path of JSON report (default standard output)
+ * </pre>
+ */
+public class LoadTestOptions
+{
+    // Number of worker threads
+    private int threads = 64;
+    // Measured duration in seconds
+    private int durationSeconds = 30;
+    // Unmeasured warmup duration in seconds
+    private int warmupSeconds = 5;
+    // Size of the fact base
+    private int factCount = 10000;
+    // Weighted operations making up the workload
+    private final List<Operation> operations = new ArrayList<>();
+    // Path of JSON report (null for standard output)
+    private Path output;
+
+    /**
+     * Parse options from command line arguments
+     * @param args Command line arguments
+     * @return Parsed options
+     * @throws IllegalArgumentException Invalid or unknown option
+     * @throws IOException Unable to read query template file
+     */
+    public static LoadTestOptions parse(String[] args) throws IOException
+    {
+        LoadTestOptions options = new LoadTestOptions();
+        String mix = "prove=5,solution=3,all=1,assert=1";
+        List<Operation> queries = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i += 2)
+        {
+            if (i + 1 >= args.length)
+            {
+                throw new IllegalArgumentException("Missing value for option " + args[i] + ".");
+            }
+
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "--threads":
+                    options.threads = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "--facts":
+                    options.factCount = Integer.parseInt(value);
+                    break;
+                case "--mix":
+                    mix = value;
+                    break;
+                case "--query":
+                    queries.add(parseQuery(value));
+                    break;
+                case "--queries":
+                    for (String line : Files.readAllLines(Paths.get(value), StandardCharsets.UTF_8))
+                    {
+                        String entry = line.trim();
+                        if (!entry.isEmpty() && !entry.startsWith("#"))
+                        {
+                            queries.add(parseQuery(entry));
+                        }
+                    }
+                    break;
+                case "--output":
+                    options.output = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+            }
+        }
+
+        for (String entry : mix.split(","))
+        {
+            if (!entry.isEmpty())
+            {
+                String[] weighted = splitWeighted(entry, '=');
+                options.operations.add(
+                    Operation.builtIn(weighted[0], Integer.parseInt(weighted[1])));
+            }
+        }
+        options.operations.addAll(queries);
+
+        if (options.operations.isEmpty())
+        {
+            throw new IllegalArgumentException("Workload contains no operations.");
+        }
+
+        return options;
+    }
+
+    /**
+     * Parse a query template option of the form name=weight:template
+     * @param value Option value
+     * @return Query template operation
+     */
+    private static Operation parseQuery(String value)
+    {
+        String[] named = splitWeighted(value, '=');
+        String[] weighted = splitWeighted(named[1], ':');
+        return Operation.fromTemplate(named[0], Integer.parseInt(weighted[0]), weighted[1]);
+    }
+
+    /**
+     * Split a string about the first occurrence of a separator
+     * @param value String to split
+     * @param separator Separator character
+     * @return Parts preceding and following the separator
+     * @throws IllegalArgumentException Separator not present
+     */
+    private static String[] splitWeighted(String value, char separator)
+    {
+        int index = value.indexOf(separator);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Expected '" + separator + "' in " + value + ".");
+        }
+
+        return new String[] { value.substring(0, index), value.substring(index + 1) };
+    }
+
+    /**
+     * Getter.
+     * @return Number of worker threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Getter.
+     * @return Measured duration in seconds
+     */
+    public int getDurationSeconds()
+    {
+        return durationSeconds;
+    }
+
+    /**
+     * Getter.
+     * @return Unmeasured warmup duration in seconds
+     */
+    public int getWarmupSeconds()
+    {
+        return warmupSeconds;
+    }
+
+    /**
+     * Getter.
+     * @return Size of the fact base
+     */
+    public int getFactCount()
+    {
+        return factCount;
+    }
+
+    /**
+     * Getter.
+     * @return Weighted operations making up the workload
+     */
+    public List<Operation> getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * Getter.
+     * @return Path of JSON report (null for standard output)
+     */
+    public Path getOutput()
+    {
+        return output;
+    }
+}
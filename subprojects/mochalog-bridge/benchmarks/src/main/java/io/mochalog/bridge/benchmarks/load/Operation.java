@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.benchmarks.load;
+
+import io.mochalog.bridge.prolog.PrologContext;
+import io.mochalog.bridge.prolog.query.QuerySolution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Weighted unit of work performed against a Prolog
+ * context by load test workers
+ */
+public class Operation
+{
+    // Pattern matching substitution rules of query templates
+    private static final Pattern RULE_PATTERN = Pattern.compile("@(\\w+)");
+
+    /**
+     * Work performed by an operation
+     */
+    @FunctionalInterface
+    public interface Task
+    {
+        /**
+         * Perform the operation
+         * @param prolog Context to operate on
+         * @param key Random fact key within the loaded fact base
+         */
+        void run(PrologContext prolog, int key);
+    }
+
+    // Name identifying the operation in reports
+    private final String name;
+    // Relative frequency of the operation in the workload
+    private final int weight;
+    // Work performed by the operation
+    private final Task task;
+    // Flag indicating whether a failure has been logged
+    private final AtomicBoolean failureReported;
+
+    /**
+     * Constructor.
+     * @param name Operation name
+     * @param weight Relative frequency in workload
+     * @param task Work performed
+     */
+    public Operation(String name, int weight, Task task)
+    {
+        if (weight <= 0)
+        {
+            throw new IllegalArgumentException("Operation weight must be positive.");
+        }
+
+        this.name = name;
+        this.weight = weight;
+        this.task = task;
+        failureReported = new AtomicBoolean();
+    }
+
+    /**
+     * Construct one of the built-in operations over the
+     * fact/2 fact base
+     * <ul>
+     *     <li>prove - prove a single fact</li>
+     *     <li>solution - fetch the solution for a single fact</li>
+     *     <li>all - iterate over the solutions for a range of 100 facts</li>
+     *     <li>assert - assert and retract a clause</li>
+     * </ul>
+     * @param name Built-in operation name
+     * @param weight Relative frequency in workload
+     * @return Operation
+     * @throws IllegalArgumentException No such built-in operation
+     */
+    public static Operation builtIn(String name, int weight)
+    {
+        switch (name)
+        {
+            case "prove":
+                return new Operation(name, weight,
+                    (prolog, key) -> prolog.prove("fact(@I, _)", key));
+            case "solution":
+                return new Operation(name, weight,
+                    (prolog, key) -> prolog.askForSolution("fact(@I, Name)", key));
+            case "all":
+                return new Operation(name, weight, (prolog, key) -> {
+                    for (QuerySolution solution : prolog.askForAllSolutions(
+                        "between(@I, @I, Key), fact(Key, Name)", key, key + 99))
+                    {
+                        solution.get("Name");
+                    }
+                });
+            case "assert":
+                return new Operation(name, weight, (prolog, key) -> {
+                    prolog.assertLast("load_record(@I)", key);
+                    prolog.retract("load_record(@I)", key);
+                });
+            default:
+                throw new IllegalArgumentException("No built-in operation named " + name + ".");
+        }
+    }
+
+    /**
+     * Construct an operation iterating over all solutions to a
+     * query template. Each rule of the template is substituted
+     * with an argument derived from a random fact key: @I with
+     * the key itself, and @A and @S with the name of the keyed
+     * fact (key_N).
+     * @param name Operation name
+     * @param weight Relative frequency in workload
+     * @param template Query template
+     * @return Operation
+     * @throws IllegalArgumentException Template contains a rule
+     * other than @I, @A or @S
+     */
+    public static Operation fromTemplate(String name, int weight, String template)
+    {
+        List<String> rules = new ArrayList<>();
+        Matcher matcher = RULE_PATTERN.matcher(template);
+        while (matcher.find())
+        {
+            String rule = matcher.group(1);
+            if (!rule.equals("I") && !rule.equals("A") && !rule.equals("S"))
+            {
+                throw new IllegalArgumentException("Unsupported rule @" + rule +
+                    " in template of operation " + name + ".");
+            }
+            rules.add(rule);
+        }
+
+        return new Operation(name, weight, (prolog, key) -> {
+            Object[] args = new Object[rules.size()];
+            for (int i = 0; i < args.length; ++i)
+            {
+                args[i] = rules.get(i).equals("I") ? key : "key_" + key;
+            }
+            // Retrieve every solution
+            prolog.askForAllSolutions(template, args).size();
+        });
+    }
+
+    /**
+     * Report a failure of the operation, logging only the
+     * first failure observed by any worker
+     * @param e Failure of the operation
+     */
+    public void reportFailure(RuntimeException e)
+    {
+        if (failureReported.compareAndSet(false, true))
+        {
+            System.err.printf("Operation %s failed (further failures are counted only):%n", name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Getter.
+     * @return Operation name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Getter.
+     * @return Relative frequency in workload
+     */
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Perform the operation
+     * @param prolog Context to operate on
+     * @param key Random fact key within the loaded fact base
+     */
+    public void run(PrologContext prolog, int key)
+    {
+        task.run(prolog, key);
+    }
+}
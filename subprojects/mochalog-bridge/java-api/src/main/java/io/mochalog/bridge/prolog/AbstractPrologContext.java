@@ -16,22 +16,73 @@
 
 package io.mochalog.bridge.prolog;
 
+import io.mochalog.bridge.prolog.foreign.ForeignPredicate;
+import io.mochalog.bridge.prolog.foreign.ForeignPredicateRegistry;
+import io.mochalog.bridge.prolog.handle.InvalidHandleException;
+import io.mochalog.bridge.prolog.handle.ObjectHandle;
+import io.mochalog.bridge.prolog.handle.ObjectHandleTable;
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.Metrics;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
+import io.mochalog.bridge.prolog.profile.ProfileReport;
+import io.mochalog.bridge.prolog.runtime.MemoryStatistics;
+import io.mochalog.bridge.prolog.runtime.PrologRuntime;
+import io.mochalog.bridge.prolog.runtime.ResourceLimits;
+import io.mochalog.bridge.prolog.runtime.UnsupportedFeatureException;
+import io.mochalog.bridge.prolog.transfer.PrologListView;
+import io.mochalog.bridge.prolog.transfer.PrologStringView;
+import io.mochalog.bridge.prolog.transfer.TermDecoder;
+import io.mochalog.bridge.prolog.transfer.TermSink;
+import io.mochalog.bridge.prolog.query.NumericSolutions;
 import io.mochalog.bridge.prolog.query.Query;
 import io.mochalog.bridge.prolog.query.QuerySolution;
 import io.mochalog.bridge.prolog.query.QuerySolutionList;
+import io.mochalog.bridge.prolog.query.aggregate.AggregateGroup;
+import io.mochalog.bridge.prolog.query.aggregate.Aggregation;
 import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.cursor.CursorRegistry;
+import io.mochalog.bridge.prolog.query.cursor.NoSuchCursorException;
+import io.mochalog.bridge.prolog.query.cursor.QueryCursor;
+import io.mochalog.bridge.prolog.query.mapping.SolutionMapper;
 
 import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
 import io.mochalog.util.format.Formatter;
 
 import org.jpl7.Term;
 
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
 /**
  * Abstract implementation of an interface to the SWI-Prolog
  * interpreter.
  */
 public abstract class AbstractPrologContext implements PrologContext
 {
+    // Pattern corresponding to a Prolog variable name
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("[A-Z_]\\w*");
+    // Prefix of variables bound by goals wrapping user queries,
+    // reserved to avoid colliding with variables of the wrapped
+    // query (not _-prefixed, as JPL omits such bindings)
+    private static final String RESERVED_PREFIX = "Mochalog__";
+
+    // Object handles the context holds references to
+    private final Set<ObjectHandle> handles = ConcurrentHashMap.newKeySet();
+    // Metrics to report query lifecycle to (process-wide
+    // metrics used if unset)
+    private volatile QueryMetrics metrics;
+    // Resource limits queries are proved under
+    private volatile ResourceLimits resourceLimits = ResourceLimits.NONE;
+    // Named cursors open in the context
+    private final CursorRegistry cursors = new CursorRegistry();
+
     @Override
     public Term get(String name)
     {
@@ -41,31 +92,31 @@ public abstract class AbstractPrologContext implements PrologContext
     @Override
     public boolean assertFirst(String term, Object... args)
     {
-        return applyMetaPredicate("asserta", term, args);
+        return applyMetaPredicate(QueryPhase.ASSERT, "asserta", term, args);
     }
 
     @Override
     public boolean assertLast(String term, Object... args)
     {
-        return applyMetaPredicate("assertz", term, args);
+        return applyMetaPredicate(QueryPhase.ASSERT, "assertz", term, args);
     }
 
     @Override
     public boolean retract(String term, Object... args)
     {
-        return applyMetaPredicate("retract", term, args);
+        return applyMetaPredicate(QueryPhase.RETRACT, "retract", term, args);
     }
 
     @Override
     public boolean retractAll(String term, Object... args)
     {
-        return applyMetaPredicate("retractall", term, args);
+        return applyMetaPredicate(QueryPhase.RETRACT, "retractall", term, args);
     }
 
     @Override
     public boolean prove(String text, Object... args)
     {
-        return prove(Query.format(text, args));
+        return prove(Query.format(getMetrics(), text, args));
     }
 
     @Override
@@ -82,7 +133,7 @@ public abstract class AbstractPrologContext implements PrologContext
     public QuerySolution askForSolution(String text, Object... args)
             throws NoSuchSolutionException
     {
-        return askForSolution(Query.format(text, args));
+        return askForSolution(Query.format(getMetrics(), text, args));
     }
 
     @Override
@@ -119,16 +170,468 @@ public abstract class AbstractPrologContext implements PrologContext
         }
     }
 
+    @Override
+    public <T> List<T> askAs(Class<T> type, String text, Object... args)
+    {
+        return askAs(Query.format(getMetrics(), text, args), type);
+    }
+
+    @Override
+    public <T> List<T> askAs(Query query, Class<T> type)
+    {
+        // Resolve mapper before opening the query
+        SolutionMapper<T> mapper = SolutionMapper.of(type);
+
+        QuerySolutionCollector collector = ask(query);
+        try
+        {
+            QuerySolution[] solutions = collector.fetchAllSolutions();
+            List<T> results = new ArrayList<>(solutions.length);
+            for (QuerySolution solution : solutions)
+            {
+                results.add(mapper.map(solution));
+            }
+
+            return results;
+        }
+        finally
+        {
+            // Ensure temporary collector closed
+            // regardless of result
+            collector.detach();
+        }
+    }
+
+    @Override
+    public List<AggregateGroup> aggregate(Aggregation aggregation, String text, Object... args)
+    {
+        return aggregate(Query.format(getMetrics(), text, args), aggregation);
+    }
+
+    @Override
+    public List<AggregateGroup> aggregate(Query query, Aggregation aggregation)
+    {
+        // As with profiling, the goal is wrapped without reformatting
+        // and qualified so it is not resolved in the mochalog module
+        Query aggregatedQuery = new Query(
+            aggregation.toGoal(Query.runnableInModule(query, getWorkingModule()),
+                RESERVED_PREFIX + "Groups"),
+            query.getTemplate(), query.getArguments(), query.getParameters()
+        );
+
+        Term[] terms = askForSolution(aggregatedQuery).get(RESERVED_PREFIX + "Groups").toTermArray();
+        List<AggregateGroup> groups = new ArrayList<>(terms.length);
+        for (Term term : terms)
+        {
+            groups.add(AggregateGroup.fromTerm(aggregation, term));
+        }
+
+        return groups;
+    }
+
     @Override
     public QuerySolutionList askForAllSolutions(String text, Object... args)
     {
-        return askForAllSolutions(Query.format(text, args));
+        return askForAllSolutions(Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public QuerySolutionList askForAllSolutions(Query query, boolean snapshot)
+    {
+        return snapshot ?
+            new QuerySolutionList(askSnapshot(query)) :
+            askForAllSolutions(query);
     }
 
     @Override
     public QuerySolutionCollector ask(String text, Object... args)
     {
-        return ask(Query.format(text, args));
+        return ask(Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public QuerySolutionCollector askSnapshot(String text, Object... args)
+    {
+        return askSnapshot(Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public QuerySolutionCollector askInterleaved(String text, Object... args)
+    {
+        return askInterleaved(Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public QueryCursor openCursor(String name, String text, Object... args)
+    {
+        return openCursor(name, Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public QueryCursor openCursor(String name, Query query)
+    {
+        return cursors.open(name, () -> askInterleaved(query));
+    }
+
+    @Override
+    public QueryCursor getCursor(String name) throws NoSuchCursorException
+    {
+        return cursors.get(name);
+    }
+
+    @Override
+    public boolean closeCursor(String name)
+    {
+        return cursors.close(name);
+    }
+
+    @Override
+    public int[] askForInts(String variable, String text, Object... args)
+    {
+        return askForInts(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public int[] askForInts(Query query, String variable)
+    {
+        return NumericSolutions.decodeInts(askForNumericSolutions(query, variable, "integer"));
+    }
+
+    @Override
+    public long[] askForLongs(String variable, String text, Object... args)
+    {
+        return askForLongs(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public long[] askForLongs(Query query, String variable)
+    {
+        return NumericSolutions.decodeLongs(askForNumericSolutions(query, variable, "integer"));
+    }
+
+    @Override
+    public double[] askForDoubles(String variable, String text, Object... args)
+    {
+        return askForDoubles(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public double[] askForDoubles(Query query, String variable)
+    {
+        return NumericSolutions.decodeDoubles(askForNumericSolutions(query, variable, "float"));
+    }
+
+    @Override
+    public Term askForTerm(String variable, String text, Object... args)
+    {
+        return askForTerm(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public Term askForTerm(Query query, String variable)
+    {
+        return TermDecoder.decode(askForEncodedTerm(query, variable));
+    }
+
+    @Override
+    public <S extends TermSink> S askForTerm(Query query, String variable, S sink)
+    {
+        return TermDecoder.decode(askForEncodedTerm(query, variable), sink);
+    }
+
+    @Override
+    public PrologListView askForListView(String variable, String text, Object... args)
+    {
+        return askForListView(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public PrologListView askForListView(Query query, String variable)
+    {
+        return new PrologListView(askForEncodedTerm(query, variable));
+    }
+
+    @Override
+    public PrologStringView askForStringView(String variable, String text, Object... args)
+    {
+        return askForStringView(Query.format(getMetrics(), text, args), variable);
+    }
+
+    @Override
+    public PrologStringView askForStringView(Query query, String variable)
+    {
+        return new PrologStringView(askForEncodedTerm(query, variable));
+    }
+
+    /**
+     * Ask for the value of a variable in the first solution
+     * to a query in the Mochalog binary term encoding
+     * @param query Query to fetch solution of
+     * @param variable Name of variable to project
+     * @return Buffer holding encoded value
+     */
+    private ByteBuffer askForEncodedTerm(Query query, String variable)
+    {
+        Term encoded = askForProjection("mochalog:encode_solution(%s, (%s), %s)",
+            query, variable);
+        return TermDecoder.toBuffer(encoded.name());
+    }
+
+    @Override
+    public ProfileReport profile(String text, Object... args)
+    {
+        return profile(Query.format(getMetrics(), text, args));
+    }
+
+    @Override
+    public ProfileReport profile(Query query)
+    {
+        // Wrap the query without reformatting so setter constructs
+        // are not expanded a second time, qualifying the goal to
+        // ensure it is not resolved in the mochalog module
+        Query profiledQuery = new Query(
+            String.format("mochalog:profile_goal((%s), %2$sSucceeded, %2$sInferences, " +
+                "%2$sSummary, %2$sEntries)",
+                Query.runnableInModule(query, getWorkingModule()), RESERVED_PREFIX),
+            query.getTemplate(), query.getArguments(), query.getParameters()
+        );
+
+        QuerySolution solution = askForSolution(profiledQuery);
+        return ProfileReport.fromTerms(solution.get(RESERVED_PREFIX + "Succeeded"),
+            solution.get(RESERVED_PREFIX + "Inferences"), solution.get(RESERVED_PREFIX + "Summary"),
+            solution.get(RESERVED_PREFIX + "Entries"));
+    }
+
+    /**
+     * Gather the value of a variable in every solution to a
+     * query as encoded by mochalog:numeric_solutions/4
+     * @param query Query to fetch solutions of
+     * @param variable Name of variable to project
+     * @param type Prolog type of values (integer or float)
+     * @return Encoded solution values
+     */
+    private String askForNumericSolutions(Query query, String variable, String type)
+    {
+        String format = "mochalog:numeric_solutions(" + type + ", %s, (%s), %s)";
+        return askForProjection(format, query, variable).name();
+    }
+
+    /**
+     * Ask for the projection of a variable from a query by
+     * a mochalog pack predicate
+     * @param format Format of the projecting goal, given the
+     * variable name, the query goal and the variable to bind
+     * the projection to
+     * @param query Query to project variable from
+     * @param variable Name of variable to project
+     * @return Projection
+     * @throws IllegalArgumentException Invalid variable name
+     */
+    private Term askForProjection(String format, Query query, String variable)
+    {
+        if (!VARIABLE_PATTERN.matcher(variable).matches())
+        {
+            throw new IllegalArgumentException("Invalid Prolog variable name " + variable);
+        }
+
+        // As with profiling, the goal is wrapped without reformatting
+        // and qualified so it is not resolved in the mochalog module
+        Query projectedQuery = new Query(
+            String.format(format, variable, Query.runnableInModule(query, getWorkingModule()),
+                RESERVED_PREFIX + "Projection"),
+            query.getTemplate(), query.getArguments(), query.getParameters()
+        );
+
+        return askForSolution(projectedQuery).get(RESERVED_PREFIX + "Projection");
+    }
+
+    @Override
+    public MemoryStatistics getMemoryStatistics()
+    {
+        Term statistics = askForSolution("mochalog:memory_statistics(Statistics)")
+            .get("Statistics");
+        return MemoryStatistics.fromTerm(statistics);
+    }
+
+    @Override
+    public boolean registerPredicate(String name, int arity, MethodHandle handle)
+    {
+        return defineForeignPredicate(
+            ForeignPredicateRegistry.register(getWorkingModule(), name, arity, handle, false)
+        );
+    }
+
+    @Override
+    public boolean registerNondeterministicPredicate(String name, int arity, MethodHandle handle)
+    {
+        return defineForeignPredicate(
+            ForeignPredicateRegistry.register(getWorkingModule(), name, arity, handle, true)
+        );
+    }
+
+    /**
+     * Define a clause in the current context dispatching calls
+     * of the given foreign predicate to its backing Java method.
+     * Replaces any existing definition of the predicate.
+     * @param predicate Registered foreign predicate
+     * @return True if predicate was defined, false otherwise.
+     */
+    protected boolean defineForeignPredicate(ForeignPredicate predicate)
+    {
+        int arity = predicate.getArity();
+        boolean isTest = predicate.getMode() == ForeignPredicate.Mode.TEST;
+        int inputCount = isTest ? arity : arity - 1;
+
+        // Construct head of the form name(A1, ..., An)
+        // and list of input arguments [A1, ..., Ak]
+        StringBuilder head = new StringBuilder(predicate.getName());
+        StringBuilder inputs = new StringBuilder("[");
+        for (int i = 1; i <= arity; ++i)
+        {
+            head.append(i == 1 ? "(" : ", ").append('A').append(i);
+            if (i <= inputCount)
+            {
+                inputs.append(i == 1 ? "" : ", ").append('A').append(i);
+            }
+        }
+        head.append(arity > 0 ? ")" : "");
+        inputs.append(']');
+
+        String body = isTest ?
+            String.format("mochalog:call_foreign_predicate(%d, %s)",
+                predicate.getId(), inputs) :
+            String.format("mochalog:call_foreign_function(%d, %s, A%d)",
+                predicate.getId(), inputs, arity);
+
+        retractAll(head.toString());
+        return assertLast("(" + head + " :- " + body + ")");
+    }
+
+    @Override
+    public ObjectHandle createHandle(Object object)
+    {
+        ObjectHandle handle = ObjectHandleTable.getShared().create(object);
+        handles.add(handle);
+        return handle;
+    }
+
+    @Override
+    public Object resolveHandle(Term term) throws InvalidHandleException
+    {
+        return ObjectHandleTable.getShared().resolve(term);
+    }
+
+    @Override
+    public boolean releaseHandle(ObjectHandle handle)
+    {
+        if (handles.remove(handle))
+        {
+            handle.release();
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void releaseHandles()
+    {
+        for (ObjectHandle handle : handles)
+        {
+            releaseHandle(handle);
+        }
+    }
+
+    /**
+     * Get the module queries are being scoped from
+     * in current Prolog context
+     * @return Working module (null if queries are unscoped)
+     */
+    public Module getWorkingModule()
+    {
+        return null;
+    }
+
+    /**
+     * Get the metrics the query lifecycle of the
+     * context is reported to
+     * @return Query metrics
+     */
+    public QueryMetrics getMetrics()
+    {
+        QueryMetrics contextMetrics = metrics;
+        return contextMetrics != null ? contextMetrics : Metrics.get();
+    }
+
+    /**
+     * Set the metrics the query lifecycle of the context
+     * is reported to
+     * @param metrics Query metrics (null to use process-wide metrics)
+     */
+    public void setMetrics(QueryMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the registry of named cursors open in the context,
+     * through which cursor limits are configured
+     * @return Cursor registry
+     */
+    public CursorRegistry getCursorRegistry()
+    {
+        return cursors;
+    }
+
+    /**
+     * Get the resource limits queries of the
+     * context are proved under
+     * @return Resource limits
+     */
+    public ResourceLimits getResourceLimits()
+    {
+        return resourceLimits;
+    }
+
+    /**
+     * Set the resource limits queries of the context are
+     * proved under. Queries exceeding a limit raise a
+     * ResourceExhaustedException.
+     * @param resourceLimits Resource limits (null if unlimited)
+     * @throws UnsupportedFeatureException Running SWI-Prolog version
+     * is unable to enforce a set limit
+     */
+    public void setResourceLimits(ResourceLimits resourceLimits)
+        throws UnsupportedFeatureException
+    {
+        ResourceLimits limits = resourceLimits == null ? ResourceLimits.NONE : resourceLimits;
+        PrologRuntime.requireResourceLimitSupport(limits);
+        this.resourceLimits = limits;
+    }
+
+    /**
+     * Perform a SWI-Prolog meta-predicate on a given
+     * predicate, timing it as the given query phase.
+     * @param phase Phase to report to query metrics
+     * @param outer Meta-predicate to perform
+     * @param inner Predicate to perform meta-predicate on
+     * @param args Substitution arguments to apply to inner predicate
+     * @return True if meta-predicate succeeded, false otherwise.
+     */
+    protected boolean applyMetaPredicate(QueryPhase phase, String outer,
+        String inner, Object... args)
+    {
+        PhaseTimer timer = getMetrics().startPhase(phase, inner, getWorkingModule());
+        boolean result = false;
+        try
+        {
+            result = applyMetaPredicate(outer, inner, args);
+            return result;
+        }
+        finally
+        {
+            timer.stop(result ? 1 : 0);
+        }
     }
 
     /**
@@ -143,7 +646,7 @@ public abstract class AbstractPrologContext implements PrologContext
     {
         // Apply substitution arguments to inner predicate
         // before formatting meta-predicate
-        Formatter formatter = new Query.Formatter();
+        Formatter formatter = Query.Formatter.getShared();
         String formattedInner = formatter.format(inner, args);
         // Perform meta-predicate query on inner predicate
         return prove("@A(@A)", outer, formattedInner);
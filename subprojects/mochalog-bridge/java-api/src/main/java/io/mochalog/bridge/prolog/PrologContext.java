@@ -16,16 +16,33 @@
 
 package io.mochalog.bridge.prolog;
 
+import io.mochalog.bridge.prolog.handle.InvalidHandleException;
+import io.mochalog.bridge.prolog.handle.ObjectHandle;
+import io.mochalog.bridge.prolog.profile.ProfileReport;
+import io.mochalog.bridge.prolog.runtime.MemoryStatistics;
+import io.mochalog.bridge.prolog.runtime.UnsupportedFeatureException;
 import io.mochalog.bridge.prolog.query.Query;
 import io.mochalog.bridge.prolog.query.QuerySolution;
 import io.mochalog.bridge.prolog.query.QuerySolutionList;
+import io.mochalog.bridge.prolog.query.aggregate.AggregateGroup;
+import io.mochalog.bridge.prolog.query.aggregate.Aggregation;
 import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.cursor.CursorException;
+import io.mochalog.bridge.prolog.query.cursor.NoSuchCursorException;
+import io.mochalog.bridge.prolog.query.cursor.QueryCursor;
+import io.mochalog.bridge.prolog.query.mapping.MappingException;
+import io.mochalog.bridge.prolog.transfer.PrologListView;
+import io.mochalog.bridge.prolog.transfer.PrologStringView;
+import io.mochalog.bridge.prolog.transfer.TermSink;
 
+import io.mochalog.bridge.prolog.query.exception.EngineUnavailableException;
 import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
 import org.jpl7.Term;
 
+import java.lang.invoke.MethodHandle;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.List;
 import java.io.IOException;
 
 /**
@@ -153,6 +170,233 @@ public interface PrologContext
      */
     QuerySolutionList askForAllSolutions(Query query);
 
+    /**
+     * Ask for list view of all solutions to given query,
+     * optionally proved against a database snapshot.
+     * @param query Query to fetch solutions to
+     * @param snapshot True if solutions should be isolated from
+     * concurrent database modifications, false otherwise.
+     * @return Solution list
+     * @throws UnsupportedFeatureException Snapshots unsupported
+     * by the running SWI-Prolog version (see PrologRuntime)
+     */
+    QuerySolutionList askForAllSolutions(Query query, boolean snapshot)
+        throws UnsupportedFeatureException;
+
+    /**
+     * Ask for the integer value of a variable in every solution
+     * to unformatted query. Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solutions of
+     * @param args Substitution arguments to apply to text
+     * @return Variable values in solution order
+     */
+    int[] askForInts(String variable, String text, Object... args);
+
+    /**
+     * Ask for the integer value of a variable in every solution
+     * to given query. Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param query Query to fetch solutions of
+     * @param variable Name of variable to project
+     * @return Variable values in solution order
+     */
+    int[] askForInts(Query query, String variable);
+
+    /**
+     * Ask for the integer value of a variable in every solution
+     * to unformatted query. Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solutions of
+     * @param args Substitution arguments to apply to text
+     * @return Variable values in solution order
+     */
+    long[] askForLongs(String variable, String text, Object... args);
+
+    /**
+     * Ask for the integer value of a variable in every solution
+     * to given query. Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param query Query to fetch solutions of
+     * @param variable Name of variable to project
+     * @return Variable values in solution order
+     */
+    long[] askForLongs(Query query, String variable);
+
+    /**
+     * Ask for the numeric value of a variable in every solution
+     * to unformatted query (integers
+     * are converted to floats). Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solutions of
+     * @param args Substitution arguments to apply to text
+     * @return Variable values in solution order
+     */
+    double[] askForDoubles(String variable, String text, Object... args);
+
+    /**
+     * Ask for the numeric value of a variable in every solution
+     * to given query (integers
+     * are converted to floats). Solutions are gathered in a single
+     * query and decoded without constructing a solution per value.
+     * @param query Query to fetch solutions of
+     * @param variable Name of variable to project
+     * @return Variable values in solution order
+     */
+    double[] askForDoubles(Query query, String variable);
+
+    /**
+     * Ask for the value of a variable in the first solution to
+     * unformatted query, transferred in the Mochalog binary term
+     * encoding rather than node by node.
+     * <p>
+     * Useful when the value is a large term (e.g. a long list)
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solution of
+     * @param args Substitution arguments to apply to text
+     * @return Variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    Term askForTerm(String variable, String text, Object... args)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for the value of a variable in the first solution to
+     * given query, transferred in the Mochalog binary term
+     * encoding rather than node by node.
+     * <p>
+     * Useful when the value is a large term (e.g. a long list)
+     * @param query Query to fetch solution of
+     * @param variable Name of variable to project
+     * @return Variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    Term askForTerm(Query query, String variable)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for the value of a variable in the first solution to
+     * given query, transferred in the Mochalog binary term encoding
+     * and decoded into the given sink without constructing terms.
+     * @param query Query to fetch solution of
+     * @param variable Name of variable to project
+     * @param sink Sink to receive value structure
+     * @param <S> Sink type
+     * @return Sink
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    <S extends TermSink> S askForTerm(Query query, String variable, S sink)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for a view of the value of a variable in the first
+     * solution to unformatted query, which must be list.
+     * Elements are decoded on access, so large lists are
+     * not converted into nested compounds up front.
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solution of
+     * @param args Substitution arguments to apply to text
+     * @return View of variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    PrologListView askForListView(String variable, String text, Object... args)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for a view of the value of a variable in the first
+     * solution to given query, which must be list.
+     * Elements are decoded on access, so large lists are
+     * not converted into nested compounds up front.
+     * @param query Query to fetch solution of
+     * @param variable Name of variable to project
+     * @return View of variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    PrologListView askForListView(Query query, String variable)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for a view of the value of a variable in the first
+     * solution to unformatted query, which must be text (a string, atom or list of character
+     * codes).
+     * Characters are read from the transferred encoding
+     * rather than copied into a Java string up front.
+     * @param variable Name of variable to project
+     * @param text Query text to fetch solution of
+     * @param args Substitution arguments to apply to text
+     * @return View of variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    PrologStringView askForStringView(String variable, String text, Object... args)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for a view of the value of a variable in the first
+     * solution to given query, which must be text (a string, atom or list of character
+     * codes).
+     * Characters are read from the transferred encoding
+     * rather than copied into a Java string up front.
+     * @param query Query to fetch solution of
+     * @param variable Name of variable to project
+     * @return View of variable value
+     * @throws NoSuchSolutionException Query has no solutions
+     */
+    PrologStringView askForStringView(Query query, String variable)
+        throws NoSuchSolutionException;
+
+    /**
+     * Ask for every solution to unformatted query, mapped onto
+     * instances of a record (or class) whose components correspond
+     * to query variables (see SolutionMapper).
+     * @param type Type to map solutions onto
+     * @param text Query text to fetch solutions of
+     * @param args Substitution arguments to apply to text
+     * @param <T> Type to map solutions onto
+     * @return Mapped solutions in solution order
+     * @throws MappingException Solutions cannot be mapped onto type
+     */
+    <T> List<T> askAs(Class<T> type, String text, Object... args)
+        throws MappingException;
+
+    /**
+     * Ask for every solution to given query, mapped onto
+     * instances of a record (or class) whose components correspond
+     * to query variables (see SolutionMapper).
+     * @param query Query to fetch solutions of
+     * @param type Type to map solutions onto
+     * @param <T> Type to map solutions onto
+     * @return Mapped solutions in solution order
+     * @throws MappingException Solutions cannot be mapped onto type
+     */
+    <T> List<T> askAs(Query query, Class<T> type)
+        throws MappingException;
+
+    /**
+     * Aggregate the solutions to unformatted query in Prolog,
+     * transferring only the aggregated values
+     * @param aggregation Aggregation to compute
+     * @param text Query text to aggregate solutions of
+     * @param args Substitution arguments to apply to text
+     * @return Groups in standard order of their keys (a single
+     * group given solutions are not grouped, or none given an
+     * aggregate has no value)
+     */
+    List<AggregateGroup> aggregate(Aggregation aggregation, String text, Object... args);
+
+    /**
+     * Aggregate the solutions to given query in Prolog,
+     * transferring only the aggregated values
+     * @param query Query to aggregate solutions of
+     * @param aggregation Aggregation to compute
+     * @return Groups in standard order of their keys (a single
+     * group given solutions are not grouped, or none given an
+     * aggregate has no value)
+     */
+    List<AggregateGroup> aggregate(Query query, Aggregation aggregation);
+
     /**
      * Open a new query session (unformatted query) in SWI-Prolog
      * interpreter, from which query solutions can be streamed and
@@ -170,4 +414,193 @@ public interface PrologContext
      * @return Query solution collector for constructed query session
      */
     QuerySolutionCollector ask(Query query);
+
+    /**
+     * Open a named cursor over the solutions to unformatted
+     * query, from which solutions may be fetched a page at a
+     * time until the cursor is closed or reclaimed after idling
+     * @param name Cursor name
+     * @param text Query text
+     * @param args Substitution arguments to apply to text
+     * @return Open cursor
+     * @throws CursorException Cursor could not be opened
+     */
+    QueryCursor openCursor(String name, String text, Object... args)
+        throws CursorException;
+
+    /**
+     * Open a named cursor over the solutions to given query,
+     * from which solutions may be fetched a page at a time
+     * until the cursor is closed or reclaimed after idling
+     * @param name Cursor name
+     * @param query Query to open
+     * @return Open cursor
+     * @throws CursorException Cursor could not be opened
+     */
+    QueryCursor openCursor(String name, Query query)
+        throws CursorException;
+
+    /**
+     * Get a cursor opened in the current context by name
+     * @param name Cursor name
+     * @return Open cursor
+     * @throws NoSuchCursorException No cursor with the given
+     * name is open
+     */
+    QueryCursor getCursor(String name) throws NoSuchCursorException;
+
+    /**
+     * Close a cursor opened in the current context by name
+     * @param name Cursor name
+     * @return True if the cursor was open, false otherwise.
+     */
+    boolean closeCursor(String name);
+
+    /**
+     * Open a new query session (unformatted query) on a Prolog
+     * engine of its own, such that its solutions may be streamed
+     * interleaved with, or nested in any order within, those of
+     * other open sessions. The session holds an engine until
+     * detached.
+     * @param text Query text
+     * @param args Substitution arguments to apply to text
+     * @return Query solution collector for constructed query session
+     * @throws EngineUnavailableException No engine of the JPL engine
+     * pool became available
+     */
+    QuerySolutionCollector askInterleaved(String text, Object... args)
+        throws EngineUnavailableException;
+
+    /**
+     * Open a new query session on a Prolog engine of its own,
+     * such that its solutions may be streamed interleaved with,
+     * or nested in any order within, those of other open sessions.
+     * The session holds an engine until detached.
+     * @param query Query to open
+     * @return Query solution collector for constructed query session
+     * @throws EngineUnavailableException No engine of the JPL engine
+     * pool became available
+     */
+    QuerySolutionCollector askInterleaved(Query query)
+        throws EngineUnavailableException;
+
+    /**
+     * Open a new query session (unformatted query) proved against
+     * a consistent snapshot of the database. Clauses asserted or
+     * retracted after opening are not visible to the session.
+     * @param text Query text
+     * @param args Substitution arguments to apply to text
+     * @return Query solution collector for constructed query session
+     * @throws UnsupportedFeatureException Snapshots unsupported
+     * by the running SWI-Prolog version (see PrologRuntime)
+     */
+    QuerySolutionCollector askSnapshot(String text, Object... args)
+        throws UnsupportedFeatureException;
+
+    /**
+     * Open a new query session proved against a consistent
+     * snapshot of the database. Clauses asserted or retracted
+     * after opening are not visible to the session.
+     * @param query Query to open
+     * @return Query solution collector for constructed query session
+     * @throws UnsupportedFeatureException Snapshots unsupported
+     * by the running SWI-Prolog version (see PrologRuntime)
+     */
+    QuerySolutionCollector askSnapshot(Query query)
+        throws UnsupportedFeatureException;
+
+    /**
+     * Prove unformatted query once under the SWI-Prolog profiler,
+     * reporting the work performed by each predicate called.
+     * @param text Query text
+     * @param args Substitution arguments to apply to text
+     * @return Profile report
+     */
+    ProfileReport profile(String text, Object... args);
+
+    /**
+     * Prove query once under the SWI-Prolog profiler,
+     * reporting the work performed by each predicate called.
+     * @param query Query to profile
+     * @return Profile report
+     */
+    ProfileReport profile(Query query);
+
+    /**
+     * Get the memory usage of the Prolog engine servicing
+     * the current context
+     * @return Memory statistics
+     */
+    MemoryStatistics getMemoryStatistics();
+
+    /**
+     * Expose a Java method to the current context as a
+     * deterministic Prolog predicate.
+     * <p>
+     * Given the method takes as many parameters as the
+     * predicate arity, it must return boolean (predicate succeeds
+     * given true is returned) or void (predicate always succeeds).
+     * Given the method takes one fewer parameter, its result is
+     * unified with the final predicate argument (predicate fails given
+     * null is returned). Parameters may be of type Term, String, int,
+     * long, double, boolean or their boxed equivalents.
+     * @param name Predicate name
+     * @param arity Predicate arity
+     * @param handle Handle to Java method backing the predicate
+     * @return True if predicate was defined, false otherwise.
+     * @throws IllegalArgumentException Method type incompatible with
+     * given arity
+     */
+    boolean registerPredicate(String name, int arity, MethodHandle handle);
+
+    /**
+     * Expose a Java method to the current context as a
+     * nondeterministic Prolog predicate.
+     * <p>
+     * The method must take one fewer parameter than the predicate
+     * arity and return an iterable, iterator, stream or array, each
+     * element of which is unified with the final predicate argument
+     * on backtracking. The result is enumerated in full on each call
+     * before the first element is unified (streams and closeable
+     * iterators are closed once enumerated), so it must be finite.
+     * Registering the same name and arity again replaces the method.
+     * @param name Predicate name
+     * @param arity Predicate arity
+     * @param handle Handle to Java method backing the predicate
+     * @return True if predicate was defined, false otherwise.
+     * @throws IllegalArgumentException Method type incompatible with
+     * given arity
+     */
+    boolean registerNondeterministicPredicate(String name, int arity, MethodHandle handle);
+
+    /**
+     * Create a handle allowing the given object to be passed
+     * through Prolog by reference (see the @H query formatting rule).
+     * The context holds a reference to the handle until released.
+     * @param object Object to reference
+     * @return Object handle
+     */
+    ObjectHandle createHandle(Object object);
+
+    /**
+     * Resolve the Java object referenced by a handle term
+     * returned from Prolog
+     * @param term Handle term
+     * @return Referenced object
+     * @throws InvalidHandleException Term is not a live handle
+     */
+    Object resolveHandle(Term term) throws InvalidHandleException;
+
+    /**
+     * Release the reference the context holds to the given handle
+     * @param handle Handle created by the current context
+     * @return True if the context held a reference, false otherwise.
+     */
+    boolean releaseHandle(ObjectHandle handle);
+
+    /**
+     * Release the references the context holds to all
+     * handles it created
+     */
+    void releaseHandles();
 }
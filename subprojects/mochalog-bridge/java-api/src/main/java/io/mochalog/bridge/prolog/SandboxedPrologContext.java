@@ -18,12 +18,15 @@ package io.mochalog.bridge.prolog;
 
 import io.mochalog.bridge.prolog.api.PackLoader;
 import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
 
 import io.mochalog.bridge.prolog.query.Query;
 import io.mochalog.bridge.prolog.query.QuerySolutionList;
 
 import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
 import io.mochalog.bridge.prolog.query.collectors.SequentialQuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.collectors.ThreadedQuerySolutionCollector;
 import io.mochalog.util.io.PathUtils;
 
 import java.io.IOError;
@@ -78,20 +81,40 @@ public class SandboxedPrologContext extends AbstractPrologContext
     public boolean importFile(String path) throws IOException
     {
         String resolvablePath = PathUtils.getResolvableFilePath(path);
-        return prove("import_file(@S, @A)", resolvablePath, workingModule.getName());
+        return importResolvedFile(resolvablePath);
     }
 
     @Override
     public boolean importFile(Path path) throws IOException
     {
         String resolvablePath = PathUtils.getResolvableFilePath(path);
-        return prove("import_file(@S, @A)", resolvablePath, workingModule.getName());
+        return importResolvedFile(resolvablePath);
+    }
+
+    /**
+     * Import a validated source file into the working module
+     * @param resolvablePath Validated path string
+     * @return True if file loading was successful, false otherwise.
+     */
+    private boolean importResolvedFile(String resolvablePath)
+    {
+        PhaseTimer timer = getMetrics().startPhase(QueryPhase.IMPORT, resolvablePath, workingModule);
+        boolean result = false;
+        try
+        {
+            result = prove("import_file(@S, @A)", resolvablePath, workingModule.getName());
+            return result;
+        }
+        finally
+        {
+            timer.stop(result ? 1 : 0);
+        }
     }
 
     @Override
     public QuerySolutionList askForAllSolutions(Query query)
     {
-        return new QuerySolutionList(query, workingModule);
+        return new QuerySolutionList(ask(query));
     }
 
     @Override
@@ -100,14 +123,35 @@ public class SandboxedPrologContext extends AbstractPrologContext
         SequentialQuerySolutionCollector.Builder builder =
             new SequentialQuerySolutionCollector.Builder(query);
         builder.setWorkingModule(workingModule);
+        builder.setMetrics(getMetrics());
+        builder.setResourceLimits(getResourceLimits());
         return builder.build();
     }
 
-    /**
-     * Get module queries are being scoped from
-     * in current Prolog context
-     * @return Working module
-     */
+    @Override
+    public QuerySolutionCollector askSnapshot(Query query)
+    {
+        SequentialQuerySolutionCollector.Builder builder =
+            new SequentialQuerySolutionCollector.Builder(query);
+        builder.setWorkingModule(workingModule);
+        builder.setMetrics(getMetrics());
+        builder.setResourceLimits(getResourceLimits());
+        builder.setSnapshot(true);
+        return builder.build();
+    }
+
+    @Override
+    public QuerySolutionCollector askInterleaved(Query query)
+    {
+        ThreadedQuerySolutionCollector.Builder builder =
+            new ThreadedQuerySolutionCollector.Builder(query);
+        builder.setWorkingModule(workingModule);
+        builder.setMetrics(getMetrics());
+        builder.setResourceLimits(getResourceLimits());
+        return builder.build();
+    }
+
+    @Override
     public Module getWorkingModule()
     {
         return workingModule;
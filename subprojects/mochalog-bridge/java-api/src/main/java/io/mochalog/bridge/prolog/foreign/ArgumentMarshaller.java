@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.foreign;
+
+import io.mochalog.bridge.prolog.query.TermMarshaller;
+
+import org.jpl7.Term;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Conversions between Prolog terms and Java values used when
+ * dispatching foreign predicate calls. Argument conversions are
+ * exposed as method handles so that they may be bound into a
+ * predicate's invocation chain once, at registration.
+ */
+final class ArgumentMarshaller
+{
+    // Argument conversion handles keyed by target parameter type
+    private static final Map<Class<?>, MethodHandle> ARGUMENT_CONVERTERS;
+
+    static
+    {
+        ARGUMENT_CONVERTERS = new HashMap<>();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            MethodHandle toInt = lookup.findStatic(ArgumentMarshaller.class,
+                "toInt", MethodType.methodType(int.class, Term.class));
+            MethodHandle toLong = lookup.findStatic(ArgumentMarshaller.class,
+                "toLong", MethodType.methodType(long.class, Term.class));
+            MethodHandle toDouble = lookup.findStatic(ArgumentMarshaller.class,
+                "toDouble", MethodType.methodType(double.class, Term.class));
+            MethodHandle toBoolean = lookup.findStatic(ArgumentMarshaller.class,
+                "toBoolean", MethodType.methodType(boolean.class, Term.class));
+            MethodHandle toText = lookup.findStatic(ArgumentMarshaller.class,
+                "toText", MethodType.methodType(String.class, Term.class));
+
+            ARGUMENT_CONVERTERS.put(int.class, toInt);
+            ARGUMENT_CONVERTERS.put(long.class, toLong);
+            ARGUMENT_CONVERTERS.put(double.class, toDouble);
+            ARGUMENT_CONVERTERS.put(boolean.class, toBoolean);
+            ARGUMENT_CONVERTERS.put(String.class, toText);
+            // Boxed types are converted through their primitive
+            // counterparts
+            ARGUMENT_CONVERTERS.put(Integer.class, toInt.asType(
+                MethodType.methodType(Integer.class, Term.class)));
+            ARGUMENT_CONVERTERS.put(Long.class, toLong.asType(
+                MethodType.methodType(Long.class, Term.class)));
+            ARGUMENT_CONVERTERS.put(Double.class, toDouble.asType(
+                MethodType.methodType(Double.class, Term.class)));
+            ARGUMENT_CONVERTERS.put(Boolean.class, toBoolean.asType(
+                MethodType.methodType(Boolean.class, Term.class)));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Private constructor. Static utility class.
+     */
+    private ArgumentMarshaller()
+    {
+
+    }
+
+    /**
+     * Get a method handle converting a Prolog term into
+     * a Java value of the given parameter type
+     * @param type Parameter type
+     * @return Conversion handle of type (Term)type, or null
+     * if terms should be passed through unconverted
+     * @throws IllegalArgumentException Parameter type is
+     * not supported
+     */
+    static MethodHandle getArgumentConverter(Class<?> type)
+        throws IllegalArgumentException
+    {
+        // Terms are passed through as is
+        if (type.isAssignableFrom(Term.class))
+        {
+            return null;
+        }
+
+        MethodHandle converter = ARGUMENT_CONVERTERS.get(type);
+        if (converter == null)
+        {
+            throw new IllegalArgumentException("Foreign predicate parameter type " +
+                type.getName() + " is not supported.");
+        }
+
+        return converter;
+    }
+
+    /**
+     * Convert a Java value returned by a foreign predicate
+     * into a Prolog term
+     * @param value Java value
+     * @return Prolog term
+     * @throws ForeignPredicateException Value could not be
+     * converted into a term
+     */
+    static Term toTerm(Object value) throws ForeignPredicateException
+    {
+        try
+        {
+            return TermMarshaller.toTerm(value);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ForeignPredicateException("Unable to convert foreign predicate " +
+                "result " + (value == null ? "null" : "of type " + value.getClass().getName()) +
+                " into a Prolog term.");
+        }
+    }
+
+    /**
+     * Convert a term into an int value
+     * @param term Prolog term
+     * @return Integer value
+     */
+    private static int toInt(Term term)
+    {
+        return term.intValue();
+    }
+
+    /**
+     * Convert a term into a long value
+     * @param term Prolog term
+     * @return Long value
+     */
+    private static long toLong(Term term)
+    {
+        return term.longValue();
+    }
+
+    /**
+     * Convert a term into a double value
+     * @param term Prolog term
+     * @return Double value
+     */
+    private static double toDouble(Term term)
+    {
+        return term.doubleValue();
+    }
+
+    /**
+     * Convert a term into a boolean value
+     * @param term Prolog term
+     * @return True if term is the atom true, false otherwise.
+     */
+    private static boolean toBoolean(Term term)
+    {
+        return term.isAtom() && "true".equals(term.name());
+    }
+
+    /**
+     * Convert a term into text
+     * @param term Prolog term
+     * @return Name of an atom or string term, otherwise
+     * the textual form of the term
+     */
+    private static String toText(Term term)
+    {
+        return term.isAtom() ? term.name() : term.toString();
+    }
+}
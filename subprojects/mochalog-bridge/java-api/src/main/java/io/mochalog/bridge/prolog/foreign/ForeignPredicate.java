@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.foreign;
+
+import org.jpl7.Atom;
+import org.jpl7.JPL;
+import org.jpl7.Term;
+import org.jpl7.Util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.BaseStream;
+
+/**
+ * Java method exposed to Prolog as a predicate.
+ * <p>
+ * The method handle backing the predicate is adapted once
+ * on construction (argument marshalling and spreading are bound
+ * into the handle itself) so that no reflection is performed
+ * when the predicate is called from Prolog.
+ */
+public class ForeignPredicate
+{
+    /**
+     * Manner in which the result of the backing method
+     * is presented to Prolog
+     */
+    public enum Mode
+    {
+        // All arguments are inputs; succeeds given the method
+        // returns true or has no result
+        TEST,
+        // Final argument unified with the method result;
+        // fails given the method returns null
+        FUNCTION,
+        // Final argument unified with each element of the
+        // method result on backtracking (the result is
+        // enumerated in full on each call)
+        NONDETERMINISTIC
+    }
+
+    // Shared solution lists (avoid allocation for
+    // TEST-mode results)
+    private static final Term SUCCESS = Util.termArrayToList(new Term[] { new Atom("true") });
+    private static final Term FAILURE = JPL.LIST_NIL;
+
+    // Identifier assigned by the predicate registry
+    private final int id;
+    // Predicate name/arity
+    private final String name;
+    private final int arity;
+    // Result presentation mode
+    private final Mode mode;
+    // Adapted handle of type (Term[])Object
+    private final MethodHandle invoker;
+
+    /**
+     * Constructor.
+     * @param id Registry identifier
+     * @param name Predicate name
+     * @param arity Predicate arity
+     * @param handle Handle to Java method backing the predicate
+     * @param nondeterministic True if each element of the method result
+     * should be a separate solution, false otherwise.
+     * @throws IllegalArgumentException Method type is incompatible with
+     * the given arity or contains unsupported parameter types
+     */
+    ForeignPredicate(int id, String name, int arity, MethodHandle handle,
+        boolean nondeterministic) throws IllegalArgumentException
+    {
+        this.id = id;
+        this.name = name;
+        this.arity = arity;
+
+        MethodType type = handle.type();
+        int inputCount = type.parameterCount();
+
+        mode = getMode(type, arity, nondeterministic);
+
+        // Bind argument conversions into the handle
+        MethodHandle target = handle;
+        for (int i = 0; i < inputCount; ++i)
+        {
+            MethodHandle converter =
+                ArgumentMarshaller.getArgumentConverter(type.parameterType(i));
+            if (converter != null)
+            {
+                target = MethodHandles.filterArguments(target, i, converter);
+            }
+        }
+
+        // Normalise to a single invocation signature of (Term[])Object
+        invoker = target
+            .asType(MethodType.methodType(Object.class,
+                Collections.nCopies(inputCount, Term.class)))
+            .asSpreader(Term[].class, inputCount);
+    }
+
+    /**
+     * Invoke the backing method with the given Prolog arguments
+     * @param arguments Input arguments
+     * @return Prolog list of solutions to unify with the final
+     * predicate argument (single true element for succeeding
+     * test predicates)
+     * @throws ForeignPredicateException Backing method failed
+     */
+    public Term invoke(Term[] arguments) throws ForeignPredicateException
+    {
+        Object result;
+        try
+        {
+            result = (Object) invoker.invokeExact(arguments);
+        }
+        catch (Throwable e)
+        {
+            throw new ForeignPredicateException("Foreign predicate " +
+                name + "/" + arity + " failed.", e);
+        }
+
+        switch (mode)
+        {
+            case TEST:
+                return result == null || Boolean.TRUE.equals(result) ? SUCCESS : FAILURE;
+            case FUNCTION:
+                return result == null ? FAILURE :
+                    Util.termArrayToList(new Term[] { ArgumentMarshaller.toTerm(result) });
+            default:
+                return toSolutionList(result);
+        }
+    }
+
+    /**
+     * Get the registry identifier of the predicate
+     * @return Identifier
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Get the name of the predicate
+     * @return Predicate name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Get the arity of the predicate
+     * @return Predicate arity
+     */
+    public int getArity()
+    {
+        return arity;
+    }
+
+    /**
+     * Get the manner in which the method result is
+     * presented to Prolog
+     * @return Result mode
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + "/" + arity;
+    }
+
+    /**
+     * Determine the result mode of a method handle of the
+     * given type registered with the given arity
+     * @param type Method type
+     * @param arity Predicate arity
+     * @param nondeterministic Whether results should be enumerated
+     * @return Result mode
+     * @throws IllegalArgumentException Type incompatible with arity
+     */
+    private static Mode getMode(MethodType type, int arity, boolean nondeterministic)
+        throws IllegalArgumentException
+    {
+        int inputCount = type.parameterCount();
+        Class<?> returnType = type.returnType();
+
+        if (nondeterministic)
+        {
+            if (inputCount != arity - 1 || returnType == void.class)
+            {
+                throw new IllegalArgumentException("Nondeterministic foreign predicates " +
+                    "of arity N require a method of N - 1 parameters returning " +
+                    "an iterable, iterator, stream or array.");
+            }
+
+            return Mode.NONDETERMINISTIC;
+        }
+
+        if (inputCount == arity)
+        {
+            if (returnType != void.class && returnType != boolean.class &&
+                returnType != Boolean.class)
+            {
+                throw new IllegalArgumentException("Foreign predicates taking all " +
+                    "arguments as inputs must return boolean or void.");
+            }
+
+            return Mode.TEST;
+        }
+        else if (inputCount == arity - 1 && returnType != void.class)
+        {
+            return Mode.FUNCTION;
+        }
+
+        throw new IllegalArgumentException("Method type " + type +
+            " is incompatible with predicate arity " + arity + ".");
+    }
+
+    /**
+     * Convert the result of a nondeterministic predicate into
+     * a Prolog list of solutions. Results are enumerated eagerly,
+     * closing streams and closeable iterators once enumerated.
+     * @param result Method result
+     * @return Solution list
+     * @throws ForeignPredicateException Result cannot be enumerated
+     */
+    private Term toSolutionList(Object result) throws ForeignPredicateException
+    {
+        if (result == null)
+        {
+            return FAILURE;
+        }
+
+        List<Term> solutions = new ArrayList<>();
+        if (result instanceof Iterable)
+        {
+            for (Object element : (Iterable<?>) result)
+            {
+                solutions.add(ArgumentMarshaller.toTerm(element));
+            }
+        }
+        else if (result instanceof BaseStream)
+        {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>) result)
+            {
+                addAll(solutions, stream.iterator());
+            }
+        }
+        else if (result instanceof Iterator)
+        {
+            addAll(solutions, (Iterator<?>) result);
+            if (result instanceof AutoCloseable)
+            {
+                try
+                {
+                    ((AutoCloseable) result).close();
+                }
+                catch (Exception e)
+                {
+                    throw new ForeignPredicateException("Result of foreign predicate " +
+                        this + " could not be closed.", e);
+                }
+            }
+        }
+        else if (result instanceof Object[])
+        {
+            for (Object element : (Object[]) result)
+            {
+                solutions.add(ArgumentMarshaller.toTerm(element));
+            }
+        }
+        else if (result instanceof int[])
+        {
+            for (int element : (int[]) result)
+            {
+                solutions.add(new org.jpl7.Integer(element));
+            }
+        }
+        else if (result instanceof long[])
+        {
+            for (long element : (long[]) result)
+            {
+                solutions.add(new org.jpl7.Integer(element));
+            }
+        }
+        else if (result instanceof double[])
+        {
+            for (double element : (double[]) result)
+            {
+                solutions.add(new org.jpl7.Float(element));
+            }
+        }
+        else
+        {
+            throw new ForeignPredicateException("Result of nondeterministic foreign " +
+                "predicate " + this + " cannot be enumerated.");
+        }
+
+        return Util.termArrayToList(solutions.toArray(new Term[solutions.size()]));
+    }
+
+    /**
+     * Add the remaining elements of an iterator to a list
+     * of solutions
+     * @param solutions Solution list
+     * @param iterator Iterator over method result
+     */
+    private static void addAll(List<Term> solutions, Iterator<?> iterator)
+    {
+        while (iterator.hasNext())
+        {
+            solutions.add(ArgumentMarshaller.toTerm(iterator.next()));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.foreign;
+
+import io.mochalog.bridge.prolog.lang.Module;
+
+import org.jpl7.Term;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide registry of Java methods exposed to Prolog
+ * as foreign predicates.
+ * <p>
+ * Prolog dispatches calls to registered predicates through
+ * {@link #invoke(int, Term)} by registry identifier (see
+ * mochalog:call_foreign_predicate/2), allowing lookup of the
+ * backing method in constant time. Registering a predicate
+ * of the same module, name and arity again replaces the backing
+ * method under the same identifier, so re-registration does not
+ * retain superseded methods.
+ */
+public final class ForeignPredicateRegistry
+{
+    // Registered predicates indexed by identifier. Array is
+    // replaced on growth, allowing lock-free reads
+    private static volatile ForeignPredicate[] predicates = new ForeignPredicate[16];
+    // Number of registered predicates (next identifier)
+    private static int predicateCount = 0;
+    // Identifiers of registered predicates keyed by
+    // module:name/arity
+    private static final Map<String, Integer> IDENTIFIERS = new HashMap<>();
+
+    /**
+     * Private constructor. Static registry.
+     */
+    private ForeignPredicateRegistry()
+    {
+
+    }
+
+    /**
+     * Register a Java method as a foreign predicate, replacing
+     * any predicate registered with the same module, name and arity
+     * @param module Module predicate is defined in (null if
+     * defined in the user module)
+     * @param name Predicate name
+     * @param arity Predicate arity
+     * @param handle Handle to backing Java method
+     * @param nondeterministic True if each element of the method
+     * result should be a separate solution, false otherwise.
+     * @return Registered predicate
+     * @throws IllegalArgumentException Method type incompatible
+     * with the given arity
+     */
+    public static synchronized ForeignPredicate register(Module module, String name,
+        int arity, MethodHandle handle, boolean nondeterministic)
+        throws IllegalArgumentException
+    {
+        String key = (module != null ? module.getName() : "user") +
+            ":" + name + "/" + arity;
+        Integer existing = IDENTIFIERS.get(key);
+        int id = existing != null ? existing : predicateCount;
+
+        ForeignPredicate predicate =
+            new ForeignPredicate(id, name, arity, handle, nondeterministic);
+
+        ForeignPredicate[] current = predicates;
+        if (existing == null)
+        {
+            if (predicateCount == current.length)
+            {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+
+            IDENTIFIERS.put(key, id);
+            ++predicateCount;
+        }
+
+        current[id] = predicate;
+        // Publish the (possibly replaced) array
+        predicates = current;
+        return predicate;
+    }
+
+    /**
+     * Get the predicate registered with the given identifier
+     * @param id Registry identifier
+     * @return Registered predicate
+     * @throws ForeignPredicateException No predicate registered
+     * with the given identifier
+     */
+    public static ForeignPredicate get(int id) throws ForeignPredicateException
+    {
+        ForeignPredicate[] current = predicates;
+        ForeignPredicate predicate = id >= 0 && id < current.length ? current[id] : null;
+        if (predicate == null)
+        {
+            throw new ForeignPredicateException("No foreign predicate registered " +
+                "with identifier " + id + ".");
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Entry point for Prolog calls to registered predicates.
+     * @param id Registry identifier
+     * @param arguments Prolog list of input arguments
+     * @return Prolog list of solutions
+     * @throws ForeignPredicateException Predicate could not be invoked
+     */
+    public static Term invoke(int id, Term arguments) throws ForeignPredicateException
+    {
+        return get(id).invoke(toTermArray(arguments));
+    }
+
+    /**
+     * Convert a Prolog list into an array of its elements
+     * @param list Prolog list
+     * @return Array of list elements
+     */
+    private static Term[] toTermArray(Term list)
+    {
+        List<Term> elements = new ArrayList<>();
+        // Walk the '[|]'/2 cells of the list
+        Term cell = list;
+        while (cell.isCompound() && cell.arity() == 2)
+        {
+            elements.add(cell.arg(1));
+            cell = cell.arg(2);
+        }
+
+        return elements.toArray(new Term[elements.size()]);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.handle;
+
+import org.jpl7.Compound;
+import org.jpl7.Term;
+
+/**
+ * Reference to a Java object which may be passed through
+ * Prolog as an opaque term of the form mochalog_handle(Id),
+ * without the object itself being converted.
+ * <p>
+ * Handles are reference-counted; the referenced object remains
+ * resolvable until every retention of the handle is released.
+ */
+public final class ObjectHandle
+{
+    // Functor of the Prolog representation of a handle
+    public static final String FUNCTOR = "mochalog_handle";
+
+    // Table in which the referenced object is held
+    private final ObjectHandleTable table;
+    // Identifier of the table entry
+    private final long id;
+
+    /**
+     * Constructor.
+     * @param table Owning handle table
+     * @param id Table entry identifier
+     */
+    ObjectHandle(ObjectHandleTable table, long id)
+    {
+        this.table = table;
+        this.id = id;
+    }
+
+    /**
+     * Get the identifier of the handle
+     * @return Handle identifier
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Get the referenced object
+     * @return Referenced object
+     * @throws InvalidHandleException Handle has been released
+     */
+    public Object get() throws InvalidHandleException
+    {
+        return table.resolve(id);
+    }
+
+    /**
+     * Acquire an additional reference to the handle
+     * @return Current handle
+     * @throws InvalidHandleException Handle has been released
+     */
+    public ObjectHandle retain() throws InvalidHandleException
+    {
+        table.retain(id);
+        return this;
+    }
+
+    /**
+     * Release a reference to the handle. The referenced object
+     * is dropped from the table once no references remain.
+     * @return True if the object was dropped, false otherwise.
+     * @throws InvalidHandleException Handle has already been released
+     */
+    public boolean release() throws InvalidHandleException
+    {
+        return table.release(id);
+    }
+
+    /**
+     * Convert the handle into its Prolog term representation
+     * @return Handle term
+     */
+    public Term toTerm()
+    {
+        return new Compound(FUNCTOR, new Term[] { new org.jpl7.Integer(id) });
+    }
+
+    /**
+     * Check whether the given term is the Prolog representation
+     * of a handle
+     * @param term Term to check
+     * @return True if term represents a handle, false otherwise.
+     */
+    public static boolean isHandle(Term term)
+    {
+        return term.isCompound() && term.arity() == 1 &&
+            FUNCTOR.equals(term.name()) && term.arg(1).isInteger();
+    }
+
+    /**
+     * Convert the handle to Prolog text format
+     * @return Textual term representation
+     */
+    @Override
+    public String toString()
+    {
+        return FUNCTOR + "(" + id + ")";
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        // Early termination for self-identity
+        if (this == o)
+        {
+            return true;
+        }
+
+        // null/type validation
+        if (o != null && o instanceof ObjectHandle)
+        {
+            ObjectHandle handle = (ObjectHandle) o;
+            // Field comparisons
+            return table == handle.table && id == handle.id;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(id);
+    }
+}
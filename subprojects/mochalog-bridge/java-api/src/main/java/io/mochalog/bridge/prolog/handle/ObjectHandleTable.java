@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.handle;
+
+import org.jpl7.Term;
+
+import java.util.Arrays;
+
+/**
+ * Table of Java objects referenced through handles.
+ * <p>
+ * Handle identifiers encode a table slot and the generation
+ * of that slot, allowing referenced objects to be resolved in
+ * constant time while ensuring handles to released slots are
+ * detected after the slot is reused.
+ */
+public final class ObjectHandleTable
+{
+    // Process-wide table shared by all Prolog contexts
+    private static final ObjectHandleTable SHARED = new ObjectHandleTable();
+
+    // Initial number of slots allocated
+    private static final int INITIAL_CAPACITY = 64;
+    // Marker for end of the free slot list
+    private static final int NO_FREE_SLOT = -1;
+
+    // Referenced objects indexed by slot
+    private Object[] objects;
+    // Reference counts indexed by slot
+    private int[] referenceCounts;
+    // Current generation of each slot
+    private int[] generations;
+    // Next free slot for each released slot (free list)
+    private int[] nextFreeSlots;
+    // Head of the free slot list
+    private int freeSlot;
+    // Number of slots ever allocated
+    private int allocatedSlots;
+
+    /**
+     * Constructor.
+     */
+    public ObjectHandleTable()
+    {
+        objects = new Object[INITIAL_CAPACITY];
+        referenceCounts = new int[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        nextFreeSlots = new int[INITIAL_CAPACITY];
+        freeSlot = NO_FREE_SLOT;
+    }
+
+    /**
+     * Get the process-wide handle table
+     * @return Shared table
+     */
+    public static ObjectHandleTable getShared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Create a handle referencing the given object, with
+     * a single reference held
+     * @param object Object to reference
+     * @return Object handle
+     */
+    public synchronized ObjectHandle create(Object object)
+    {
+        int slot;
+        if (freeSlot != NO_FREE_SLOT)
+        {
+            // Reuse a previously released slot
+            slot = freeSlot;
+            freeSlot = nextFreeSlots[slot];
+        }
+        else
+        {
+            if (allocatedSlots == objects.length)
+            {
+                grow();
+            }
+            slot = allocatedSlots++;
+        }
+
+        objects[slot] = object;
+        referenceCounts[slot] = 1;
+        return new ObjectHandle(this, toId(slot, generations[slot]));
+    }
+
+    /**
+     * Resolve the object referenced by the handle with
+     * the given identifier
+     * @param id Handle identifier
+     * @return Referenced object
+     * @throws InvalidHandleException Handle has been released
+     */
+    public synchronized Object resolve(long id) throws InvalidHandleException
+    {
+        return objects[getLiveSlot(id)];
+    }
+
+    /**
+     * Resolve the object referenced by the given
+     * Prolog handle term
+     * @param term Handle term
+     * @return Referenced object
+     * @throws InvalidHandleException Term is not a live handle
+     */
+    public Object resolve(Term term) throws InvalidHandleException
+    {
+        if (!ObjectHandle.isHandle(term))
+        {
+            throw new InvalidHandleException("Term " + term + " is not an object handle.");
+        }
+
+        return resolve(term.arg(1).longValue());
+    }
+
+    /**
+     * Acquire an additional reference to a handle
+     * @param id Handle identifier
+     * @throws InvalidHandleException Handle has been released
+     */
+    public synchronized void retain(long id) throws InvalidHandleException
+    {
+        ++referenceCounts[getLiveSlot(id)];
+    }
+
+    /**
+     * Release a reference to a handle, dropping the referenced
+     * object once no references remain
+     * @param id Handle identifier
+     * @return True if the object was dropped, false otherwise.
+     * @throws InvalidHandleException Handle has already been released
+     */
+    public synchronized boolean release(long id) throws InvalidHandleException
+    {
+        int slot = getLiveSlot(id);
+        if (--referenceCounts[slot] > 0)
+        {
+            return false;
+        }
+
+        // Drop the object and invalidate outstanding handles
+        // to the slot before returning it to the free list
+        objects[slot] = null;
+        ++generations[slot];
+        nextFreeSlots[slot] = freeSlot;
+        freeSlot = slot;
+        return true;
+    }
+
+    /**
+     * Number of live handles held in the table
+     * @return Live handle count
+     */
+    public synchronized int size()
+    {
+        int freeSlots = 0;
+        for (int slot = freeSlot; slot != NO_FREE_SLOT; slot = nextFreeSlots[slot])
+        {
+            ++freeSlots;
+        }
+
+        return allocatedSlots - freeSlots;
+    }
+
+    /**
+     * Get the slot corresponding to a handle identifier,
+     * verifying the handle remains live
+     * @param id Handle identifier
+     * @return Table slot
+     * @throws InvalidHandleException Handle has been released
+     */
+    private int getLiveSlot(long id) throws InvalidHandleException
+    {
+        int slot = (int) id;
+        int generation = (int) (id >>> 32);
+
+        if (slot < 0 || slot >= allocatedSlots || generations[slot] != generation ||
+            referenceCounts[slot] == 0)
+        {
+            throw new InvalidHandleException("Object handle " + id + " has been released.");
+        }
+
+        return slot;
+    }
+
+    /**
+     * Double the capacity of the table
+     */
+    private void grow()
+    {
+        int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+        referenceCounts = Arrays.copyOf(referenceCounts, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        nextFreeSlots = Arrays.copyOf(nextFreeSlots, capacity);
+    }
+
+    /**
+     * Encode a slot and its generation into a handle identifier
+     * @param slot Table slot
+     * @param generation Slot generation
+     * @return Handle identifier
+     */
+    private static long toId(int slot, int generation)
+    {
+        return ((long) generation << 32) | (slot & 0xFFFFFFFFL);
+    }
+}
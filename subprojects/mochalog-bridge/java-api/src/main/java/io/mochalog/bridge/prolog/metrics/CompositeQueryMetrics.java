@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query metrics implementation forwarding the query
+ * lifecycle to each of a number of delegate implementations
+ */
+public class CompositeQueryMetrics implements QueryMetrics
+{
+    // Metrics to forward the query lifecycle to
+    private final QueryMetrics[] delegates;
+
+    /**
+     * Constructor.
+     * @param delegates Metrics to forward the query lifecycle to
+     */
+    public CompositeQueryMetrics(QueryMetrics... delegates)
+    {
+        this.delegates = delegates.clone();
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        for (QueryMetrics delegate : delegates)
+        {
+            if (delegate.isEnabled())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isInferenceCountingEnabled()
+    {
+        for (QueryMetrics delegate : delegates)
+        {
+            if (delegate.isInferenceCountingEnabled())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public PhaseTimer startPhase(QueryPhase phase, String template, Module module)
+    {
+        // Only hold on to timers which measure something
+        List<PhaseTimer> timers = new ArrayList<>(delegates.length);
+        for (QueryMetrics delegate : delegates)
+        {
+            PhaseTimer timer = delegate.startPhase(phase, template, module);
+            if (timer != PhaseTimer.NONE)
+            {
+                timers.add(timer);
+            }
+        }
+
+        switch (timers.size())
+        {
+            case 0:
+                return PhaseTimer.NONE;
+            case 1:
+                return timers.get(0);
+            default:
+                return solutionCount -> {
+                    for (PhaseTimer timer : timers)
+                    {
+                        timer.stop(solutionCount);
+                    }
+                };
+        }
+    }
+
+    @Override
+    public void collectorOpened(Query query, Module module)
+    {
+        for (QueryMetrics delegate : delegates)
+        {
+            delegate.collectorOpened(query, module);
+        }
+    }
+
+    @Override
+    public void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+        for (QueryMetrics delegate : delegates)
+        {
+            delegate.collectorClosed(query, module, statistics);
+        }
+    }
+}
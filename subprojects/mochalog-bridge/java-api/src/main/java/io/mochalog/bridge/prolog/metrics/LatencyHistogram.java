@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latency values (nanoseconds).
+ * <p>
+ * Values are bucketed log-linearly: each power of two is split
+ * into eight linear sub-buckets, bounding the relative error of
+ * reported percentiles to 12.5% at constant memory.
+ */
+public class LatencyHistogram
+{
+    // Linear sub-buckets per power of two (log2)
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Buckets required to cover all positive long values
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Number of values recorded in each bucket
+    private final AtomicLongArray buckets;
+    // Aggregate values
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    /**
+     * Constructor.
+     */
+    public LatencyHistogram()
+    {
+        buckets = new AtomicLongArray(BUCKET_COUNT);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Record a single value
+     * @param nanos Latency in nanoseconds (negative values
+     * are recorded as zero)
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Number of values recorded
+     * @return Value count
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Mean of recorded values
+     * @return Mean latency in nanoseconds
+     */
+    public double getMean()
+    {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Largest recorded value
+     * @return Maximum latency in nanoseconds
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Estimate the value at the given percentile
+     * @param percentile Percentile in the range [0, 100]
+     * @return Upper bound of the bucket containing the
+     * percentile, in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long total = count.sum();
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        // Rank of the value at the requested percentile
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            seen += buckets.get(i);
+            if (seen >= rank)
+            {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Get the bucket containing the given value
+     * @param value Non-negative value
+     * @return Bucket index
+     */
+    private static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        // Position of most significant bit selects the power of
+        // two, following bits select the linear sub-bucket
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the largest value held by the given bucket
+     * @param bucket Bucket index
+     * @return Upper bound of bucket
+     */
+    private static long upperBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Access to the process-wide query metrics implementation.
+ * <p>
+ * Defaults to the first QueryMetrics provider registered through
+ * META-INF/services (see {@link ServiceLoader}), or a no-op
+ * implementation given no provider is available.
+ */
+public final class Metrics
+{
+    // Installed metrics implementation
+    private static volatile QueryMetrics metrics = loadProvider();
+
+    /**
+     * Private constructor. Static holder.
+     */
+    private Metrics()
+    {
+
+    }
+
+    /**
+     * Get the installed metrics implementation
+     * @return Query metrics
+     */
+    public static QueryMetrics get()
+    {
+        return metrics;
+    }
+
+    /**
+     * Install a metrics implementation process-wide
+     * @param queryMetrics Query metrics (null to disable)
+     */
+    public static void install(QueryMetrics queryMetrics)
+    {
+        metrics = queryMetrics == null ? QueryMetrics.NONE : queryMetrics;
+    }
+
+    /**
+     * Load the first registered QueryMetrics service provider
+     * available on the running JDK
+     * @return Provided metrics, or no-op metrics if no
+     * provider is available
+     */
+    private static QueryMetrics loadProvider()
+    {
+        Iterator<QueryMetrics> providers =
+            ServiceLoader.load(QueryMetrics.class).iterator();
+        while (true)
+        {
+            try
+            {
+                return providers.hasNext() ? providers.next() : QueryMetrics.NONE;
+            }
+            catch (ServiceConfigurationError | LinkageError e)
+            {
+                // Skip providers requiring APIs absent from the
+                // running JDK (e.g. flight recorder metrics)
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+/**
+ * Timer of a single in-progress query phase, started by
+ * {@link QueryMetrics#startPhase}
+ */
+@FunctionalInterface
+public interface PhaseTimer
+{
+    // Timer which records nothing
+    PhaseTimer NONE = solutionCount -> {};
+
+    /**
+     * Stop the timer and record the elapsed phase
+     * @param solutionCount Number of solutions retrieved by
+     * the query at the end of the phase
+     */
+    void stop(int solutionCount);
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+/**
+ * Service provider interface for the collection of query
+ * metrics (latency, throughput and native interface usage).
+ * <p>
+ * All callbacks default to no-ops, allowing implementations
+ * to observe only the events they are interested in. Instances
+ * are invoked concurrently and must be thread-safe.
+ */
+public interface QueryMetrics
+{
+    // Metrics implementation which records nothing
+    QueryMetrics NONE = new QueryMetrics()
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * Check whether metrics are being recorded. Instrumented
+     * code skips any measurement overhead given false.
+     * @return True if enabled, false otherwise.
+     */
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Check whether Prolog inferences should be counted for
+     * each query. Counting requires additional interpreter
+     * calls (statistics/2) on opening and detaching each query.
+     * @return True if inferences should be counted, false otherwise.
+     */
+    default boolean isInferenceCountingEnabled()
+    {
+        return false;
+    }
+
+    /**
+     * Start timing a query phase
+     * @param phase Phase being timed
+     * @param template Unformatted query text
+     * @param module Working module of query (null if unscoped)
+     * @return Timer to stop on completion of the phase
+     */
+    default PhaseTimer startPhase(QueryPhase phase, String template, Module module)
+    {
+        return PhaseTimer.NONE;
+    }
+
+    /**
+     * Notification that a solution collector was opened
+     * @param query Query being collected
+     * @param module Working module of query (null if unscoped)
+     */
+    default void collectorOpened(Query query, Module module)
+    {
+
+    }
+
+    /**
+     * Notification that a solution collector was detached
+     * @param query Query which was collected
+     * @param module Working module of query (null if unscoped)
+     * @param statistics Work performed over the lifetime of the collector
+     */
+    default void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+/**
+ * Distinct stages of the query lifecycle which
+ * may be timed by query metrics
+ */
+public enum QueryPhase
+{
+    // Substitution of arguments into query text
+    FORMAT,
+    // Construction of the interpreter query
+    OPEN,
+    // Retrieval of a single solution from the interpreter
+    FETCH,
+    // Closure of the interpreter query
+    DETACH,
+    // Import of a source file into a context
+    IMPORT,
+    // Assertion of a clause
+    ASSERT,
+    // Retraction of a clause
+    RETRACT
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+/**
+ * Summary of the work performed over the lifetime
+ * of a single query solution collector
+ */
+public class QueryStatistics
+{
+    // Value of unmeasured statistics
+    public static final long UNMEASURED = -1;
+
+    // Number of solutions retrieved
+    private final int solutionCount;
+    // Time between opening and detaching the collector
+    private final long lifetimeNanos;
+    // Time spent opening the interpreter query
+    private final long openNanos;
+    // Time spent retrieving solutions
+    private final long fetchNanos;
+    // Time between opening and retrieval of first solution
+    private final long firstSolutionNanos;
+    // Number of calls made through the native interface
+    private final long nativeCalls;
+    // Prolog inferences performed by the query
+    private final long inferences;
+
+    /**
+     * Constructor.
+     * @param solutionCount Number of solutions retrieved
+     * @param lifetimeNanos Collector lifetime
+     * @param openNanos Time spent opening query
+     * @param fetchNanos Time spent retrieving solutions
+     * @param firstSolutionNanos Time to first solution, or UNMEASURED
+     * given no solutions were retrieved
+     * @param nativeCalls Native interface calls
+     * @param inferences Prolog inferences, or UNMEASURED given
+     * inference counting is disabled
+     */
+    public QueryStatistics(int solutionCount, long lifetimeNanos, long openNanos,
+        long fetchNanos, long firstSolutionNanos, long nativeCalls, long inferences)
+    {
+        this.solutionCount = solutionCount;
+        this.lifetimeNanos = lifetimeNanos;
+        this.openNanos = openNanos;
+        this.fetchNanos = fetchNanos;
+        this.firstSolutionNanos = firstSolutionNanos;
+        this.nativeCalls = nativeCalls;
+        this.inferences = inferences;
+    }
+
+    /**
+     * Getter.
+     * @return Number of solutions retrieved
+     */
+    public int getSolutionCount()
+    {
+        return solutionCount;
+    }
+
+    /**
+     * Getter.
+     * @return Time between opening and detaching the collector
+     */
+    public long getLifetimeNanos()
+    {
+        return lifetimeNanos;
+    }
+
+    /**
+     * Getter.
+     * @return Time spent opening the interpreter query
+     */
+    public long getOpenNanos()
+    {
+        return openNanos;
+    }
+
+    /**
+     * Getter.
+     * @return Time spent retrieving solutions
+     */
+    public long getFetchNanos()
+    {
+        return fetchNanos;
+    }
+
+    /**
+     * Getter.
+     * @return Time between opening and retrieval of the first
+     * solution, or UNMEASURED
+     */
+    public long getFirstSolutionNanos()
+    {
+        return firstSolutionNanos;
+    }
+
+    /**
+     * Getter.
+     * @return Number of calls made through the native interface
+     */
+    public long getNativeCalls()
+    {
+        return nativeCalls;
+    }
+
+    /**
+     * Getter.
+     * @return Prolog inferences performed, or UNMEASURED
+     */
+    public long getInferences()
+    {
+        return inferences;
+    }
+
+    /**
+     * Solution throughput over the lifetime of the collector
+     * @return Solutions per second
+     */
+    public double getSolutionsPerSecond()
+    {
+        return lifetimeNanos > 0 ? solutionCount * 1e9 / lifetimeNanos : 0.0;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory query metrics implementation, recording latency
+ * histograms and throughput per query template.
+ */
+public class RecordingQueryMetrics implements QueryMetrics
+{
+    /**
+     * Metrics accumulated for a single query template
+     */
+    public static class TemplateMetrics
+    {
+        // Latency of each query phase
+        private final Map<QueryPhase, LatencyHistogram> phases;
+        // Time between opening and retrieval of first solution
+        private final LatencyHistogram firstSolution;
+        // Totals over all detached collectors
+        private final LongAdder solutions;
+        private final LongAdder lifetimeNanos;
+        private final LongAdder inferences;
+
+        /**
+         * Constructor.
+         */
+        private TemplateMetrics()
+        {
+            phases = new EnumMap<>(QueryPhase.class);
+            for (QueryPhase phase : QueryPhase.values())
+            {
+                phases.put(phase, new LatencyHistogram());
+            }
+
+            firstSolution = new LatencyHistogram();
+            solutions = new LongAdder();
+            lifetimeNanos = new LongAdder();
+            inferences = new LongAdder();
+        }
+
+        /**
+         * Get the latency histogram of the given phase
+         * @param phase Query phase
+         * @return Latency histogram
+         */
+        public LatencyHistogram getPhase(QueryPhase phase)
+        {
+            return phases.get(phase);
+        }
+
+        /**
+         * Get the histogram of times to first solution
+         * @return Latency histogram
+         */
+        public LatencyHistogram getFirstSolution()
+        {
+            return firstSolution;
+        }
+
+        /**
+         * Total number of solutions retrieved
+         * @return Solution count
+         */
+        public long getSolutions()
+        {
+            return solutions.sum();
+        }
+
+        /**
+         * Solution throughput over the summed lifetime of
+         * all collectors of the template
+         * @return Solutions per second
+         */
+        public double getSolutionsPerSecond()
+        {
+            long nanos = lifetimeNanos.sum();
+            return nanos > 0 ? solutions.sum() * 1e9 / nanos : 0.0;
+        }
+
+        /**
+         * Total Prolog inferences performed (given
+         * inference counting is enabled)
+         * @return Inference count
+         */
+        public long getInferences()
+        {
+            return inferences.sum();
+        }
+    }
+
+    // Metrics recorded per query template
+    private final Map<String, TemplateMetrics> templates;
+    // Number of currently open collectors (gauge)
+    private final AtomicInteger openCollectors;
+    // Total calls made through the native interface
+    private final LongAdder nativeCalls;
+    // Flag indicating whether inferences should be counted
+    private volatile boolean inferenceCounting;
+
+    /**
+     * Constructor.
+     */
+    public RecordingQueryMetrics()
+    {
+        templates = new ConcurrentHashMap<>();
+        openCollectors = new AtomicInteger();
+        nativeCalls = new LongAdder();
+    }
+
+    @Override
+    public boolean isInferenceCountingEnabled()
+    {
+        return inferenceCounting;
+    }
+
+    /**
+     * Set whether Prolog inferences should be counted for each query
+     * @param inferenceCounting True to count inferences, false otherwise.
+     */
+    public void setInferenceCounting(boolean inferenceCounting)
+    {
+        this.inferenceCounting = inferenceCounting;
+    }
+
+    @Override
+    public PhaseTimer startPhase(QueryPhase phase, String template, Module module)
+    {
+        LatencyHistogram histogram = getTemplate(template).getPhase(phase);
+        long start = System.nanoTime();
+        return solutionCount -> histogram.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void collectorOpened(Query query, Module module)
+    {
+        openCollectors.incrementAndGet();
+    }
+
+    @Override
+    public void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+        openCollectors.decrementAndGet();
+        nativeCalls.add(statistics.getNativeCalls());
+
+        TemplateMetrics template = getTemplate(query.getTemplate());
+        template.solutions.add(statistics.getSolutionCount());
+        template.lifetimeNanos.add(statistics.getLifetimeNanos());
+        if (statistics.getFirstSolutionNanos() != QueryStatistics.UNMEASURED)
+        {
+            template.firstSolution.record(statistics.getFirstSolutionNanos());
+        }
+        if (statistics.getInferences() != QueryStatistics.UNMEASURED)
+        {
+            template.inferences.add(statistics.getInferences());
+        }
+    }
+
+    /**
+     * Get the metrics recorded for a given query template,
+     * creating them if necessary
+     * @param template Unformatted query text
+     * @return Template metrics
+     */
+    public TemplateMetrics getTemplate(String template)
+    {
+        // Avoid locking on the common path of an existing template
+        TemplateMetrics metrics = templates.get(template);
+        return metrics != null ? metrics :
+            templates.computeIfAbsent(template, t -> new TemplateMetrics());
+    }
+
+    /**
+     * Get all query templates for which metrics were recorded
+     * @return Unmodifiable set of templates
+     */
+    public Set<String> getTemplates()
+    {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /**
+     * Number of collectors currently open
+     * @return Open collector count
+     */
+    public int getOpenCollectors()
+    {
+        return openCollectors.get();
+    }
+
+    /**
+     * Total calls made through the native interface by
+     * detached collectors
+     * @return Native call count
+     */
+    public long getNativeCalls()
+    {
+        return nativeCalls.sum();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Record of a query captured by the slow query log
+ */
+public class SlowQuery
+{
+    // Wall-clock time the query was detached (epoch milliseconds)
+    private final long timestamp;
+    // Formatted query text
+    private final String text;
+    // Unformatted query text
+    private final String template;
+    // Name of working module (null if unscoped)
+    private final String module;
+    // String forms of substitution arguments
+    private final List<String> arguments;
+    // Work performed over the lifetime of the query
+    private final QueryStatistics statistics;
+
+    /**
+     * Constructor.
+     * @param timestamp Time the query was detached
+     * @param text Formatted query text
+     * @param template Unformatted query text
+     * @param module Name of working module
+     * @param arguments String forms of substitution arguments
+     * @param statistics Work performed by the query
+     */
+    public SlowQuery(long timestamp, String text, String template, String module,
+        String[] arguments, QueryStatistics statistics)
+    {
+        this.timestamp = timestamp;
+        this.text = text;
+        this.template = template;
+        this.module = module;
+        this.arguments = Collections.unmodifiableList(Arrays.asList(arguments.clone()));
+        this.statistics = statistics;
+    }
+
+    /**
+     * Getter.
+     * @return Time the query was detached (epoch milliseconds)
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Getter.
+     * @return Formatted query text
+     */
+    public String getText()
+    {
+        return text;
+    }
+
+    /**
+     * Getter.
+     * @return Unformatted query text
+     */
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Getter.
+     * @return Name of working module (null if unscoped)
+     */
+    public String getModule()
+    {
+        return module;
+    }
+
+    /**
+     * Getter.
+     * @return Unmodifiable list of string forms of substitution arguments
+     */
+    public List<String> getArguments()
+    {
+        return arguments;
+    }
+
+    /**
+     * Getter.
+     * @return Work performed over the lifetime of the query
+     */
+    public QueryStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("[%s] %s %s (lifetime=%dns open=%dns fetch=%dns " +
+                "solutions=%d inferences=%d)",
+            module, text, arguments, statistics.getLifetimeNanos(),
+            statistics.getOpenNanos(), statistics.getFetchNanos(),
+            statistics.getSolutionCount(), statistics.getInferences());
+    }
+}
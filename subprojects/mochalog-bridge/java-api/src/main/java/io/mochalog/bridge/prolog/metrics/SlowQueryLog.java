@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Query metrics implementation capturing queries which exceed
+ * latency, inference or solution count thresholds into a bounded
+ * in-memory ring buffer.
+ * <p>
+ * A query is captured given any configured threshold is exceeded.
+ * Only a sampled fraction of such queries are captured, and the
+ * oldest captures are overwritten once the buffer is full, keeping
+ * overhead constant under load. Install for a single context
+ * through {@link io.mochalog.bridge.prolog.AbstractPrologContext#setMetrics},
+ * combining with other metrics through {@link CompositeQueryMetrics}.
+ */
+public class SlowQueryLog implements QueryMetrics
+{
+    // Value of disabled thresholds
+    public static final long DISABLED = -1;
+
+    /**
+     * Builder for slow query logs
+     */
+    public static class Builder
+    {
+        // Minimum collector lifetime to capture
+        private long latencyThresholdNanos = DISABLED;
+        // Minimum inference count to capture
+        private long inferenceThreshold = DISABLED;
+        // Minimum solution count to capture
+        private long solutionThreshold = DISABLED;
+        // Fraction of slow queries to capture
+        private double sampleRate = 1.0;
+        // Number of captures retained
+        private int capacity = 128;
+
+        /**
+         * Set the collector lifetime above which queries are captured
+         * @param threshold Latency threshold
+         * @param unit Unit of threshold
+         * @return Current builder
+         */
+        public Builder setLatencyThreshold(long threshold, TimeUnit unit)
+        {
+            this.latencyThresholdNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        /**
+         * Set the inference count above which queries are captured.
+         * Enables inference counting for instrumented queries.
+         * @param threshold Inference threshold
+         * @return Current builder
+         */
+        public Builder setInferenceThreshold(long threshold)
+        {
+            this.inferenceThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Set the solution count above which queries are captured
+         * @param threshold Solution count threshold
+         * @return Current builder
+         */
+        public Builder setSolutionThreshold(long threshold)
+        {
+            this.solutionThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Set the fraction of queries exceeding a threshold
+         * which are captured
+         * @param sampleRate Sample rate in range [0, 1]
+         * @return Current builder
+         * @throws IllegalArgumentException Sample rate out of range
+         */
+        public Builder setSampleRate(double sampleRate)
+        {
+            if (sampleRate < 0 || sampleRate > 1)
+            {
+                throw new IllegalArgumentException("Sample rate must be in range [0, 1].");
+            }
+
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Set the number of captured queries retained
+         * @param capacity Ring buffer capacity
+         * @return Current builder
+         * @throws IllegalArgumentException Capacity not positive
+         */
+        public Builder setCapacity(int capacity)
+        {
+            if (capacity <= 0)
+            {
+                throw new IllegalArgumentException("Capacity must be positive.");
+            }
+
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Construct the slow query log
+         * @return Slow query log
+         */
+        public SlowQueryLog build()
+        {
+            return new SlowQueryLog(this);
+        }
+    }
+
+    // Minimum collector lifetime to capture
+    private final long latencyThresholdNanos;
+    // Minimum inference count to capture
+    private final long inferenceThreshold;
+    // Minimum solution count to capture
+    private final long solutionThreshold;
+    // Fraction of slow queries to capture
+    private final double sampleRate;
+    // Ring buffer of captured queries
+    private final AtomicReferenceArray<SlowQuery> buffer;
+    // Total number of queries captured (next buffer
+    // position given modulo capacity)
+    private final AtomicLong captured;
+
+    /**
+     * Constructor.
+     * @param builder Builder to construct from
+     */
+    private SlowQueryLog(Builder builder)
+    {
+        latencyThresholdNanos = builder.latencyThresholdNanos;
+        inferenceThreshold = builder.inferenceThreshold;
+        solutionThreshold = builder.solutionThreshold;
+        sampleRate = builder.sampleRate;
+        buffer = new AtomicReferenceArray<>(builder.capacity);
+        captured = new AtomicLong();
+    }
+
+    @Override
+    public boolean isInferenceCountingEnabled()
+    {
+        return inferenceThreshold != DISABLED;
+    }
+
+    @Override
+    public void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+        if (!isSlow(statistics) ||
+            (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate))
+        {
+            return;
+        }
+
+        // Capture arguments as strings to avoid retaining
+        // references to caller objects
+        Object[] arguments = query.getArguments();
+        String[] capturedArguments = new String[arguments.length];
+        for (int i = 0; i < arguments.length; ++i)
+        {
+            capturedArguments[i] = String.valueOf(arguments[i]);
+        }
+
+        SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(),
+            query.toString(), query.getTemplate(),
+            module == null ? null : module.getName(),
+            capturedArguments, statistics);
+
+        long position = captured.getAndIncrement();
+        buffer.set((int) (position % buffer.length()), slowQuery);
+    }
+
+    /**
+     * Check whether query statistics exceed any
+     * configured threshold
+     * @param statistics Query statistics
+     * @return True if slow, false otherwise.
+     */
+    private boolean isSlow(QueryStatistics statistics)
+    {
+        return (latencyThresholdNanos != DISABLED &&
+                statistics.getLifetimeNanos() >= latencyThresholdNanos) ||
+            (inferenceThreshold != DISABLED &&
+                statistics.getInferences() >= inferenceThreshold) ||
+            (solutionThreshold != DISABLED &&
+                statistics.getSolutionCount() >= solutionThreshold);
+    }
+
+    /**
+     * Get the retained captured queries, oldest first
+     * @return Captured queries
+     */
+    public List<SlowQuery> getEntries()
+    {
+        int capacity = buffer.length();
+        long end = captured.get();
+        long start = Math.max(0, end - capacity);
+
+        List<SlowQuery> entries = new ArrayList<>((int) (end - start));
+        for (long position = start; position < end; ++position)
+        {
+            SlowQuery entry = buffer.get((int) (position % capacity));
+            // Slot may not yet be published by a concurrent capture
+            if (entry != null)
+            {
+                entries.add(entry);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Get the total number of queries captured, including
+     * those overwritten in the ring buffer
+     * @return Captured query count
+     */
+    public long getCapturedCount()
+    {
+        return captured.get();
+    }
+
+    /**
+     * Remove all retained captured queries
+     */
+    public void clear()
+    {
+        for (int i = 0; i < buffer.length(); ++i)
+        {
+            buffer.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.profile;
+
+/**
+ * Execution profile of a single predicate called
+ * while proving a profiled query
+ */
+public class PredicateProfile
+{
+    // Predicate indicator (e.g. module:name/arity)
+    private final String predicate;
+    // Number of times the call port was passed
+    private final long calls;
+    // Number of times the redo port was passed
+    private final long redos;
+    // Number of times the exit port was passed
+    private final long exits;
+    // CPU time spent in the predicate itself
+    private final long selfNanos;
+    // CPU time spent in the predicate and its callees
+    private final long cumulativeNanos;
+
+    /**
+     * Constructor.
+     * @param predicate Predicate indicator
+     * @param calls Call port count
+     * @param redos Redo port count
+     * @param exits Exit port count
+     * @param selfNanos Time spent in predicate itself
+     * @param cumulativeNanos Time spent in predicate and callees
+     */
+    public PredicateProfile(String predicate, long calls, long redos,
+        long exits, long selfNanos, long cumulativeNanos)
+    {
+        this.predicate = predicate;
+        this.calls = calls;
+        this.redos = redos;
+        this.exits = exits;
+        this.selfNanos = selfNanos;
+        this.cumulativeNanos = cumulativeNanos;
+    }
+
+    /**
+     * Getter.
+     * @return Predicate indicator
+     */
+    public String getPredicate()
+    {
+        return predicate;
+    }
+
+    /**
+     * Getter.
+     * @return Number of times the predicate was called
+     */
+    public long getCalls()
+    {
+        return calls;
+    }
+
+    /**
+     * Getter.
+     * @return Number of times the predicate was re-entered
+     * on backtracking
+     */
+    public long getRedos()
+    {
+        return redos;
+    }
+
+    /**
+     * Getter.
+     * @return Number of times the predicate succeeded
+     */
+    public long getExits()
+    {
+        return exits;
+    }
+
+    /**
+     * Get the number of inferences attributed to the
+     * predicate (SWI-Prolog counts an inference per
+     * call and redo port)
+     * @return Inference count
+     */
+    public long getInferences()
+    {
+        return calls + redos;
+    }
+
+    /**
+     * Getter.
+     * @return CPU time spent in the predicate itself
+     */
+    public long getSelfNanos()
+    {
+        return selfNanos;
+    }
+
+    /**
+     * Getter.
+     * @return CPU time spent in the predicate and its callees
+     */
+    public long getCumulativeNanos()
+    {
+        return cumulativeNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s calls=%d redos=%d exits=%d self=%dns cumulative=%dns",
+            predicate, calls, redos, exits, selfNanos, cumulativeNanos);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.profile;
+
+import org.jpl7.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-predicate execution profile of a query proved
+ * under the SWI-Prolog profiler
+ * <p>
+ * Times are derived from profiler samples, so predicates
+ * completing between samples are reported with port counts
+ * but no time.
+ */
+public class ProfileReport
+{
+    // True if the profiled query was provable
+    private final boolean succeeded;
+    // Total inferences performed by the query
+    private final long inferences;
+    // Total CPU time spent proving the query
+    private final long timeNanos;
+    // Predicate profiles in descending order of self time
+    private final List<PredicateProfile> predicates;
+
+    /**
+     * Constructor.
+     * @param succeeded True if query was provable
+     * @param inferences Total inferences performed
+     * @param timeNanos Total CPU time spent
+     * @param predicates Profiles of called predicates
+     */
+    public ProfileReport(boolean succeeded, long inferences, long timeNanos,
+        List<PredicateProfile> predicates)
+    {
+        this.succeeded = succeeded;
+        this.inferences = inferences;
+        this.timeNanos = timeNanos;
+
+        List<PredicateProfile> sorted = new ArrayList<>(predicates);
+        sorted.sort(Comparator.comparingLong(PredicateProfile::getSelfNanos).reversed());
+        this.predicates = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Construct a report from the terms produced by
+     * mochalog:profile_goal/5
+     * @param succeeded Succeeded boolean atom
+     * @param inferences Inference count
+     * @param summary Term of the form profile_summary(Time, Ticks)
+     * @param entries List of profile_entry/6 terms
+     * @return Profile report
+     */
+    public static ProfileReport fromTerms(Term succeeded, Term inferences,
+        Term summary, Term entries)
+    {
+        double time = summary.arg(1).doubleValue();
+        long ticks = summary.arg(2).longValue();
+        long timeNanos = (long) (time * 1e9);
+
+        List<PredicateProfile> predicates = new ArrayList<>();
+        for (Term entry : entries.toTermArray())
+        {
+            predicates.add(new PredicateProfile(
+                entry.arg(1).name(),
+                entry.arg(2).longValue(),
+                entry.arg(3).longValue(),
+                entry.arg(4).longValue(),
+                ticksToNanos(entry.arg(5).longValue(), ticks, timeNanos),
+                ticksToNanos(entry.arg(6).longValue(), ticks, timeNanos)
+            ));
+        }
+
+        return new ProfileReport("true".equals(succeeded.name()),
+            inferences.longValue(), timeNanos, predicates);
+    }
+
+    /**
+     * Apportion total profiled time by number of samples
+     * @param ticks Samples taken in the apportioned region
+     * @param totalTicks Samples taken over the profiled query
+     * @param totalNanos Time spent over the profiled query
+     * @return Apportioned time
+     */
+    private static long ticksToNanos(long ticks, long totalTicks, long totalNanos)
+    {
+        return totalTicks == 0 ? 0 : (long) ((double) ticks / totalTicks * totalNanos);
+    }
+
+    /**
+     * Getter.
+     * @return True if the profiled query was provable
+     */
+    public boolean isSucceeded()
+    {
+        return succeeded;
+    }
+
+    /**
+     * Getter.
+     * @return Total inferences performed by the query
+     */
+    public long getInferences()
+    {
+        return inferences;
+    }
+
+    /**
+     * Getter.
+     * @return Total CPU time spent proving the query
+     */
+    public long getTimeNanos()
+    {
+        return timeNanos;
+    }
+
+    /**
+     * Get the profiles of all predicates called while proving
+     * the query, in descending order of self time
+     * @return Unmodifiable list of predicate profiles
+     */
+    public List<PredicateProfile> getPredicates()
+    {
+        return predicates;
+    }
+
+    /**
+     * Get the profile of the predicate with the given indicator
+     * @param predicate Predicate indicator (e.g. module:name/arity)
+     * @return Predicate profile, or null if the predicate was not called
+     */
+    public PredicateProfile getPredicate(String predicate)
+    {
+        for (PredicateProfile profile : predicates)
+        {
+            if (profile.getPredicate().equals(predicate))
+            {
+                return profile;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(String.format(
+            "succeeded=%b inferences=%d time=%dns", succeeded, inferences, timeNanos));
+        for (PredicateProfile profile : predicates)
+        {
+            builder.append(System.lineSeparator()).append("  ").append(profile);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query;
+
+/**
+ * Decoder of numeric solutions gathered by
+ * mochalog:numeric_solutions/4, in which each value is written
+ * followed by a single space. Values are parsed directly into
+ * primitive arrays without constructing intermediate terms.
+ */
+public final class NumericSolutions
+{
+    /**
+     * Constructor.
+     */
+    private NumericSolutions()
+    {
+
+    }
+
+    /**
+     * Decode integer solutions
+     * @param values Encoded solution values
+     * @return Solution values
+     * @throws ArithmeticException Value exceeds the range of int
+     * @throws NumberFormatException Values are not integers
+     */
+    public static int[] decodeInts(String values)
+        throws ArithmeticException, NumberFormatException
+    {
+        int[] decoded = new int[count(values)];
+        for (int i = 0, start = 0; i < decoded.length; ++i)
+        {
+            int end = values.indexOf(' ', start);
+            decoded[i] = Math.toIntExact(parseLong(values, start, end));
+            start = end + 1;
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Decode integer solutions
+     * @param values Encoded solution values
+     * @return Solution values
+     * @throws ArithmeticException Value exceeds the range of long
+     * @throws NumberFormatException Values are not integers
+     */
+    public static long[] decodeLongs(String values)
+        throws ArithmeticException, NumberFormatException
+    {
+        long[] decoded = new long[count(values)];
+        for (int i = 0, start = 0; i < decoded.length; ++i)
+        {
+            int end = values.indexOf(' ', start);
+            decoded[i] = parseLong(values, start, end);
+            start = end + 1;
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Decode floating point solutions
+     * @param values Encoded solution values
+     * @return Solution values
+     * @throws NumberFormatException Values are not floats
+     */
+    public static double[] decodeDoubles(String values)
+        throws NumberFormatException
+    {
+        double[] decoded = new double[count(values)];
+        for (int i = 0, start = 0; i < decoded.length; ++i)
+        {
+            int end = values.indexOf(' ', start);
+            decoded[i] = parseDouble(values, start, end);
+            start = end + 1;
+        }
+
+        return decoded;
+    }
+
+    /**
+     * Count the number of encoded values
+     * @param values Encoded solution values
+     * @return Number of values
+     */
+    private static int count(String values)
+    {
+        int count = 0;
+        for (int i = 0; i < values.length(); ++i)
+        {
+            if (values.charAt(i) == ' ')
+            {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Parse an integer from a region of text
+     * @param text Text to parse
+     * @param start Start index (inclusive)
+     * @param end End index (exclusive)
+     * @return Parsed integer
+     * @throws ArithmeticException Value exceeds the range of long
+     * @throws NumberFormatException Region is not an integer
+     */
+    private static long parseLong(String text, int start, int end)
+        throws ArithmeticException, NumberFormatException
+    {
+        boolean negative = text.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end)
+        {
+            throw new NumberFormatException("Expected integer solution but got " +
+                text.substring(start, end));
+        }
+
+        // Accumulate negatively to permit Long.MIN_VALUE
+        long value = 0;
+        for (; i < end; ++i)
+        {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0)
+            {
+                throw new NumberFormatException("Expected integer solution but got " +
+                    text.substring(start, end));
+            }
+
+            value = Math.subtractExact(Math.multiplyExact(value, 10), digit);
+        }
+
+        return negative ? value : Math.negateExact(value);
+    }
+
+    /**
+     * Parse a float from a region of text, accepting
+     * the SWI-Prolog representations of infinity and NaN
+     * @param text Text to parse
+     * @param start Start index (inclusive)
+     * @param end End index (exclusive)
+     * @return Parsed float
+     * @throws NumberFormatException Region is not a float
+     */
+    private static double parseDouble(String text, int start, int end)
+        throws NumberFormatException
+    {
+        boolean negative = text.charAt(start) == '-';
+        if (text.regionMatches(true, end - 3, "inf", 0, 3))
+        {
+            // inf or 1.0Inf
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        else if (text.regionMatches(true, end - 3, "nan", 0, 3))
+        {
+            // nan or 1.5NaN
+            return Double.NaN;
+        }
+
+        return Double.parseDouble(text.substring(start, end));
+    }
+}
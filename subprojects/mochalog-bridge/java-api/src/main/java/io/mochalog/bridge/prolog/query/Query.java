@@ -16,10 +16,19 @@
 
 package io.mochalog.bridge.prolog.query;
 
+import io.mochalog.bridge.prolog.handle.ObjectHandle;
 import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.Metrics;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
+import io.mochalog.bridge.prolog.runtime.ResourceLimits;
 
 import io.mochalog.util.format.AbstractFormatter;
 
+import org.jpl7.Atom;
+import org.jpl7.Term;
+
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,18 +39,20 @@ import java.util.regex.Pattern;
  */
 public class Query
 {
+    // Pattern corresponding to an ordering key, being a variable
+    // name optionally wrapped in asc/1 or desc/1, capturing
+    // the variable name of unwrapped keys
+    private static final Pattern ORDER_KEY_PATTERN =
+        Pattern.compile("(?:asc|desc)\\(\\s*[A-Z_]\\w*\\s*\\)|([A-Z_]\\w*)");
+
     /**
      * Formatter of Prolog query strings using substitution rules
      * and domain-specific syntax
      */
     public static class Formatter extends AbstractFormatter
     {
-        // Pattern corresponding to a Prolog compound structure
-        // e.g. atom(arg1, arg2, ...)
-        private final Pattern COMPOUND_PATTERN;
-        // Syntactical representation of replacement of an
-        // existing term for a new given term
-        private final Pattern TERM_SETTER_PATTERN;
+        // Formatter shared between threads for default rules
+        private static final Formatter SHARED = new Formatter();
 
         /**
          * Constructor.
@@ -56,62 +67,30 @@ public class Query
             setRule("S", (i, o) -> "\"" + String.valueOf(o) + "\"");
             // Prolog integer
             setRule("I", Formatter::formatInteger);
+            // Opaque reference to a Java object
+            setRule("H", Formatter::formatHandle);
+            // Prolog list of a Java array or iterable
+            setRule("L", Formatter::formatList);
+            // Prolog list of Key-Value pairs of a Java map
+            setRule("M", Formatter::formatMap);
+        }
 
-            // Basic regex pattern defining a Prolog compound
-            COMPOUND_PATTERN = Pattern.compile("\\w+\\([^(]*\\)");
-
-            // Basic regex capturing most Prolog term instances
-            // (integers, floats, strings, atoms)
-            // TODO: Not a robust grammar definition of a Prolog term
-            final String TERM_DEFINITION = "\\w+|[0-9]+.[0-9]|\"[^\"]*\"";
-            // Rule of the form <PREVIOUS_VALUE> <- <NEW_VALUE>
-            // Allows Prolog term data (PREVIOUS_VALUE) to be replaced with NEW_VALUE within
-            // a query
-            TERM_SETTER_PATTERN = Pattern.compile(
-                String.format("(%1$s)\\s*<-\\s*(%1$s)", TERM_DEFINITION)
-            );
+        /**
+         * Get a formatter with the default rules which may be
+         * shared between threads (rules should not be modified)
+         * @return Shared formatter
+         */
+        public static Formatter getShared()
+        {
+            return SHARED;
         }
 
         @Override
         public String format(String str, Object... args) throws IllegalFormatException
         {
-            String formattedStr = super.format(str, args);
-
-            StringBuffer queryBuffer = new StringBuffer();
-            Matcher compoundMatcher = COMPOUND_PATTERN.matcher(formattedStr);
-
-            // Query compound terms placed at end of resultant query
-            // to facilitate replacement of specified values
-            StringBuilder setterCompounds = new StringBuilder();
-
-            // Find instances of compounds in the query string
-            while (compoundMatcher.find())
-            {
-                String compound = compoundMatcher.group();
-                // Run a regex query over the query compound, looking
-                // for instances of setter syntax
-                Matcher setterMatcher = TERM_SETTER_PATTERN.matcher(compound);
-
-                // Check for instances of setter syntax
-                if (setterMatcher.find())
-                {
-                    // Existing version of the compound term will be solely
-                    // constructed of 'previousValue' terms
-                    String previousCompound = setterMatcher.replaceAll("$1");
-                    // New version will be solely constructed of 'newValue' terms
-                    String newCompound = setterMatcher.replaceAll("$2");
-
-                    compoundMatcher.appendReplacement(queryBuffer,
-                        Matcher.quoteReplacement(previousCompound));
-
-                    // Add the necessary setter constructs to the end of the query
-                    setterCompounds.append(", retractall(").append(previousCompound).append(")");
-                    setterCompounds.append(", assertz(").append(newCompound).append(")");
-                }
-            }
-
-            compoundMatcher.appendTail(queryBuffer);
-            return queryBuffer.toString() + setterCompounds.toString();
+            // Substitution and setter expansion are performed in a
+            // single scan which respects quoting and compound nesting
+            return QueryScanner.format(this::applyRule, str, args);
         }
 
         /**
@@ -141,18 +120,111 @@ public class Query
                 return String.valueOf(intValue);
             }
         }
+
+        /**
+         * Format a given array or iterable argument into
+         * a Prolog list
+         * @param identifier Rule identifier
+         * @param o Object substitution argument
+         * @return Formatted list replacement string
+         * @throws IllegalFormatException Given object is not
+         * an array or iterable
+         */
+        private static String formatList(String identifier, Object o)
+            throws IllegalFormatException
+        {
+            if (!isList(o))
+            {
+                throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+            }
+
+            return TermMarshaller.toText(o);
+        }
+
+        /**
+         * Format a given map argument into a Prolog list
+         * of Key-Value pairs
+         * @param identifier Rule identifier
+         * @param o Object substitution argument
+         * @return Formatted pair list replacement string
+         * @throws IllegalFormatException Given object is not a map
+         */
+        private static String formatMap(String identifier, Object o)
+            throws IllegalFormatException
+        {
+            if (!(o instanceof Map))
+            {
+                throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+            }
+
+            return TermMarshaller.toText(o);
+        }
+
+        /**
+         * Format a given object handle argument into its
+         * Prolog term representation
+         * @param identifier Rule identifier
+         * @param o Object substitution argument
+         * @return Formatted handle replacement string
+         * @throws IllegalFormatException Given object is not
+         * an object handle
+         */
+        private static String formatHandle(String identifier, Object o)
+            throws IllegalFormatException
+        {
+            if (!(o instanceof ObjectHandle))
+            {
+                throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+            }
+
+            return o.toString();
+        }
     }
 
     // String form of Prolog query
     private final String text;
+    // Unformatted query text the query was formatted from
+    private final String template;
+    // Substitution arguments applied to the template
+    private final Object[] arguments;
+    // Terms bound to ? placeholders in the query text
+    // (null if the query is not parameterised)
+    private final Term[] parameters;
 
     /**
      * Constructor.
      * @param text Query string
      */
     public Query(String text)
+    {
+        this(text, text, new Object[0]);
+    }
+
+    /**
+     * Constructor.
+     * @param text Query string
+     * @param template Unformatted query text
+     * @param arguments Substitution arguments applied to template
+     */
+    public Query(String text, String template, Object[] arguments)
+    {
+        this(text, template, arguments, null);
+    }
+
+    /**
+     * Constructor.
+     * @param text Query string containing ? placeholders
+     * @param template Unformatted query text
+     * @param arguments Substitution arguments applied to template
+     * @param parameters Terms bound to placeholders (null if
+     * query is not parameterised)
+     */
+    public Query(String text, String template, Object[] arguments, Term[] parameters)
     {
         this.text = text;
+        this.template = template;
+        this.arguments = arguments;
+        this.parameters = parameters;
     }
 
     /**
@@ -165,18 +237,310 @@ public class Query
         return text;
     }
 
+    /**
+     * Get the unformatted query text from which the
+     * query was formulated
+     * @return Query template
+     */
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Get the substitution arguments applied to the
+     * query template
+     * @return Substitution arguments
+     */
+    public Object[] getArguments()
+    {
+        return arguments.clone();
+    }
+
+    /**
+     * Check whether the query binds terms to ? placeholders
+     * rather than embedding arguments in the query text
+     * @return True if parameterised, false otherwise.
+     */
+    public boolean isParameterised()
+    {
+        return parameters != null;
+    }
+
+    /**
+     * Get the terms bound to ? placeholders in the query text
+     * @return Parameter terms (null if query is not parameterised)
+     */
+    public Term[] getParameters()
+    {
+        return parameters == null ? null : parameters.clone();
+    }
+
+    /**
+     * Derive a query yielding the solutions to the current query
+     * ordered by the given keys (order_by/2). Each key is a variable
+     * name, ordered ascending, or a variable name wrapped in asc/1
+     * or desc/1, with earlier keys taking precedence.
+     * @param keys Ordering keys
+     * @return Ordered query
+     * @throws IllegalArgumentException No keys given or
+     * invalid key
+     */
+    public Query orderBy(String... keys) throws IllegalArgumentException
+    {
+        if (keys.length == 0)
+        {
+            throw new IllegalArgumentException("Ordering requires at least one key.");
+        }
+
+        StringJoiner specs = new StringJoiner(", ", "[", "]");
+        for (String key : keys)
+        {
+            Matcher matcher = ORDER_KEY_PATTERN.matcher(key.trim());
+            if (!matcher.matches())
+            {
+                throw new IllegalArgumentException("Invalid ordering key " + key);
+            }
+
+            // Bare variables are ordered ascending
+            specs.add(matcher.group(1) != null ?
+                "asc(" + matcher.group(1) + ")" :
+                matcher.group());
+        }
+
+        return wrap("order_by(" + specs + ", ");
+    }
+
+    /**
+     * Derive a query yielding only the first of the solutions to
+     * the current query with equal bindings (distinct/1)
+     * @return Distinct query
+     */
+    public Query distinct()
+    {
+        return wrap("distinct(");
+    }
+
+    /**
+     * Derive a query yielding only the first of the solutions to
+     * the current query with equal bindings of the given
+     * witness term (distinct/2)
+     * @param witness Prolog term whose bindings must be distinct
+     * @return Distinct query
+     */
+    public Query distinct(String witness)
+    {
+        return wrap("distinct((" + witness + "), ");
+    }
+
+    /**
+     * Derive a query yielding at most the given number of the
+     * solutions to the current query (limit/2)
+     * @param count Maximum number of solutions
+     * @return Limited query
+     * @throws IllegalArgumentException Negative count
+     */
+    public Query limit(long count) throws IllegalArgumentException
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("Query limit must not be negative.");
+        }
+
+        return wrap("limit(" + count + ", ");
+    }
+
+    /**
+     * Derive a query skipping the given number of the
+     * solutions to the current query (offset/2)
+     * @param count Number of solutions to skip
+     * @return Offset query
+     * @throws IllegalArgumentException Negative count
+     */
+    public Query offset(long count) throws IllegalArgumentException
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("Query offset must not be negative.");
+        }
+
+        return wrap("offset(" + count + ", ");
+    }
+
+    /**
+     * Derive a query whose text wraps that of the current query,
+     * without reformatting it, in a solution sequence predicate
+     * @param prefix Text preceding the parenthesised query
+     * text, up to and including the final argument separator
+     * @return Derived query
+     */
+    private Query wrap(String prefix)
+    {
+        return new Query(prefix + "(" + text + "))", template, arguments, parameters);
+    }
+
     /**
      * Formulate a query based on a format string
-     * and substitution arguments
+     * and substitution arguments. Formatting is timed
+     * against the process-wide metrics (see {@link Metrics}).
      * @param query Formatted query string
      * @param args Query arguments
      * @return Query object
      */
     public static Query format(String query, Object... args)
     {
-        Formatter formatter = new Formatter();
-        String formattedQuery = formatter.format(query, args);
-        return new Query(formattedQuery);
+        return format(Metrics.get(), query, args);
+    }
+
+    /**
+     * Formulate a query based on a format string
+     * and substitution arguments, timing formatting
+     * against the given metrics
+     * @param metrics Metrics to report the format phase to
+     * @param query Formatted query string
+     * @param args Query arguments
+     * @return Query object
+     */
+    public static Query format(QueryMetrics metrics, String query, Object... args)
+    {
+        PhaseTimer timer = metrics.startPhase(QueryPhase.FORMAT, query, null);
+        String formattedQuery;
+        try
+        {
+            formattedQuery = Formatter.getShared().format(query, args);
+        }
+        finally
+        {
+            timer.stop(0);
+        }
+
+        return new Query(formattedQuery, query, args);
+    }
+
+    /**
+     * Formulate a parameterised query based on a format string
+     * and substitution arguments. Each substitution rule is
+     * replaced with a ? placeholder and its argument is passed to
+     * the interpreter as a term, so the query text remains constant
+     * for a given template and arguments never create atoms
+     * (beyond those requested with @A).
+     * <p>
+     * Supports the @A (atom), @S (string), @I (integer), @H
+     * (object handle), @T (org.jpl7.Term), @L (list of a Java array
+     * or iterable) and @M (Key-Value pair list of a Java map) rules.
+     * Lists and maps are converted directly into terms (see
+     * TermMarshaller) rather than parsed from text. Rules within
+     * quoted atoms and strings are left as written. Setter syntax
+     * is not supported, and literal ? atoms must not appear in the
+     * template. Formatting is timed against the process-wide
+     * metrics (see {@link Metrics}).
+     * @param query Formatted query string
+     * @param args Query arguments
+     * @return Query object
+     * @throws IllegalFormatException Unable to convert argument
+     * according to its rule, or the number of rules and
+     * arguments differ
+     */
+    public static Query parameterise(String query, Object... args)
+        throws IllegalFormatException
+    {
+        return parameterise(Metrics.get(), query, args);
+    }
+
+    /**
+     * Formulate a parameterised query based on a format string
+     * and substitution arguments (see {@link #parameterise(String, Object...)}),
+     * timing formatting against the given metrics
+     * @param metrics Metrics to report the format phase to
+     * @param query Formatted query string
+     * @param args Query arguments
+     * @return Query object
+     * @throws IllegalFormatException Unable to convert argument
+     * according to its rule, or the number of rules and
+     * arguments differ
+     */
+    public static Query parameterise(QueryMetrics metrics, String query, Object... args)
+        throws IllegalFormatException
+    {
+        PhaseTimer timer = metrics.startPhase(QueryPhase.FORMAT, query, null);
+        List<Term> parameters = new ArrayList<>();
+        String text;
+        try
+        {
+            text = QueryScanner.parameterise(Query::toParameter, query, args, parameters);
+        }
+        finally
+        {
+            timer.stop(0);
+        }
+
+        return new Query(text, query, args,
+            parameters.toArray(new Term[parameters.size()]));
+    }
+
+    /**
+     * Convert a substitution argument into the term bound
+     * to its placeholder
+     * @param identifier Rule identifier
+     * @param o Object substitution argument
+     * @return Parameter term
+     * @throws IllegalFormatException Unable to convert argument
+     */
+    private static Term toParameter(String identifier, Object o)
+        throws IllegalFormatException
+    {
+        switch (identifier)
+        {
+            case "A":
+                return new Atom(String.valueOf(o));
+            case "S":
+                // Prolog strings are not interned in the atom table
+                return new Atom(String.valueOf(o), "string");
+            case "I":
+                if (!(o instanceof Number))
+                {
+                    throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+                }
+                return new org.jpl7.Integer(((Number) o).longValue());
+            case "H":
+                if (!(o instanceof ObjectHandle))
+                {
+                    throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+                }
+                return ((ObjectHandle) o).toTerm();
+            case "T":
+                if (!(o instanceof Term))
+                {
+                    throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+                }
+                return (Term) o;
+            case "L":
+                if (!isList(o))
+                {
+                    throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+                }
+                return TermMarshaller.toTerm(o);
+            case "M":
+                if (!(o instanceof Map))
+                {
+                    throw new IllegalFormatConversionException(identifier.charAt(0), o.getClass());
+                }
+                return TermMarshaller.toTerm(o);
+            default:
+                throw new UnknownFormatConversionException("Formatting rule not available " +
+                    "corresponding to given identifier " + identifier);
+        }
+    }
+
+    /**
+     * Check whether a substitution argument may be
+     * converted into a Prolog list
+     * @param o Object substitution argument
+     * @return True if an array or iterable, false otherwise.
+     */
+    private static boolean isList(Object o)
+    {
+        return o instanceof Iterable || o.getClass().isArray();
     }
 
     /**
@@ -193,6 +557,33 @@ public class Query
             String.format("%s:(%s)", module.getName(), query.toString());
     }
 
+    /**
+     * Generate a string form of the given query text which
+     * is proved against a snapshot of the database, isolating
+     * it from concurrent modifications
+     * @param text Query text to convert
+     * @return Transformed query string
+     */
+    public static String runnableInSnapshot(String text)
+    {
+        return String.format("mochalog:snapshot_solutions((%s))", text);
+    }
+
+    /**
+     * Generate a string form of the given query text which
+     * is proved under the given resource limits
+     * @param text Query text to convert
+     * @param limits Limits to apply (null if unlimited)
+     * @return Transformed query string
+     */
+    public static String runnableWithLimits(String text, ResourceLimits limits)
+    {
+        return limits == null || limits.isUnlimited() ?
+            text :
+            String.format("mochalog:with_resource_limits(%d, %d, (%s))",
+                limits.getStackLimit(), limits.getTableSpace(), text);
+    }
+
     @Override
     public final boolean equals(Object o)
     {
@@ -207,7 +598,8 @@ public class Query
         {
             Query query = (Query) o;
             // Field comparisons
-            return Objects.equals(text, query.text);
+            return Objects.equals(text, query.text) &&
+                Arrays.equals(parameters, query.parameters);
         }
 
         return false;
@@ -216,6 +608,6 @@ public class Query
     @Override
     public int hashCode()
     {
-        return Objects.hashCode(text);
+        return 31 * Objects.hashCode(text) + Arrays.hashCode(parameters);
     }
 }
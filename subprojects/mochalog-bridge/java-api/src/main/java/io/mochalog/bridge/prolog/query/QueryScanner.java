@@ -0,0 +1,680 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query;
+
+import io.mochalog.util.format.FormattingRule;
+
+import org.jpl7.Term;
+
+import java.util.ArrayList;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+import java.util.UnknownFormatConversionException;
+import java.util.function.BiFunction;
+
+/**
+ * Single-pass formatter of Prolog query text, substituting
+ * @ rules and expanding setter syntax (Previous &lt;- New) in
+ * one scan.
+ * <p>
+ * Rules are substituted lazily as the template is consumed, so
+ * substituted text is tokenized as query syntax but is never itself
+ * substituted. Quoted atoms, strings and character codes are treated
+ * as single tokens, and compounds are tracked by nesting so that
+ * setters apply to the innermost compound containing them. Scanner
+ * state is confined to a thread and reused between calls.
+ */
+final class QueryScanner
+{
+    /**
+     * Text of a compound (or parenthesised group) being
+     * scanned, in its previous and updated forms
+     */
+    private static final class Frame
+    {
+        // Text with setters replaced by previous values
+        private final StringBuilder previous = new StringBuilder();
+        // Text with setters replaced by new values
+        private final StringBuilder next = new StringBuilder();
+        // Flag indicating whether the frame is a compound
+        // (rather than a parenthesised group)
+        private boolean isCompound;
+        // Flag indicating whether the frame contains a setter
+        private boolean hasSetter;
+        // Offsets of the last scanned term in each form
+        // (-1 if the last token was not a term)
+        private int termStartPrevious;
+        private int termStartNext;
+
+        /**
+         * Prepare the frame for reuse
+         * @param isCompound True if frame is a compound,
+         * false otherwise.
+         */
+        private void reset(boolean isCompound)
+        {
+            previous.setLength(0);
+            next.setLength(0);
+            this.isCompound = isCompound;
+            hasSetter = false;
+            clearTerm();
+        }
+
+        /**
+         * Append text to both forms of the frame
+         * @param text Text to append
+         */
+        private void append(CharSequence text)
+        {
+            previous.append(text);
+            next.append(text);
+        }
+
+        /**
+         * Mark the next appended text as a term
+         */
+        private void markTerm()
+        {
+            termStartPrevious = previous.length();
+            termStartNext = next.length();
+        }
+
+        /**
+         * Mark the last appended text as not a term
+         */
+        private void clearTerm()
+        {
+            termStartPrevious = -1;
+            termStartNext = -1;
+        }
+    }
+
+    // Length of text above which scanner buffers are
+    // discarded rather than retained for reuse
+    private static final int RETAINED_CAPACITY = 1 << 16;
+
+    // Scanner reused by each thread
+    private static final ThreadLocal<QueryScanner> SCANNERS =
+        ThreadLocal.withInitial(QueryScanner::new);
+
+    // Nested frames (index 0 being the query itself) - retained
+    // beyond the current depth for reuse
+    private final List<Frame> frames = new ArrayList<>();
+    private int depth = -1;
+    // Substituted text awaiting tokenization
+    private final StringBuilder source = new StringBuilder();
+    private int cursor;
+    // Token currently being scanned
+    private final StringBuilder token = new StringBuilder();
+    // Whitespace preceding the current token
+    private final StringBuilder whitespace = new StringBuilder();
+    // Text of a setter arrow awaiting its new value
+    private final StringBuilder arrow = new StringBuilder();
+    private boolean arrowPending;
+    // Setter goals appended to the query
+    private final StringBuilder setters = new StringBuilder();
+    // Flag indicating whether the scanner is in use (guards
+    // against re-entrant formatting from within rules)
+    private boolean inUse;
+
+    // Template being formatted and its substitution arguments
+    private String template;
+    private int position;
+    private Object[] args;
+    private int argIndex;
+    private FormattingRule rules;
+
+    /**
+     * Format a query template using the scanner of the
+     * calling thread
+     * @param rules Rules applied to substitution identifiers
+     * and their arguments
+     * @param template Query template
+     * @param args Substitution arguments
+     * @return Formatted query text
+     * @throws IllegalFormatException Unable to apply a substitution rule
+     */
+    static String format(FormattingRule rules, String template, Object[] args)
+        throws IllegalFormatException
+    {
+        QueryScanner scanner = SCANNERS.get();
+        if (scanner.inUse)
+        {
+            // Re-entrant formatting - avoid corrupting
+            // the in-progress scan
+            scanner = new QueryScanner();
+        }
+
+        scanner.inUse = true;
+        try
+        {
+            return scanner.scan(rules, template, args);
+        }
+        finally
+        {
+            scanner.release();
+        }
+    }
+
+    /**
+     * Parameterise a query template, replacing each rule outside
+     * of quoted text with a ? placeholder whose term is derived
+     * from the corresponding argument. Quoted atoms, strings and
+     * character codes are left as written.
+     * @param rules Conversion of rule identifiers and their
+     * arguments into placeholder terms
+     * @param template Query template
+     * @param args Substitution arguments
+     * @param parameters List to append placeholder terms to
+     * @return Parameterised query text
+     * @throws IllegalFormatException Unable to convert an argument,
+     * or the number of rules and arguments differ
+     */
+    static String parameterise(BiFunction<String, Object, Term> rules, String template,
+        Object[] args, List<Term> parameters) throws IllegalFormatException
+    {
+        StringBuilder text = new StringBuilder(template.length());
+        int argIndex = 0;
+        int position = 0;
+        while (position < template.length())
+        {
+            char c = template.charAt(position);
+            int end = position + 1;
+            if (c == '\'' || c == '"' || c == '`')
+            {
+                end = skipQuoted(template, position);
+            }
+            else if (c == '@' && end < template.length() && isWordCharacter(template.charAt(end)))
+            {
+                while (end < template.length() && isWordCharacter(template.charAt(end)))
+                {
+                    ++end;
+                }
+
+                String rule = template.substring(position + 1, end);
+                if (argIndex == args.length)
+                {
+                    throw new MissingFormatArgumentException("@" + rule);
+                }
+
+                parameters.add(rules.apply(rule, args[argIndex++]));
+                text.append('?');
+                position = end;
+                continue;
+            }
+            else if (isWordCharacter(c))
+            {
+                while (end < template.length() && isWordCharacter(template.charAt(end)))
+                {
+                    ++end;
+                }
+
+                if (c == '0' && end == position + 1 && end + 1 < template.length() &&
+                    template.charAt(end) == '\'')
+                {
+                    // Character code (e.g. 0'a or 0'\n) does not open quoted text
+                    end += 2;
+                    if (template.charAt(end - 1) == '\\' && end < template.length())
+                    {
+                        ++end;
+                    }
+                }
+            }
+
+            text.append(template, position, end);
+            position = end;
+        }
+
+        if (argIndex < args.length)
+        {
+            throw new UnknownFormatConversionException("No rule corresponding to " +
+                (args.length - argIndex) + " trailing argument(s)");
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Find the end of quoted text within a template
+     * @param template Query template
+     * @param start Offset of the opening quote
+     * @return Offset following the closing quote (or the
+     * end of the template given the quote is unterminated)
+     */
+    private static int skipQuoted(String template, int start)
+    {
+        char quote = template.charAt(start);
+        int position = start + 1;
+        while (position < template.length())
+        {
+            char c = template.charAt(position++);
+            if (c == '\\' && position < template.length())
+            {
+                // Escaped character
+                ++position;
+            }
+            else if (c == quote)
+            {
+                if (position == template.length() || template.charAt(position) != quote)
+                {
+                    return position;
+                }
+                // Doubled quote continues quoted text
+                ++position;
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * Scan a query template
+     * @param rules Rules applied to substitution identifiers
+     * and their arguments
+     * @param template Query template
+     * @param args Substitution arguments
+     * @return Formatted query text
+     */
+    private String scan(FormattingRule rules, String template, Object[] args)
+    {
+        this.rules = rules;
+        this.template = template;
+        this.args = args;
+        push(false);
+
+        int c;
+        while ((c = peek(0)) != -1)
+        {
+            if (Character.isWhitespace(c))
+            {
+                whitespace.append((char) c);
+                ++cursor;
+            }
+            else if (c == '\'' || c == '"' || c == '`')
+            {
+                scanQuoted((char) c);
+                emitTerm();
+            }
+            else if (isWordCharacter(c))
+            {
+                scanWord();
+                if (peek(0) == '(')
+                {
+                    ++cursor;
+                    openCompound();
+                }
+                else
+                {
+                    emitTerm();
+                }
+            }
+            else if (c == '(')
+            {
+                ++cursor;
+                token.setLength(0);
+                token.append('(');
+                emitOther();
+                push(false);
+            }
+            else if (c == ')')
+            {
+                ++cursor;
+                close();
+            }
+            else if (c == '<' && peek(1) == '-' && isSetterAvailable())
+            {
+                cursor += 2;
+                arrow.setLength(0);
+                arrow.append(whitespace).append("<-");
+                whitespace.setLength(0);
+                arrowPending = true;
+            }
+            else
+            {
+                ++cursor;
+                token.setLength(0);
+                token.append((char) c);
+                emitOther();
+            }
+        }
+
+        restoreArrow();
+        // Unbalanced compounds are left as scanned
+        while (depth > 0)
+        {
+            Frame frame = pop();
+            frames.get(depth).append(frame.previous);
+        }
+
+        Frame query = frames.get(0);
+        query.previous.append(whitespace).append(setters);
+        return query.previous.toString();
+    }
+
+    /**
+     * Reset the scanner for reuse, discarding buffers
+     * grown by exceptionally long queries
+     */
+    private void release()
+    {
+        boolean oversized = source.length() > RETAINED_CAPACITY;
+
+        source.setLength(0);
+        cursor = 0;
+        token.setLength(0);
+        whitespace.setLength(0);
+        arrow.setLength(0);
+        arrowPending = false;
+        setters.setLength(0);
+        depth = -1;
+        template = null;
+        position = 0;
+        args = null;
+        argIndex = 0;
+        rules = null;
+        inUse = false;
+
+        if (oversized)
+        {
+            SCANNERS.remove();
+        }
+    }
+
+    /**
+     * Get a character of the substituted text, substituting
+     * further rules from the template as necessary
+     * @param offset Offset from the cursor
+     * @return Character, or -1 if the end of text is reached
+     */
+    private int peek(int offset)
+    {
+        while (source.length() - cursor <= offset && position < template.length())
+        {
+            char c = template.charAt(position);
+            if (c == '@' && argIndex < args.length &&
+                position + 1 < template.length() &&
+                isWordCharacter(template.charAt(position + 1)))
+            {
+                int ruleEnd = position + 1;
+                while (ruleEnd < template.length() && isWordCharacter(template.charAt(ruleEnd)))
+                {
+                    ++ruleEnd;
+                }
+
+                String rule = template.substring(position + 1, ruleEnd);
+                source.append(rules.apply(rule, args[argIndex++]));
+                position = ruleEnd;
+            }
+            else
+            {
+                source.append(c);
+                ++position;
+            }
+        }
+
+        int index = cursor + offset;
+        return index < source.length() ? source.charAt(index) : -1;
+    }
+
+    /**
+     * Scan a quoted atom, string or back-quoted text
+     * into the current token
+     * @param quote Quote character
+     */
+    private void scanQuoted(char quote)
+    {
+        token.setLength(0);
+        token.append(quote);
+        ++cursor;
+
+        int c;
+        while ((c = peek(0)) != -1)
+        {
+            token.append((char) c);
+            ++cursor;
+
+            if (c == '\\' && peek(0) != -1)
+            {
+                // Escaped character
+                token.append((char) peek(0));
+                ++cursor;
+            }
+            else if (c == quote)
+            {
+                if (peek(0) != quote)
+                {
+                    return;
+                }
+                // Doubled quote continues quoted text
+                token.append(quote);
+                ++cursor;
+            }
+        }
+    }
+
+    /**
+     * Scan a word (atom, variable or number) into the
+     * current token
+     */
+    private void scanWord()
+    {
+        token.setLength(0);
+        while (isWordCharacter(peek(0)))
+        {
+            token.append((char) peek(0));
+            ++cursor;
+        }
+
+        if (isDigits(token))
+        {
+            if (token.length() == 1 && token.charAt(0) == '0' && peek(0) == '\'' && peek(1) != -1)
+            {
+                // Character code (e.g. 0'a or 0'\\n)
+                token.append('\'').append((char) peek(1));
+                cursor += 2;
+                if (token.charAt(2) == '\\' && peek(0) != -1)
+                {
+                    token.append((char) peek(0));
+                    ++cursor;
+                }
+            }
+            else if (peek(0) == '.' && Character.isDigit(peek(1)))
+            {
+                // Fractional part (and exponent) of float
+                token.append('.');
+                ++cursor;
+                while (isWordCharacter(peek(0)))
+                {
+                    token.append((char) peek(0));
+                    ++cursor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Emit the current token as a term, completing a
+     * pending setter given one was started
+     */
+    private void emitTerm()
+    {
+        Frame frame = frames.get(depth);
+        if (arrowPending)
+        {
+            arrowPending = false;
+            // Replace the previous value with the new value in
+            // the updated form of the compound only
+            frame.next.setLength(frame.termStartNext);
+            frame.next.append(token);
+            frame.hasSetter = true;
+            frame.clearTerm();
+            whitespace.setLength(0);
+            return;
+        }
+
+        frame.append(whitespace);
+        whitespace.setLength(0);
+        frame.markTerm();
+        frame.append(token);
+    }
+
+    /**
+     * Emit the current token as punctuation
+     */
+    private void emitOther()
+    {
+        restoreArrow();
+        Frame frame = frames.get(depth);
+        frame.append(whitespace);
+        whitespace.setLength(0);
+        frame.append(token);
+        frame.clearTerm();
+    }
+
+    /**
+     * Open a compound whose name is the current token
+     */
+    private void openCompound()
+    {
+        restoreArrow();
+        Frame parent = frames.get(depth);
+        parent.append(whitespace);
+        whitespace.setLength(0);
+        parent.clearTerm();
+
+        Frame frame = push(true);
+        frame.append(token);
+        frame.append("(");
+    }
+
+    /**
+     * Close the innermost compound or group, generating
+     * its setter goal given it contains setters
+     */
+    private void close()
+    {
+        restoreArrow();
+        if (depth == 0)
+        {
+            // Unbalanced parenthesis
+            token.setLength(0);
+            token.append(')');
+            emitOther();
+            return;
+        }
+
+        Frame frame = pop();
+        frame.append(whitespace);
+        whitespace.setLength(0);
+        frame.append(")");
+
+        if (frame.hasSetter)
+        {
+            // Clauses are replaced in place by the Mochalog pack
+            // (resolved in the working module, as with import_file/2)
+            setters.append(", replace_clauses(").append(frame.previous)
+                .append(", ").append(frame.next).append(')');
+        }
+
+        // Compound is left in its previous form within the query
+        Frame parent = frames.get(depth);
+        parent.append(frame.previous);
+        parent.clearTerm();
+    }
+
+    /**
+     * Emit the text of a pending setter arrow which
+     * was not followed by a term
+     */
+    private void restoreArrow()
+    {
+        if (arrowPending)
+        {
+            arrowPending = false;
+            Frame frame = frames.get(depth);
+            frame.append(arrow);
+            frame.clearTerm();
+        }
+    }
+
+    /**
+     * Check whether a setter arrow at the cursor
+     * follows a term in a compound
+     * @return True if a setter may be started, false otherwise.
+     */
+    private boolean isSetterAvailable()
+    {
+        Frame frame = frames.get(depth);
+        return frame.isCompound && frame.termStartPrevious >= 0 && !arrowPending;
+    }
+
+    /**
+     * Enter a new frame
+     * @param isCompound True if frame is a compound, false otherwise.
+     * @return Entered frame
+     */
+    private Frame push(boolean isCompound)
+    {
+        ++depth;
+        if (depth == frames.size())
+        {
+            frames.add(new Frame());
+        }
+
+        Frame frame = frames.get(depth);
+        frame.reset(isCompound);
+        return frame;
+    }
+
+    /**
+     * Leave the current frame
+     * @return Left frame
+     */
+    private Frame pop()
+    {
+        return frames.get(depth--);
+    }
+
+    /**
+     * Check whether a character may form part of a word
+     * @param c Character (-1 at end of text)
+     * @return True if word character, false otherwise.
+     */
+    private static boolean isWordCharacter(int c)
+    {
+        return c != -1 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    /**
+     * Check whether text consists solely of digits
+     * @param text Text to check
+     * @return True if digits, false otherwise.
+     */
+    private static boolean isDigits(CharSequence text)
+    {
+        for (int i = 0; i < text.length(); ++i)
+        {
+            if (!Character.isDigit(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+
+        return text.length() > 0;
+    }
+}
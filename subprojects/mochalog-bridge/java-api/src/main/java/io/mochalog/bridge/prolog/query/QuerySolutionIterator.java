@@ -28,7 +28,7 @@ import java.util.NoSuchElementException;
  * Iterator over an ordered collection of solutions to a
  * Prolog query
  */
-public class QuerySolutionIterator implements Iterator<QuerySolution>
+public class QuerySolutionIterator implements Iterator<QuerySolution>, AutoCloseable
 {
     // Index of currently viewed solution
     private int index;
@@ -101,6 +101,16 @@ public class QuerySolutionIterator implements Iterator<QuerySolution>
         }
     }
 
+    /**
+     * Detach the underlying collector from the interpreter,
+     * ending iteration
+     */
+    @Override
+    public void close()
+    {
+        collector.detach();
+    }
+
     /**
      * Used for Java 7 compatibility
      * @throws UnsupportedOperationException Solutions should not be
@@ -34,6 +34,7 @@ import java.util.ListIterator;
  * of query solutions resulting from a query execution).
  */
 public class QuerySolutionList extends UnmodifiableList<QuerySolution>
+    implements AutoCloseable
 {
     // Interface for the accumulation of query solutions
     private QuerySolutionCollector collector;
@@ -142,6 +143,16 @@ public class QuerySolutionList extends UnmodifiableList<QuerySolution>
         }
     }
 
+    /**
+     * Detach the underlying collector from the interpreter.
+     * Solutions already fetched remain available.
+     */
+    @Override
+    public void close()
+    {
+        collector.detach();
+    }
+
     /**
      * Convenience method. Allows retrieval of the first
      * solution in the solution listing.
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query;
+
+import io.mochalog.bridge.prolog.handle.ObjectHandle;
+
+import org.jpl7.Atom;
+import org.jpl7.Compound;
+import org.jpl7.JPL;
+import org.jpl7.Term;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion of Java values (including arrays, collections,
+ * maps and nested combinations thereof) into Prolog terms, either
+ * directly as org.jpl7.Term instances or as Prolog query text.
+ * <p>
+ * Integral numbers become integers, floating point numbers floats,
+ * booleans the atoms true and false, text Prolog strings, object
+ * handles their handle terms, arrays and iterables lists, and maps
+ * lists of Key-Value pairs (text keys becoming atoms). Terms are
+ * passed through unchanged.
+ */
+public final class TermMarshaller
+{
+    // Name of Prolog list cells
+    private static final String LIST_PAIR = "[|]";
+    // Name of Prolog pairs
+    private static final String PAIR = "-";
+
+    /**
+     * Constructor.
+     */
+    private TermMarshaller()
+    {
+
+    }
+
+    /**
+     * Convert a Java value into a Prolog term
+     * @param value Java value
+     * @return Prolog term
+     * @throws IllegalArgumentException Value is null or of
+     * an unsupported type
+     */
+    public static Term toTerm(Object value) throws IllegalArgumentException
+    {
+        if (value instanceof Term)
+        {
+            return (Term) value;
+        }
+        else if (value instanceof ObjectHandle)
+        {
+            return ((ObjectHandle) value).toTerm();
+        }
+        else if (isIntegral(value))
+        {
+            return new org.jpl7.Integer(((Number) value).longValue());
+        }
+        else if (value instanceof BigInteger)
+        {
+            return new org.jpl7.Integer((BigInteger) value);
+        }
+        else if (value instanceof Double || value instanceof Float)
+        {
+            return new org.jpl7.Float(((Number) value).doubleValue());
+        }
+        else if (value instanceof Boolean)
+        {
+            return new Atom(value.toString());
+        }
+        else if (value instanceof CharSequence || value instanceof Character)
+        {
+            // Text is converted to Prolog strings to avoid
+            // growing the atom table
+            return new Atom(value.toString(), "string");
+        }
+        else if (value instanceof char[])
+        {
+            return new Atom(new String((char[]) value), "string");
+        }
+        else if (value instanceof Map)
+        {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Term[] pairs = new Term[map.size()];
+
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                pairs[i++] = toPair(entry);
+            }
+
+            return toList(pairs, i);
+        }
+        else if (value instanceof Map.Entry)
+        {
+            return toPair((Map.Entry<?, ?>) value);
+        }
+        else if (value != null && value.getClass().isArray())
+        {
+            // Primitive arrays are read through reflection
+            int length = Array.getLength(value);
+            Term[] elements = new Term[length];
+            for (int i = 0; i < length; ++i)
+            {
+                elements[i] = toTerm(Array.get(value, i));
+            }
+
+            return toList(elements, length);
+        }
+        else if (value instanceof Collection)
+        {
+            Collection<?> collection = (Collection<?>) value;
+            Term[] elements = new Term[collection.size()];
+
+            int i = 0;
+            for (Object element : collection)
+            {
+                elements[i++] = toTerm(element);
+            }
+
+            return toList(elements, i);
+        }
+        else if (value instanceof Iterable)
+        {
+            List<Term> elements = new ArrayList<>();
+            for (Object element : (Iterable<?>) value)
+            {
+                elements.add(toTerm(element));
+            }
+
+            return toList(elements.toArray(new Term[elements.size()]), elements.size());
+        }
+
+        throw new IllegalArgumentException("Unable to convert value " +
+            (value == null ? "null" : "of type " + value.getClass().getName()) +
+            " into a Prolog term.");
+    }
+
+    /**
+     * Convert a Java value into Prolog query text
+     * @param value Java value
+     * @return Prolog text
+     * @throws IllegalArgumentException Value is null or of
+     * an unsupported type
+     */
+    public static String toText(Object value) throws IllegalArgumentException
+    {
+        StringBuilder text = new StringBuilder();
+        appendText(text, value);
+        return text.toString();
+    }
+
+    /**
+     * Append the Prolog text of a Java value
+     * @param text Text to append to
+     * @param value Java value
+     * @throws IllegalArgumentException Value is null or of
+     * an unsupported type
+     */
+    private static void appendText(StringBuilder text, Object value)
+        throws IllegalArgumentException
+    {
+        if (value instanceof Term || value instanceof ObjectHandle ||
+            isIntegral(value) || value instanceof BigInteger || value instanceof Boolean)
+        {
+            text.append(value);
+        }
+        else if (value instanceof Double || value instanceof Float)
+        {
+            appendFloat(text, ((Number) value).doubleValue());
+        }
+        else if (value instanceof CharSequence || value instanceof Character)
+        {
+            appendQuoted(text, value.toString(), '"');
+        }
+        else if (value instanceof char[])
+        {
+            appendQuoted(text, new String((char[]) value), '"');
+        }
+        else if (value instanceof Map)
+        {
+            text.append('[');
+            String separator = "";
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+            {
+                text.append(separator);
+                appendPair(text, entry);
+                separator = ", ";
+            }
+            text.append(']');
+        }
+        else if (value instanceof Map.Entry)
+        {
+            appendPair(text, (Map.Entry<?, ?>) value);
+        }
+        else if (value != null && value.getClass().isArray())
+        {
+            text.append('[');
+            for (int i = 0, length = Array.getLength(value); i < length; ++i)
+            {
+                if (i > 0)
+                {
+                    text.append(", ");
+                }
+                appendText(text, Array.get(value, i));
+            }
+            text.append(']');
+        }
+        else if (value instanceof Iterable)
+        {
+            text.append('[');
+            String separator = "";
+            for (Object element : (Iterable<?>) value)
+            {
+                text.append(separator);
+                appendText(text, element);
+                separator = ", ";
+            }
+            text.append(']');
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unable to convert value " +
+                (value == null ? "null" : "of type " + value.getClass().getName()) +
+                " into Prolog text.");
+        }
+    }
+
+    /**
+     * Convert a map entry into a Key-Value pair
+     * @param entry Map entry
+     * @return Pair term
+     */
+    private static Term toPair(Map.Entry<?, ?> entry)
+    {
+        Object key = entry.getKey();
+        // Text keys are atoms, as in library(pairs)
+        Term keyTerm = key instanceof CharSequence ?
+            new Atom(key.toString()) :
+            toTerm(key);
+
+        return new Compound(PAIR, new Term[] { keyTerm, toTerm(entry.getValue()) });
+    }
+
+    /**
+     * Append the text of a map entry as a Key-Value pair
+     * @param text Text to append to
+     * @param entry Map entry
+     */
+    private static void appendPair(StringBuilder text, Map.Entry<?, ?> entry)
+    {
+        Object key = entry.getKey();
+        if (key instanceof CharSequence)
+        {
+            appendQuoted(text, key.toString(), '\'');
+        }
+        else
+        {
+            appendText(text, key);
+        }
+
+        text.append(PAIR);
+        // Parenthesise values to avoid operator ambiguity
+        // (e.g. negative numbers)
+        text.append('(');
+        appendText(text, entry.getValue());
+        text.append(')');
+    }
+
+    /**
+     * Link terms into a Prolog list
+     * @param elements List elements
+     * @param length Number of elements
+     * @return List term
+     */
+    private static Term toList(Term[] elements, int length)
+    {
+        // Link cells from the end backwards
+        Term list = JPL.LIST_NIL;
+        for (int i = length - 1; i >= 0; --i)
+        {
+            list = new Compound(LIST_PAIR, new Term[] { elements[i], list });
+        }
+
+        return list;
+    }
+
+    /**
+     * Append the Prolog text of a float
+     * @param text Text to append to
+     * @param value Float value
+     */
+    private static void appendFloat(StringBuilder text, double value)
+    {
+        if (Double.isNaN(value))
+        {
+            text.append("1.5NaN");
+        }
+        else if (Double.isInfinite(value))
+        {
+            text.append(value > 0 ? "1.0Inf" : "-1.0Inf");
+        }
+        else
+        {
+            text.append(value);
+        }
+    }
+
+    /**
+     * Append quoted text, escaping quote and
+     * backslash characters
+     * @param text Text to append to
+     * @param value Text to quote
+     * @param quote Quote character
+     */
+    private static void appendQuoted(StringBuilder text, String value, char quote)
+    {
+        text.append(quote);
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                default:
+                    if (c == quote)
+                    {
+                        text.append('\\');
+                    }
+                    text.append(c);
+            }
+        }
+        text.append(quote);
+    }
+
+    /**
+     * Check whether a value is an integral number
+     * convertible into a long
+     * @param value Value to check
+     * @return True if integral, false otherwise.
+     */
+    private static boolean isIntegral(Object value)
+    {
+        return value instanceof Integer || value instanceof Long ||
+            value instanceof Short || value instanceof Byte;
+    }
+}
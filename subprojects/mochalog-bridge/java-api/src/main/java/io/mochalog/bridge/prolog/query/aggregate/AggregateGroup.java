@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.aggregate;
+
+import org.jpl7.Term;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Group of query solutions sharing the bindings of the
+ * grouping variables of an aggregation, together with the
+ * aggregates computed over the group
+ */
+public class AggregateGroup
+{
+    // Names of grouping variables
+    private final List<String> keyNames;
+    // Bindings of grouping variables
+    private final Term[] keys;
+    // Aggregates in aggregation order
+    private final Term[] values;
+
+    /**
+     * Constructor.
+     * @param keyNames Names of grouping variables
+     * @param keys Bindings of grouping variables
+     * @param values Aggregates in aggregation order
+     */
+    public AggregateGroup(List<String> keyNames, Term[] keys, Term[] values)
+    {
+        this.keyNames = keyNames;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Convert a term of the form Keys-Results, as bound by
+     * mochalog:aggregate_groups/4, into a group
+     * @param aggregation Aggregation computing the group
+     * @param term Group term
+     * @return Aggregate group
+     */
+    public static AggregateGroup fromTerm(Aggregation aggregation, Term term)
+    {
+        return new AggregateGroup(aggregation.getKeys(),
+            term.arg(1).toTermArray(), term.arg(2).toTermArray());
+    }
+
+    /**
+     * Get the binding of the grouping variable at the given index
+     * @param index Index of grouping variable
+     * @return Variable binding
+     * @throws IndexOutOfBoundsException No grouping variable at index
+     */
+    public Term getKey(int index)
+    {
+        return keys[index];
+    }
+
+    /**
+     * Get the binding of a grouping variable
+     * @param name Name of grouping variable
+     * @return Variable binding
+     * @throws NoSuchElementException Solutions not grouped
+     * by the given variable
+     */
+    public Term getKey(String name) throws NoSuchElementException
+    {
+        int index = keyNames.indexOf(name);
+        if (index < 0)
+        {
+            throw new NoSuchElementException("Solutions are not grouped by " + name);
+        }
+
+        return keys[index];
+    }
+
+    /**
+     * Getter.
+     * @return Bindings of grouping variables
+     */
+    public List<Term> getKeys()
+    {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Get the aggregate at the given index, in the order
+     * aggregates were added to the aggregation
+     * @param index Index of aggregate
+     * @return Aggregated value
+     * @throws IndexOutOfBoundsException No aggregate at index
+     */
+    public Term get(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * Getter.
+     * @return Aggregates in aggregation order
+     */
+    public List<Term> getValues()
+    {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public final boolean equals(Object o)
+    {
+        // Early termination for self-identity
+        if (this == o)
+        {
+            return true;
+        }
+
+        // null/type validation
+        if (o != null && o instanceof AggregateGroup)
+        {
+            AggregateGroup group = (AggregateGroup) o;
+            // Field comparisons
+            return Objects.equals(keyNames, group.keyNames) &&
+                Arrays.equals(keys, group.keys) &&
+                Arrays.equals(values, group.values);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(keyNames, Arrays.hashCode(keys), Arrays.hashCode(values));
+    }
+}
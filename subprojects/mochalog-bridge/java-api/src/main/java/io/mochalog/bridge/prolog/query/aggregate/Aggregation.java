@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.aggregate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregation of the solutions to a query, optionally grouped
+ * by the bindings of query variables, computed in Prolog with
+ * aggregate_all/3 or aggregate/3 so that only the aggregated
+ * values are transferred.
+ * <p>
+ * Aggregated expressions are Prolog text and may refer to
+ * any variable of the aggregated query.
+ */
+public class Aggregation
+{
+    // Pattern corresponding to a Prolog variable name
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("[A-Z_]\\w*");
+
+    /**
+     * Facilitates the building of Aggregation instances
+     */
+    public static class Builder
+    {
+        // Names of variables solutions are grouped by
+        private final List<String> keys = new ArrayList<>();
+        // Aggregate specifications in result order
+        private final List<String> specs = new ArrayList<>();
+
+        /**
+         * Group solutions by the bindings of the given variables
+         * @param variables Names of query variables
+         * @return Current builder
+         * @throws IllegalArgumentException Invalid variable name
+         */
+        public Builder groupBy(String... variables)
+        {
+            for (String variable : variables)
+            {
+                if (!VARIABLE_PATTERN.matcher(variable).matches())
+                {
+                    throw new IllegalArgumentException("Invalid Prolog variable name " + variable);
+                }
+
+                keys.add(variable);
+            }
+
+            return this;
+        }
+
+        /**
+         * Count the solutions of each group
+         * @return Current builder
+         */
+        public Builder count()
+        {
+            specs.add("count");
+            return this;
+        }
+
+        /**
+         * Sum an arithmetic expression over each group
+         * @param expression Prolog expression
+         * @return Current builder
+         */
+        public Builder sum(String expression)
+        {
+            return aggregate("sum", expression);
+        }
+
+        /**
+         * Take the minimum of an arithmetic expression over
+         * each group
+         * @param expression Prolog expression
+         * @return Current builder
+         */
+        public Builder min(String expression)
+        {
+            return aggregate("min", expression);
+        }
+
+        /**
+         * Take the maximum of an arithmetic expression over
+         * each group
+         * @param expression Prolog expression
+         * @return Current builder
+         */
+        public Builder max(String expression)
+        {
+            return aggregate("max", expression);
+        }
+
+        /**
+         * Take the mean of an arithmetic expression over
+         * each group, as a float
+         * @param expression Prolog expression
+         * @return Current builder
+         */
+        public Builder avg(String expression)
+        {
+            return aggregate("avg", expression);
+        }
+
+        /**
+         * Collect the instances of a template over each group
+         * into a list, in solution order
+         * @param template Prolog term
+         * @return Current builder
+         */
+        public Builder bag(String template)
+        {
+            return aggregate("bag", template);
+        }
+
+        /**
+         * Collect the distinct instances of a template over each
+         * group into a list, in standard order
+         * @param template Prolog term
+         * @return Current builder
+         */
+        public Builder set(String template)
+        {
+            return aggregate("set", template);
+        }
+
+        /**
+         * Add an aggregate specification
+         * @param name Aggregate name
+         * @param argument Aggregated expression or template
+         * @return Current builder
+         */
+        private Builder aggregate(String name, String argument)
+        {
+            specs.add(name + "((" + argument + "))");
+            return this;
+        }
+
+        /**
+         * Build the aggregation
+         * @return Constructed Aggregation
+         * @throws IllegalStateException No aggregates specified
+         */
+        public Aggregation build()
+        {
+            if (specs.isEmpty())
+            {
+                throw new IllegalStateException("Aggregation must specify at least one aggregate.");
+            }
+
+            return new Aggregation(keys, specs);
+        }
+    }
+
+    // Names of variables solutions are grouped by
+    private final List<String> keys;
+    // Aggregate specifications in result order
+    private final List<String> specs;
+
+    /**
+     * Private constructor.
+     * @param keys Names of grouping variables
+     * @param specs Aggregate specifications
+     */
+    private Aggregation(List<String> keys, List<String> specs)
+    {
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.specs = Collections.unmodifiableList(new ArrayList<>(specs));
+    }
+
+    /**
+     * Create a builder of aggregations
+     * @return Aggregation builder
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Getter.
+     * @return Names of variables solutions are grouped by
+     */
+    public List<String> getKeys()
+    {
+        return keys;
+    }
+
+    /**
+     * Get the number of aggregates computed for each group
+     * @return Aggregate count
+     */
+    public int size()
+    {
+        return specs.size();
+    }
+
+    /**
+     * Get the goal aggregating the given (module-qualified)
+     * goal with mochalog:aggregate_groups/4, binding the
+     * aggregated groups to the given variable
+     * @param goal Goal text to aggregate
+     * @param groups Name of variable to bind groups to
+     * @return Aggregating goal text
+     */
+    public String toGoal(String goal, String groups)
+    {
+        return "mochalog:aggregate_groups([" + String.join(", ", keys) + "], [" +
+            String.join(", ", specs) + "], (" + goal + "), " + groups + ")";
+    }
+
+    @Override
+    public final boolean equals(Object o)
+    {
+        // Early termination for self-identity
+        if (this == o)
+        {
+            return true;
+        }
+
+        // null/type validation
+        if (o != null && o instanceof Aggregation)
+        {
+            Aggregation aggregation = (Aggregation) o;
+            // Field comparisons
+            return keys.equals(aggregation.keys) &&
+                specs.equals(aggregation.specs);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(keys, specs);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("keys=%s aggregates=%s", keys, specs);
+    }
+}
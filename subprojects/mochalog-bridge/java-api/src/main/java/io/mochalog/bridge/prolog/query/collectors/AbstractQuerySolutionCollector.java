@@ -17,7 +17,10 @@
 package io.mochalog.bridge.prolog.query.collectors;
 
 import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.Metrics;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
 import io.mochalog.bridge.prolog.query.Query;
+import io.mochalog.bridge.prolog.runtime.ResourceLimits;
 
 /**
  * Abstract implementation of a query solution
@@ -36,6 +39,13 @@ public abstract class AbstractQuerySolutionCollector implements QuerySolutionCol
         protected Query query;
         // Working module to operate query from
         protected Module workingModule;
+        // Flag indicating whether query should be proved
+        // against a database snapshot
+        protected boolean snapshot;
+        // Metrics to report query lifecycle to
+        protected QueryMetrics metrics;
+        // Resource limits to prove query under
+        protected ResourceLimits resourceLimits;
 
         /**
          * Constructor.
@@ -44,6 +54,7 @@ public abstract class AbstractQuerySolutionCollector implements QuerySolutionCol
         public Builder(Query query)
         {
             this.query = query;
+            this.metrics = Metrics.get();
         }
 
         /**
@@ -57,6 +68,44 @@ public abstract class AbstractQuerySolutionCollector implements QuerySolutionCol
             return this;
         }
 
+        /**
+         * Set whether the query should be proved against a
+         * consistent snapshot of the database, pinned for the
+         * lifetime of the collector
+         * @param snapshot True to isolate query from concurrent
+         * modifications, false otherwise.
+         * @return Current builder
+         */
+        public Builder setSnapshot(boolean snapshot)
+        {
+            this.snapshot = snapshot;
+            return this;
+        }
+
+        /**
+         * Set the metrics to report the query lifecycle to
+         * (defaults to the process-wide metrics)
+         * @param metrics Query metrics
+         * @return Current builder
+         */
+        public Builder setMetrics(QueryMetrics metrics)
+        {
+            this.metrics = metrics == null ? QueryMetrics.NONE : metrics;
+            return this;
+        }
+
+        /**
+         * Set the resource limits to apply to the engine
+         * proving the query
+         * @param resourceLimits Resource limits (null if unlimited)
+         * @return Current builder
+         */
+        public Builder setResourceLimits(ResourceLimits resourceLimits)
+        {
+            this.resourceLimits = resourceLimits;
+            return this;
+        }
+
         /**
          * Build the QuerySolutionCollector of type T based
          * on the builder parameters specified
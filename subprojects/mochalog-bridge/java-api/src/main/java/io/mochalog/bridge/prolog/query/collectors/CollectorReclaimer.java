@@ -0,0 +1,328 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.collectors;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
+import io.mochalog.bridge.prolog.query.Query;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Closes the interpreter queries of collectors which became
+ * unreachable without being detached.
+ * <p>
+ * JPL queries must be closed by the thread whose engine they
+ * were opened on, in reverse order of opening, so abandoned queries
+ * are not closed by the garbage collector or a background thread.
+ * Instead, each thread closes its own abandoned queries whenever it
+ * opens, advances or detaches a collector, and only while they are
+ * innermost on its engine. Queries are ordered by when JPL opens them
+ * natively (on first being advanced), not by when their collectors
+ * are constructed. Abandoned queries opened beneath a query still in
+ * use are closed once that query is detached, and queries which fail
+ * to close remain queued to be retried.
+ * <p>
+ * Abandonment itself is detected by a background thread, which
+ * reports abandoned collectors as closed to their metrics as soon
+ * as they become unreachable. Queries abandoned by a thread which
+ * then goes idle remain open until it next operates a collector;
+ * collectors likely to outlive their use should be operated from
+ * threads of their own (see ThreadedQuerySolutionCollector), whose
+ * queries are closed by their own thread.
+ */
+final class CollectorReclaimer
+{
+    // Queue unreachable collectors are enqueued on
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    // Registrations of attached collectors (retained so that
+    // references are enqueued)
+    private static final Set<Registration> REGISTRATIONS = ConcurrentHashMap.newKeySet();
+    // Registrations of unreachable collectors awaiting
+    // reclamation by their owning thread
+    private static final Queue<Registration> ABANDONED = new ConcurrentLinkedQueue<>();
+    // Registrations of the collectors whose queries are open
+    // natively on each thread, in order of opening (innermost last)
+    private static final ThreadLocal<Deque<Registration>> OPEN =
+        ThreadLocal.withInitial(ArrayDeque::new);
+
+    static
+    {
+        Thread reaper = new Thread(CollectorReclaimer::awaitAbandoned,
+            "mochalog-collector-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    /**
+     * Registration of an attached collector, holding the state
+     * required to close its query once it becomes unreachable
+     */
+    static final class Registration extends PhantomReference<Object>
+    {
+        // Interpreter query of the collector
+        private final org.jpl7.Query interpreterQuery;
+        // Query being collected and module it is operated from
+        private final Query query;
+        private final Module module;
+        // Metrics the collector reports to
+        private final QueryMetrics metrics;
+        // Thread whose engine the query is opened on
+        private final WeakReference<Thread> owner;
+        // Queries open on the engine of the owning thread
+        private final Deque<Registration> ownerQueries;
+        // Name of the owning thread
+        private final String ownerName;
+        // Stack trace at the time the query was opened
+        private final StackTraceElement[] openTrace;
+        // Time at which the collector was opened
+        private final long openTime;
+        // Number of solutions retrieved by the collector
+        private int solutionCount;
+        // Flag indicating whether the collector has
+        // become unreachable while attached
+        private volatile boolean abandoned;
+        // Flag indicating whether the query has been opened
+        // natively (JPL opens queries when first advanced)
+        private volatile boolean opened;
+
+        /**
+         * Constructor.
+         * @param collector Collector to register
+         * @param interpreterQuery Interpreter query of collector
+         * @param query Query being collected
+         * @param module Module query is operated from
+         * @param metrics Metrics collector reports to
+         */
+        private Registration(Object collector, org.jpl7.Query interpreterQuery,
+            Query query, Module module, QueryMetrics metrics)
+        {
+            super(collector, QUEUE);
+            this.interpreterQuery = interpreterQuery;
+            this.query = query;
+            this.module = module;
+            this.metrics = metrics;
+
+            Thread thread = Thread.currentThread();
+            owner = new WeakReference<>(thread);
+            ownerQueries = OPEN.get();
+            ownerName = thread.getName();
+            openTrace = QueryLeakTracker.captureOpenTrace();
+            openTime = System.nanoTime();
+        }
+
+        /**
+         * Record the number of solutions retrieved by the
+         * collector, reported should it be reclaimed
+         * @param solutionCount Solution count
+         */
+        void setSolutionCount(int solutionCount)
+        {
+            this.solutionCount = solutionCount;
+        }
+
+        /**
+         * Record that the query is about to be opened natively,
+         * ordering it above every query already open on the
+         * engine (on the owning thread)
+         */
+        void markOpened()
+        {
+            if (!opened)
+            {
+                opened = true;
+                ownerQueries.addLast(this);
+            }
+        }
+
+        /**
+         * Deregister the collector once detached (on
+         * the owning thread)
+         */
+        void close()
+        {
+            REGISTRATIONS.remove(this);
+            ownerQueries.removeLastOccurrence(this);
+            clear();
+        }
+
+        /**
+         * Close the query of the unreachable collector
+         * on the owning thread
+         */
+        private void reclaim()
+        {
+            interpreterQuery.close();
+        }
+
+        /**
+         * Report the unreachable collector as closed to its
+         * metrics, so that it is no longer counted as open
+         * while awaiting reclamation
+         */
+        private void reportClosed()
+        {
+            if (metrics.isEnabled())
+            {
+                metrics.collectorClosed(query, module, new QueryStatistics(
+                    solutionCount, System.nanoTime() - openTime, QueryStatistics.UNMEASURED,
+                    QueryStatistics.UNMEASURED, QueryStatistics.UNMEASURED,
+                    QueryStatistics.UNMEASURED, QueryStatistics.UNMEASURED));
+            }
+        }
+
+        /**
+         * Describe the unreachable collector as a leak
+         * @param reclaimed True if its query was closed,
+         * false otherwise.
+         * @return Leak record
+         */
+        private QueryLeak toLeak(boolean reclaimed)
+        {
+            return new QueryLeak(query.getTemplate(), module, ownerName, openTrace, reclaimed);
+        }
+    }
+
+    /**
+     * Private constructor. Static utility class.
+     */
+    private CollectorReclaimer()
+    {
+
+    }
+
+    /**
+     * Register an attached collector for reclamation should
+     * it become unreachable before being detached
+     * @param collector Collector to register
+     * @param interpreterQuery Interpreter query of collector
+     * @param query Query being collected
+     * @param module Module query is operated from
+     * @param metrics Metrics collector reports to
+     * @return Registration, to be closed on detachment
+     */
+    static Registration register(Object collector, org.jpl7.Query interpreterQuery,
+        Query query, Module module, QueryMetrics metrics)
+    {
+        Registration registration = new Registration(collector,
+            interpreterQuery, query, module, metrics);
+        REGISTRATIONS.add(registration);
+        return registration;
+    }
+
+    /**
+     * Move collectors to the abandoned queue as they become
+     * unreachable, reporting each as closed
+     */
+    private static void awaitAbandoned()
+    {
+        while (true)
+        {
+            Registration registration;
+            try
+            {
+                registration = (Registration) QUEUE.remove();
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+
+            // Collectors detached concurrently with being
+            // enqueued have already been closed
+            if (REGISTRATIONS.remove(registration))
+            {
+                registration.reportClosed();
+                if (!registration.opened)
+                {
+                    // Never opened natively, so nothing to close
+                    QueryLeakTracker.report(registration.toLeak(true));
+                    continue;
+                }
+
+                // Queued before being flagged, so that the owning
+                // thread always finds what it reclaims queued
+                ABANDONED.add(registration);
+                registration.abandoned = true;
+            }
+        }
+    }
+
+    /**
+     * Close the queries of unreachable collectors innermost on
+     * the engine of the calling thread, reporting each as a leak.
+     * Collectors whose owning thread has ended are reported without
+     * being reclaimed. Queries which fail to close remain queued, and
+     * the failure is reported to QueryLeakTracker.
+     * @return Number of queries closed
+     */
+    static int reclaimAbandoned()
+    {
+        // Avoid the thread-local lookup while nothing is abandoned
+        if (ABANDONED.isEmpty())
+        {
+            return 0;
+        }
+
+        // Queries must be closed innermost first, so stop at
+        // the first query still in use
+        int reclaimed = 0;
+        Deque<Registration> queries = OPEN.get();
+        while (!queries.isEmpty() && queries.peekLast().abandoned)
+        {
+            Registration registration = queries.peekLast();
+            try
+            {
+                registration.reclaim();
+            }
+            catch (RuntimeException e)
+            {
+                // Retried on the next collector operation; queries
+                // beneath it cannot be closed before it is
+                QueryLeakTracker.reportReclaimFailure(e);
+                break;
+            }
+
+            queries.pollLast();
+            ABANDONED.remove(registration);
+            QueryLeakTracker.report(registration.toLeak(true));
+            ++reclaimed;
+        }
+
+        for (Registration registration : ABANDONED)
+        {
+            Thread owner = registration.owner.get();
+            if ((owner == null || !owner.isAlive()) && ABANDONED.remove(registration))
+            {
+                // Claimed by removal, as other threads may
+                // observe the same ended owner
+                QueryLeakTracker.report(registration.toLeak(false));
+            }
+        }
+
+        return reclaimed;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.collectors;
+
+import io.mochalog.bridge.prolog.lang.Module;
+
+/**
+ * Record of a query solution collector which became unreachable
+ * without being detached from the interpreter
+ */
+public class QueryLeak
+{
+    // Unformatted text of the leaked query
+    private final String template;
+    // Module the query was operated from
+    private final Module module;
+    // Name of the thread which opened the query
+    private final String threadName;
+    // Stack trace at the time the query was opened
+    // (empty given leak tracking was disabled)
+    private final StackTraceElement[] openTrace;
+    // Flag indicating whether the query was closed
+    // by reclamation
+    private final boolean reclaimed;
+
+    /**
+     * Constructor.
+     * @param template Unformatted query text
+     * @param module Module query was operated from
+     * @param threadName Name of thread which opened the query
+     * @param openTrace Stack trace at the time the query was opened
+     * @param reclaimed True if the query was closed by reclamation,
+     * false given its thread ended before it could be.
+     */
+    public QueryLeak(String template, Module module, String threadName,
+        StackTraceElement[] openTrace, boolean reclaimed)
+    {
+        this.template = template;
+        this.module = module;
+        this.threadName = threadName;
+        this.openTrace = openTrace;
+        this.reclaimed = reclaimed;
+    }
+
+    /**
+     * Getter.
+     * @return Unformatted text of the leaked query
+     */
+    public String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+     * Getter.
+     * @return Module the query was operated from (null
+     * if unscoped)
+     */
+    public Module getModule()
+    {
+        return module;
+    }
+
+    /**
+     * Getter.
+     * @return Name of the thread which opened the query
+     */
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    /**
+     * Get the stack trace at the time the query was opened,
+     * recorded only while leak tracking is enabled
+     * (see QueryLeakTracker)
+     * @return Stack trace (empty if not recorded)
+     */
+    public StackTraceElement[] getOpenTrace()
+    {
+        return openTrace.clone();
+    }
+
+    /**
+     * Check whether the leaked query was closed by reclamation
+     * @return True if closed, false given the thread which opened
+     * it ended first.
+     */
+    public boolean isReclaimed()
+    {
+        return reclaimed;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder(String.format(
+            "Query %s opened on thread %s was not detached%s",
+            template, threadName, reclaimed ? "" : " (not reclaimed)"));
+        for (StackTraceElement element : openTrace)
+        {
+            builder.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.collectors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records query solution collectors which became unreachable
+ * without being detached. Such collectors are reclaimed
+ * automatically, closing their interpreter query the next time
+ * the thread which opened them operates a collector (given the
+ * query is innermost on its engine).
+ * <p>
+ * Leaks are always counted. Recording where leaked queries were
+ * opened captures a stack trace for every collector opened, and
+ * so is opt-in (see setTracking).
+ */
+public final class QueryLeakTracker
+{
+    // Number of recent leaks retained
+    private static final int CAPACITY = 64;
+
+    // Flag indicating whether collectors record the
+    // stack trace at which they were opened
+    private static volatile boolean tracking;
+    // Total number of leaks detected
+    private static final AtomicLong LEAK_COUNT = new AtomicLong();
+    // Most recent leaks, oldest first
+    private static final List<QueryLeak> RECENT_LEAKS = new ArrayList<>();
+    // Number of failed attempts to close leaked queries
+    private static final AtomicLong RECLAIM_FAILURE_COUNT = new AtomicLong();
+    // Most recent failure to close a leaked query
+    private static volatile RuntimeException lastReclaimFailure;
+
+    /**
+     * Private constructor. Static utility class.
+     */
+    private QueryLeakTracker()
+    {
+
+    }
+
+    /**
+     * Set whether collectors record the stack trace at which
+     * they were opened, reported should they be leaked
+     * @param tracking True to record open stack traces,
+     * false otherwise.
+     */
+    public static void setTracking(boolean tracking)
+    {
+        QueryLeakTracker.tracking = tracking;
+    }
+
+    /**
+     * Check whether collectors record the stack trace at
+     * which they were opened
+     * @return True if tracking, false otherwise.
+     */
+    public static boolean isTracking()
+    {
+        return tracking;
+    }
+
+    /**
+     * Get the total number of leaked collectors detected
+     * @return Leak count
+     */
+    public static long getLeakCount()
+    {
+        return LEAK_COUNT.get();
+    }
+
+    /**
+     * Get the most recently detected leaks
+     * @return Recent leaks, oldest first
+     */
+    public static List<QueryLeak> getRecentLeaks()
+    {
+        synchronized (RECENT_LEAKS)
+        {
+            return new ArrayList<>(RECENT_LEAKS);
+        }
+    }
+
+    /**
+     * Get the number of failed attempts to close the
+     * queries of leaked collectors (each is retried)
+     * @return Reclamation failure count
+     */
+    public static long getReclaimFailureCount()
+    {
+        return RECLAIM_FAILURE_COUNT.get();
+    }
+
+    /**
+     * Get the most recent failure to close the query
+     * of a leaked collector
+     * @return Exception raised (null if none failed)
+     */
+    public static RuntimeException getLastReclaimFailure()
+    {
+        return lastReclaimFailure;
+    }
+
+    /**
+     * Discard recorded leaks and reset the leak count
+     */
+    public static void clear()
+    {
+        synchronized (RECENT_LEAKS)
+        {
+            RECENT_LEAKS.clear();
+            LEAK_COUNT.set(0);
+            RECLAIM_FAILURE_COUNT.set(0);
+            lastReclaimFailure = null;
+        }
+    }
+
+    /**
+     * Capture the stack trace at which a collector is
+     * being opened, given tracking is enabled
+     * @return Stack trace (empty if not tracking)
+     */
+    static StackTraceElement[] captureOpenTrace()
+    {
+        return tracking ? new Throwable().getStackTrace() : new StackTraceElement[0];
+    }
+
+    /**
+     * Record a failed attempt to close the query of
+     * a leaked collector
+     * @param failure Exception raised
+     */
+    static void reportReclaimFailure(RuntimeException failure)
+    {
+        RECLAIM_FAILURE_COUNT.incrementAndGet();
+        lastReclaimFailure = failure;
+    }
+
+    /**
+     * Record a detected leak
+     * @param leak Leaked collector
+     */
+    static void report(QueryLeak leak)
+    {
+        synchronized (RECENT_LEAKS)
+        {
+            LEAK_COUNT.incrementAndGet();
+            if (RECENT_LEAKS.size() == CAPACITY)
+            {
+                RECENT_LEAKS.remove(0);
+            }
+            RECENT_LEAKS.add(leak);
+        }
+    }
+}
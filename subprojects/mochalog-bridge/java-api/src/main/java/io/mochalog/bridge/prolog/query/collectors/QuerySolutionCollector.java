@@ -28,8 +28,13 @@ import java.util.Collection;
  * Provides a <i>best effort</i> view of the
  * solutions to a query, as collector may be forcibly
  * killed before all solutions could be retrieved.
+ * <p>
+ * Collectors should be closed (detached) once no longer
+ * needed, for instance with try-with-resources. Collectors
+ * which become unreachable while attached are reclaimed and
+ * reported to QueryLeakTracker.
  */
-public interface QuerySolutionCollector
+public interface QuerySolutionCollector extends AutoCloseable
 {
     /**
      * Number of solutions to the given query
@@ -79,6 +84,18 @@ public interface QuerySolutionCollector
      */
     QuerySolution fetchSolution(int index) throws NoSuchSolutionException;
 
+    /**
+     * Take the solution following every solution fetched or
+     * taken so far, without retaining it within the collector.
+     * Taken solutions are not available to index-based operations,
+     * so taking is intended for solutions consumed once, in order,
+     * and should not be mixed with fetching by index.
+     * @return Next query solution
+     * @throws NoSuchSolutionException No further solutions exist
+     * in the query
+     */
+    QuerySolution takeSolution() throws NoSuchSolutionException;
+
     /**
      * Fetch the first solution to the query.
      * @return First solution
@@ -106,4 +123,14 @@ public interface QuerySolutionCollector
      * false otherwise.
      */
     boolean detach();
+
+    /**
+     * Detach the collector from the interpreter
+     * (see detach)
+     */
+    @Override
+    default void close()
+    {
+        detach();
+    }
 }
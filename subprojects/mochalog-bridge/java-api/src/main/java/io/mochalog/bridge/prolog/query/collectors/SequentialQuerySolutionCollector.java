@@ -16,14 +16,23 @@
 
 package io.mochalog.bridge.prolog.query.collectors;
 
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
 import io.mochalog.bridge.prolog.query.Query;
 import io.mochalog.bridge.prolog.query.QuerySolution;
 import io.mochalog.bridge.prolog.query.exception.EndOfQueryException;
 import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
+import io.mochalog.bridge.prolog.runtime.PrologRuntime;
+import io.mochalog.bridge.prolog.runtime.ResourceExhaustedException;
 
 import io.mochalog.bridge.prolog.namespace.Namespace;
 import io.mochalog.bridge.prolog.namespace.ReadOnlyNamespace;
 
+import org.jpl7.PrologException;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -55,8 +64,22 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
         public SequentialQuerySolutionCollector build()
         {
             // Change working module for query if necessary
-            String text = Query.runnableInModule(query, workingModule);
-            return new SequentialQuerySolutionCollector(text);
+            String text = Query.runnableWithLimits(
+                Query.runnableInModule(query, workingModule), resourceLimits);
+            if (!snapshot)
+            {
+                return new SequentialQuerySolutionCollector(text, query, workingModule, metrics);
+            }
+
+            // Fail clearly rather than with an existence error
+            // on runtimes without transaction support
+            PrologRuntime.requireSnapshotSupport();
+            SequentialQuerySolutionCollector collector = new SequentialQuerySolutionCollector(
+                Query.runnableInSnapshot(text), query, workingModule, metrics);
+            // JPL queries are opened lazily - prove eagerly to ensure
+            // the snapshot is taken at the time of opening
+            collector.hasSolutions();
+            return collector;
         }
     }
 
@@ -66,25 +89,88 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
     // Internal JPL query (facilitates
     // low-level connection to SWI-Prolog native interface)
     private org.jpl7.Query interpreterQuery;
+    // Registration closing the interpreter query should the
+    // collector become unreachable while attached
+    private CollectorReclaimer.Registration registration;
 
     // Solutions which have been retrieved from SWI-Prolog
     // interpreter
     private List<QuerySolution> solutionCache;
+    // Number of solutions retrieved, including those
+    // taken without being cached
+    private int solutionsRetrieved;
     // Flag to indicate whether all query solutions have
     // been retrieved
     private boolean allSolutionsFetched;
 
+    // Query being collected and module it is operated from
+    private final Query query;
+    private final Module workingModule;
+    // Metrics to report query lifecycle to
+    private final QueryMetrics metrics;
+    // Measurements accumulated over the collector lifetime
+    // (only maintained given metrics are enabled)
+    private long openTime;
+    private long openNanos;
+    private long fetchNanos;
+    private long firstSolutionNanos = QueryStatistics.UNMEASURED;
+    private long nativeCalls;
+    private long initialInferences;
+
     /**
      * Private constructor.
      * @param text String format of query
+     * @param query Query being collected
+     * @param workingModule Module query is operated from
+     * @param metrics Metrics to report query lifecycle to
      */
-    private SequentialQuerySolutionCollector(String text)
+    private SequentialQuerySolutionCollector(String text, Query query,
+        Module workingModule, QueryMetrics metrics)
     {
+        this.query = query;
+        this.workingModule = workingModule;
+        this.metrics = metrics;
+
         // Set up solution cache
         solutionCache = new ArrayList<>();
 
-        // Open a new JPL query
-        interpreterQuery = new org.jpl7.Query(text);
+        if (metrics.isEnabled())
+        {
+            openTime = System.nanoTime();
+            if (metrics.isInferenceCountingEnabled())
+            {
+                initialInferences = countInferences();
+            }
+        }
+
+        // Close queries abandoned by the current thread before
+        // opening another on its engine
+        CollectorReclaimer.reclaimAbandoned();
+
+        PhaseTimer timer = metrics.startPhase(QueryPhase.OPEN, query.getTemplate(), workingModule);
+        try
+        {
+            // Open a new JPL query, binding placeholders given
+            // the query is parameterised (raises an error given
+            // the query text cannot be parsed)
+            interpreterQuery = query.isParameterised() ?
+                new org.jpl7.Query(text, query.getParameters()) :
+                new org.jpl7.Query(text);
+        }
+        finally
+        {
+            timer.stop(0);
+        }
+        registration = CollectorReclaimer.register(this, interpreterQuery,
+            query, workingModule, metrics);
+
+        // Only report opening once the query is built, so that
+        // every opened collector is matched by its closing
+        if (metrics.isEnabled())
+        {
+            openNanos = System.nanoTime() - openTime;
+            metrics.collectorOpened(query, workingModule);
+        }
         // Signal attachment to intepreter
         isAttached = true;
     }
@@ -155,10 +241,10 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
                 int precedingSolutionsToFetch = index - solutionCache.size();
                 for (int i = 0; i < precedingSolutionsToFetch; ++i)
                 {
-                    fetchNextSolution();
+                    fetchNextSolution(true);
                 }
 
-                return fetchNextSolution();
+                return fetchNextSolution(true);
             }
             catch (EndOfQueryException e)
             {
@@ -167,6 +253,19 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
         }
     }
 
+    @Override
+    public QuerySolution takeSolution() throws NoSuchSolutionException
+    {
+        try
+        {
+            return fetchNextSolution(false);
+        }
+        catch (EndOfQueryException e)
+        {
+            throw new NoSuchSolutionException(e.getMessage());
+        }
+    }
+
     @Override
     public QuerySolution fetchFirstSolution() throws NoSuchSolutionException
     {
@@ -185,7 +284,7 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
     {
         while (!allSolutionsFetched)
         {
-            fetchNextSolution();
+            fetchNextSolution(true);
         }
 
         QuerySolution[] solutions = new QuerySolution[solutionCache.size()];
@@ -195,21 +294,61 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
 
     /**
      * Fetch the next solution in the interpreter stream.
+     * @param cache True to retain the solution in the solution
+     * cache, false otherwise.
+     * @return Next solution
      * @throws EndOfQueryException No further solutions remain
      */
-    private QuerySolution fetchNextSolution() throws EndOfQueryException
+    private QuerySolution fetchNextSolution(boolean cache) throws EndOfQueryException
     {
-        // Check if further solutions exist
-        if (isAttached && !allSolutionsFetched && interpreterQuery.hasMoreSolutions())
+        if (isAttached && !allSolutionsFetched)
         {
-            // Retrieve the next query solution and update
-            // namespace values
-            Namespace namespace =
-                    new ReadOnlyNamespace(interpreterQuery.nextSolution());
-            QuerySolution solution = new QuerySolution(namespace);
-            solutionCache.add(solution);
+            // Close queries abandoned above this one, which
+            // would otherwise prevent it from being advanced
+            CollectorReclaimer.reclaimAbandoned();
+
+            PhaseTimer timer = metrics.startPhase(QueryPhase.FETCH,
+                query.getTemplate(), workingModule);
+            long fetchStart = metrics.isEnabled() ? System.nanoTime() : 0;
+            try
+            {
+                // JPL opens the query natively on first
+                // checking for solutions
+                registration.markOpened();
+                // Check if further solutions exist
+                ++nativeCalls;
+                if (hasMoreSolutions())
+                {
+                    // Retrieve the next query solution and update
+                    // namespace values
+                    ++nativeCalls;
+                    Namespace namespace =
+                            new ReadOnlyNamespace(interpreterQuery.nextSolution());
+                    QuerySolution solution = new QuerySolution(namespace);
+                    if (cache)
+                    {
+                        solutionCache.add(solution);
+                    }
+                    registration.setSolutionCount(++solutionsRetrieved);
+
+                    if (metrics.isEnabled() &&
+                        firstSolutionNanos == QueryStatistics.UNMEASURED)
+                    {
+                        firstSolutionNanos = System.nanoTime() - openTime;
+                    }
 
-            return solution;
+                    return solution;
+                }
+            }
+            finally
+            {
+                // Stopped even when the query raises an error
+                timer.stop(solutionsRetrieved);
+                if (metrics.isEnabled())
+                {
+                    fetchNanos += System.nanoTime() - fetchStart;
+                }
+            }
         }
 
         // No further solutions to fetch
@@ -221,6 +360,26 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
         throw new EndOfQueryException("No further query solutions remain.");
     }
 
+    /**
+     * Check if the interpreter query has further solutions,
+     * detaching the collector given the query raised an error
+     * @return True if further solutions exist, false otherwise.
+     * @throws ResourceExhaustedException Query exhausted a
+     * Prolog resource
+     */
+    private boolean hasMoreSolutions() throws ResourceExhaustedException
+    {
+        try
+        {
+            return interpreterQuery.hasMoreSolutions();
+        }
+        catch (PrologException e)
+        {
+            detach();
+            throw ResourceExhaustedException.translate(e);
+        }
+    }
+
     /**
      * Check if the solution with the requested index
      * is in cache
@@ -232,19 +391,67 @@ public class SequentialQuerySolutionCollector extends AbstractQuerySolutionColle
         return index < solutionCache.size();
     }
 
+    /**
+     * Check whether the collector remains attached to
+     * the interpreter
+     * @return True if attached, false otherwise.
+     */
+    boolean isAttached()
+    {
+        return isAttached;
+    }
+
     @Override
     public boolean detach()
     {
         if (isAttached)
         {
-            // Close the underlying query
-            // Necessary as neglecting to close
-            // JPL queries can resulting in Prolog
-            // engine deadlocks
-            interpreterQuery.close();
-            isAttached = false;
+            PhaseTimer timer = metrics.startPhase(QueryPhase.DETACH,
+                query.getTemplate(), workingModule);
+            try
+            {
+                // Close queries abandoned above this one, as
+                // queries must be closed innermost first
+                CollectorReclaimer.reclaimAbandoned();
+                // Close the underlying query
+                // Necessary as neglecting to close
+                // JPL queries can resulting in Prolog
+                // engine deadlocks
+                ++nativeCalls;
+                interpreterQuery.close();
+                registration.close();
+                isAttached = false;
+                // Close queries abandoned beneath this one, which
+                // are now innermost on the engine
+                CollectorReclaimer.reclaimAbandoned();
+            }
+            finally
+            {
+                timer.stop(solutionsRetrieved);
+            }
+
+            if (metrics.isEnabled())
+            {
+                long inferences = metrics.isInferenceCountingEnabled() ?
+                    countInferences() - initialInferences : QueryStatistics.UNMEASURED;
+                metrics.collectorClosed(query, workingModule, new QueryStatistics(
+                    solutionsRetrieved, System.nanoTime() - openTime, openNanos,
+                    fetchNanos, firstSolutionNanos, nativeCalls, inferences));
+            }
         }
 
         return true;
     }
+
+    /**
+     * Get the number of inferences performed by the
+     * current Prolog engine
+     * @return Inference count
+     */
+    private long countInferences()
+    {
+        nativeCalls += 2;
+        return new org.jpl7.Query("statistics(inferences, Inferences)")
+            .oneSolution().get("Inferences").longValue();
+    }
 }
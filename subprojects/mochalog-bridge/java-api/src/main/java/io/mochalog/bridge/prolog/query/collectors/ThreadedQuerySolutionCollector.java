@@ -0,0 +1,439 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.collectors;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+import io.mochalog.bridge.prolog.query.QuerySolution;
+import io.mochalog.bridge.prolog.query.exception.EngineUnavailableException;
+import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
+import io.mochalog.bridge.prolog.query.exception.QueryInterruptedException;
+import io.mochalog.bridge.prolog.runtime.PrologRuntime;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Solution collector implementation which operates a sequential
+ * collector from a dedicated daemon thread, and so on a Prolog
+ * engine of its own.
+ * <p>
+ * JPL allows a single open query per engine, such that queries
+ * opened on the same thread must be closed in reverse order of
+ * opening. Threaded collectors are not subject to this restriction,
+ * allowing several queries to be iterated lazily, in lockstep or
+ * nested in any order. Each attached collector holds an engine from
+ * the JPL engine pool, and so should be detached once no longer needed.
+ * Opening a collector while the pool is exhausted fails once the engine
+ * timeout elapses, rather than waiting indefinitely for an engine.
+ * Collectors which become unreachable while attached are detached by
+ * their own thread and reported to QueryLeakTracker.
+ */
+public class ThreadedQuerySolutionCollector extends AbstractQuerySolutionCollector
+{
+    // Default time to wait for an engine on which to open the query
+    public static final long DEFAULT_ENGINE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // Interval at which collector threads check whether
+    // their collector has been abandoned
+    private static final long ABANDONMENT_CHECK_SECONDS = 1;
+    // Number of collector threads created (used for naming)
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Facilitates the building of ThreadedQuerySolutionCollector
+     * instances
+     */
+    public static class Builder
+        extends AbstractQuerySolutionCollector.Builder<ThreadedQuerySolutionCollector>
+    {
+        // Time to wait for an engine on which to open the query
+        private long engineTimeoutNanos = DEFAULT_ENGINE_TIMEOUT_NANOS;
+
+        /**
+         * Constructor.
+         * @param query Query to collect solutions from
+         */
+        public Builder(Query query)
+        {
+            super(query);
+        }
+
+        /**
+         * Set the time to wait for an engine of the JPL engine
+         * pool on which to open the query
+         * @param timeout Engine timeout
+         * @param unit Unit of time
+         * @return Current builder
+         */
+        public Builder setEngineTimeout(long timeout, TimeUnit unit)
+        {
+            this.engineTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        @Override
+        public ThreadedQuerySolutionCollector build()
+        {
+            SequentialQuerySolutionCollector.Builder builder =
+                new SequentialQuerySolutionCollector.Builder(query);
+            builder.setWorkingModule(workingModule);
+            builder.setSnapshot(snapshot);
+            builder.setMetrics(metrics);
+            builder.setResourceLimits(resourceLimits);
+            return new ThreadedQuerySolutionCollector(builder::build, query,
+                workingModule, engineTimeoutNanos);
+        }
+    }
+
+    /**
+     * Check, run periodically on the collector thread, detaching
+     * the sequential collector once the threaded collector becomes
+     * unreachable. Holds no strong reference to the threaded collector.
+     */
+    private static class AbandonmentCheck implements Runnable
+    {
+        // Threaded collector being checked
+        private final WeakReference<ThreadedQuerySolutionCollector> owner;
+        // Collector operated by the threaded collector
+        private final SequentialQuerySolutionCollector collector;
+        // Thread the collector is operated from
+        private final ScheduledExecutorService worker;
+        // Record reported should the collector be abandoned
+        private final QueryLeak leak;
+
+        /**
+         * Constructor.
+         * @param owner Threaded collector being checked
+         * @param collector Collector operated by threaded collector
+         * @param worker Thread collector is operated from
+         * @param leak Record to report given collector is abandoned
+         */
+        private AbandonmentCheck(ThreadedQuerySolutionCollector owner,
+            SequentialQuerySolutionCollector collector,
+            ScheduledExecutorService worker, QueryLeak leak)
+        {
+            this.owner = new WeakReference<>(owner);
+            this.collector = collector;
+            this.worker = worker;
+            this.leak = leak;
+        }
+
+        @Override
+        public void run()
+        {
+            if (owner.get() != null)
+            {
+                return;
+            }
+
+            // Collectors which detached on fetching every
+            // solution were not leaked
+            if (collector.isAttached())
+            {
+                collector.detach();
+                QueryLeakTracker.report(leak);
+            }
+            worker.shutdown();
+        }
+    }
+
+    // Thread the collector is operated from
+    private final ScheduledExecutorService worker;
+    // Collector operated from the collector thread
+    private final SequentialQuerySolutionCollector collector;
+    // Flag indicating whether detachment is in progress
+    // or has completed
+    private final AtomicBoolean detaching;
+    // Flag indicating whether the collector has been detached
+    // successfully (after which it is operated from the
+    // calling thread)
+    private volatile boolean detached;
+
+    /**
+     * Private constructor. Opens the sequential collector
+     * on the collector thread.
+     * @param opener Supplier opening the sequential collector
+     * @param query Query being collected
+     * @param workingModule Module query is operated from
+     * @param engineTimeoutNanos Time to wait for an engine
+     * @throws EngineUnavailableException No engine became
+     * available within the engine timeout
+     */
+    private ThreadedQuerySolutionCollector(Supplier<SequentialQuerySolutionCollector> opener,
+        Query query, Module workingModule, long engineTimeoutNanos)
+        throws EngineUnavailableException
+    {
+        worker = createWorker();
+        detaching = new AtomicBoolean();
+        try
+        {
+            collector = open(opener, engineTimeoutNanos);
+        }
+        catch (RuntimeException | Error e)
+        {
+            worker.shutdown();
+            throw e;
+        }
+
+        QueryLeak leak = new QueryLeak(query.getTemplate(), workingModule,
+            Thread.currentThread().getName(), QueryLeakTracker.captureOpenTrace(), true);
+        worker.scheduleWithFixedDelay(new AbandonmentCheck(this, collector, worker, leak),
+            ABANDONMENT_CHECK_SECONDS, ABANDONMENT_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Open the sequential collector on the collector thread,
+     * waiting at most the engine timeout for an engine
+     * @param opener Supplier opening the sequential collector
+     * @param engineTimeoutNanos Time to wait for an engine
+     * @return Open sequential collector
+     * @throws EngineUnavailableException No engine became
+     * available within the engine timeout
+     * @throws QueryInterruptedException Calling thread interrupted
+     * while waiting for the collector to open
+     */
+    private SequentialQuerySolutionCollector open(Supplier<SequentialQuerySolutionCollector> opener,
+        long engineTimeoutNanos) throws EngineUnavailableException, QueryInterruptedException
+    {
+        Future<SequentialQuerySolutionCollector> opening = worker.submit(opener::get);
+        try
+        {
+            return opening.get(engineTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            // The collector thread cannot be interrupted while
+            // waiting on the engine pool, so detach the collector
+            // should an engine become available after giving up
+            worker.execute(() -> detachWhenOpened(opening));
+            throw new EngineUnavailableException("No Prolog engine became available " +
+                "within " + TimeUnit.NANOSECONDS.toMillis(engineTimeoutNanos) + "ms; " +
+                "the JPL engine pool (" + PrologRuntime.ENGINE_POOL_SIZE + " engines) " +
+                "may be exhausted by attached collectors.", e);
+        }
+        catch (InterruptedException e)
+        {
+            worker.execute(() -> detachWhenOpened(opening));
+            Thread.currentThread().interrupt();
+            throw new QueryInterruptedException("Interrupted waiting on query to open.", e);
+        }
+        catch (ExecutionException e)
+        {
+            return rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Detach a collector opened after its opener stopped
+     * waiting (run on the collector thread)
+     * @param opening Opening of the collector
+     */
+    private static void detachWhenOpened(Future<SequentialQuerySolutionCollector> opening)
+    {
+        try
+        {
+            opening.get().detach();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            // Collector failed to open, nothing to detach
+        }
+    }
+
+    /**
+     * Create the daemon thread a collector is operated from
+     * @return Collector thread
+     */
+    private static ScheduledExecutorService createWorker()
+    {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable,
+                "mochalog-collector-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int solutionCount()
+    {
+        return call(collector::solutionCount);
+    }
+
+    @Override
+    public boolean hasSolutions()
+    {
+        return call(collector::hasSolutions);
+    }
+
+    @Override
+    public boolean hasSolution(int index)
+    {
+        return call(() -> collector.hasSolution(index));
+    }
+
+    @Override
+    public boolean hasSolution(QuerySolution solution)
+    {
+        return call(() -> collector.hasSolution(solution));
+    }
+
+    @Override
+    public boolean hasAllSolutions(Collection<QuerySolution> solutions)
+    {
+        return call(() -> collector.hasAllSolutions(solutions));
+    }
+
+    @Override
+    public QuerySolution fetchSolution(int index) throws NoSuchSolutionException
+    {
+        return call(() -> collector.fetchSolution(index));
+    }
+
+    @Override
+    public QuerySolution takeSolution() throws NoSuchSolutionException
+    {
+        return call(collector::takeSolution);
+    }
+
+    @Override
+    public QuerySolution fetchFirstSolution() throws NoSuchSolutionException
+    {
+        return call(collector::fetchFirstSolution);
+    }
+
+    @Override
+    public QuerySolution fetchLastSolution() throws NoSuchSolutionException
+    {
+        return call(collector::fetchLastSolution);
+    }
+
+    @Override
+    public QuerySolution[] fetchAllSolutions()
+    {
+        return call(collector::fetchAllSolutions);
+    }
+
+    @Override
+    public boolean detach()
+    {
+        // Only one call stops the collector thread; concurrent calls
+        // are queued on it behind the detachment in progress
+        if (!detaching.compareAndSet(false, true))
+        {
+            return call(collector::detach);
+        }
+
+        boolean result;
+        try
+        {
+            result = call(collector::detach);
+        }
+        catch (RuntimeException | Error e)
+        {
+            // Keep operating from the collector thread, so that a
+            // retried detach still closes the query on its engine
+            detaching.set(false);
+            throw e;
+        }
+
+        detached = true;
+        worker.shutdown();
+        return result;
+    }
+
+    /**
+     * Perform an operation on the sequential collector from the
+     * collector thread, waiting for its completion. Once detached,
+     * the sequential collector no longer accesses the engine and
+     * is operated from the calling thread.
+     * @param operation Operation to perform
+     * @param <T> Type of operation result
+     * @return Operation result
+     * @throws QueryInterruptedException Calling thread interrupted
+     * while waiting for the operation
+     */
+    private <T> T call(Callable<T> operation) throws QueryInterruptedException
+    {
+        try
+        {
+            if (!detached)
+            {
+                try
+                {
+                    return worker.submit(operation).get();
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // Collector thread only stops once the collector
+                    // is detached, so operate from the calling thread
+                }
+            }
+
+            return operation.call();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new QueryInterruptedException("Interrupted waiting on query solutions.", e);
+        }
+        catch (ExecutionException e)
+        {
+            return rethrow(e.getCause());
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            return rethrow(e);
+        }
+    }
+
+    /**
+     * Rethrow an exception raised by the sequential collector,
+     * which raises unchecked exceptions only
+     * @param cause Exception raised
+     * @param <T> Type of operation result
+     * @return Never returns
+     */
+    private static <T> T rethrow(Throwable cause)
+    {
+        if (cause instanceof RuntimeException)
+        {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error)
+        {
+            throw (Error) cause;
+        }
+
+        throw new IllegalStateException("Unexpected checked exception from collector.", cause);
+    }
+}
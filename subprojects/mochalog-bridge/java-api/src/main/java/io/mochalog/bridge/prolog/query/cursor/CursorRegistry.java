@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.cursor;
+
+import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.runtime.PrologRuntime;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Named query cursors open in a Prolog context. Each cursor holds
+ * an engine of the process-wide JPL engine pool, so the number of
+ * cursors open across every registry is capped at half of the pool
+ * (see MAX_OPEN), and each registry may be capped further. Cursors
+ * idle for longer than the idle timeout are reclaimed.
+ */
+public class CursorRegistry
+{
+    // Maximum number of cursors open across every registry (half
+    // of the engine pool, leaving the remainder to threads operating
+    // queries directly and to other collectors)
+    public static final int MAX_OPEN = PrologRuntime.ENGINE_POOL_SIZE / 2;
+    // Default maximum number of open cursors of a registry
+    public static final int DEFAULT_MAX_OPEN = MAX_OPEN;
+    // Default idle time after which cursors are reclaimed
+    public static final long DEFAULT_IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    // Executor reclaiming idle cursors of every registry
+    private static final ScheduledExecutorService REAPER =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mochalog-cursor-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    // Engines available to cursors of every registry, one
+    // held by each open (or opening) cursor
+    private static final Semaphore ENGINE_PERMITS = new Semaphore(MAX_OPEN);
+
+    // Open cursors keyed by name
+    private final Map<String, QueryCursor> cursors = new ConcurrentHashMap<>();
+    // Names of cursors being opened (guarded by the registry)
+    private final Set<String> opening = new HashSet<>();
+    // Maximum number of open cursors
+    private volatile int maxOpen = DEFAULT_MAX_OPEN;
+    // Idle time after which cursors are reclaimed
+    private volatile long idleTimeoutNanos = DEFAULT_IDLE_TIMEOUT_NANOS;
+    // Scheduled reclamation of idle cursors (null
+    // while no cursors are open)
+    private ScheduledFuture<?> reclamation;
+
+    /**
+     * Open a new named cursor over the collector supplied. The
+     * collector is opened without holding the registry lock, as
+     * opening may wait on an engine.
+     * @param name Cursor name
+     * @param opener Supplier opening the collector of the cursor
+     * @return Open cursor
+     * @throws CursorException Cursor with the given name is already
+     * open, or the maximum number of cursors are open in the registry
+     * or across every registry
+     */
+    public QueryCursor open(String name, Supplier<QuerySolutionCollector> opener)
+        throws CursorException
+    {
+        // Reclaim idle cursors before checking the cap
+        // so that abandoned cursors do not block new ones
+        reclaimIdle();
+        reserve(name);
+
+        QueryCursor cursor;
+        try
+        {
+            cursor = new QueryCursor(name, this, opener);
+        }
+        catch (RuntimeException | Error e)
+        {
+            synchronized (this)
+            {
+                opening.remove(name);
+            }
+            ENGINE_PERMITS.release();
+            throw e;
+        }
+
+        synchronized (this)
+        {
+            opening.remove(name);
+            cursors.put(name, cursor);
+
+            if (reclamation == null)
+            {
+                long period = Math.max(idleTimeoutNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+                reclamation = REAPER.scheduleWithFixedDelay(this::reclaimIdle,
+                    period, period, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Reserve a cursor name and an engine permit for
+     * a cursor about to be opened
+     * @param name Cursor name
+     * @throws CursorException Cursor with the given name is already
+     * open, or the maximum number of cursors are open
+     */
+    private synchronized void reserve(String name) throws CursorException
+    {
+        if (cursors.containsKey(name) || opening.contains(name))
+        {
+            throw new CursorException("Cursor " + name + " is already open.");
+        }
+        if (cursors.size() + opening.size() >= maxOpen)
+        {
+            throw new CursorException("Unable to open cursor " + name + ": " +
+                maxOpen + " cursors are already open.");
+        }
+        if (!ENGINE_PERMITS.tryAcquire())
+        {
+            throw new CursorException("Unable to open cursor " + name + ": " +
+                MAX_OPEN + " cursors are already open across all contexts.");
+        }
+
+        opening.add(name);
+    }
+
+    /**
+     * Get an open cursor by name
+     * @param name Cursor name
+     * @return Open cursor
+     * @throws NoSuchCursorException No cursor with the given
+     * name is open
+     */
+    public QueryCursor get(String name) throws NoSuchCursorException
+    {
+        QueryCursor cursor = cursors.get(name);
+        if (cursor == null || cursor.isClosed())
+        {
+            throw new NoSuchCursorException("Cursor " + name + " is not open.");
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Close a cursor by name
+     * @param name Cursor name
+     * @return True if the cursor was open, false otherwise.
+     */
+    public boolean close(String name)
+    {
+        QueryCursor cursor = cursors.get(name);
+        if (cursor == null)
+        {
+            return false;
+        }
+
+        cursor.close();
+        return true;
+    }
+
+    /**
+     * Close every open cursor
+     */
+    public void closeAll()
+    {
+        for (QueryCursor cursor : new ArrayList<>(cursors.values()))
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Close every cursor idle for longer than the idle timeout
+     * @return Number of cursors closed
+     */
+    public int reclaimIdle()
+    {
+        int reclaimed = 0;
+        for (QueryCursor cursor : new ArrayList<>(cursors.values()))
+        {
+            // Cursors are marked as accessed on entry to a fetch,
+            // so cursors with a fetch in progress are not idle
+            if (cursor.getIdleNanos() > idleTimeoutNanos &&
+                cursor.closeIfIdle(idleTimeoutNanos))
+            {
+                ++reclaimed;
+            }
+        }
+
+        return reclaimed;
+    }
+
+    /**
+     * Remove a closed cursor from the registry, cancelling
+     * reclamation once no cursors remain open
+     * @param cursor Closed cursor
+     */
+    synchronized void remove(QueryCursor cursor)
+    {
+        if (cursors.remove(cursor.getName(), cursor))
+        {
+            ENGINE_PERMITS.release();
+        }
+        if (cursors.isEmpty() && reclamation != null)
+        {
+            reclamation.cancel(false);
+            reclamation = null;
+        }
+    }
+
+    /**
+     * Get the number of cursors currently open
+     * @return Open cursor count
+     */
+    public int getOpenCount()
+    {
+        return cursors.size();
+    }
+
+    /**
+     * Get the number of cursors currently open (or being
+     * opened) across every registry
+     * @return Open cursor count
+     */
+    public static int getTotalOpenCount()
+    {
+        return MAX_OPEN - ENGINE_PERMITS.availablePermits();
+    }
+
+    /**
+     * Getter.
+     * @return Maximum number of open cursors
+     */
+    public int getMaxOpen()
+    {
+        return maxOpen;
+    }
+
+    /**
+     * Set the maximum number of cursors which may be open
+     * at once (cursors already open are unaffected)
+     * @param maxOpen Maximum number of open cursors
+     * @throws IllegalArgumentException Negative maximum, or a maximum
+     * exceeding the cap across every registry
+     */
+    public void setMaxOpen(int maxOpen)
+    {
+        if (maxOpen < 0 || maxOpen > MAX_OPEN)
+        {
+            throw new IllegalArgumentException("Maximum open cursors must be " +
+                "between 0 and " + MAX_OPEN + ".");
+        }
+
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Get the idle time after which cursors are reclaimed
+     * @param unit Unit of time
+     * @return Idle timeout
+     */
+    public long getIdleTimeout(TimeUnit unit)
+    {
+        return unit.convert(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Set the idle time after which cursors are reclaimed
+     * (the interval between checks for idle cursors is only
+     * adjusted once no cursors remain open)
+     * @param timeout Idle timeout
+     * @param unit Unit of time
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit)
+    {
+        this.idleTimeoutNanos = unit.toNanos(timeout);
+    }
+}
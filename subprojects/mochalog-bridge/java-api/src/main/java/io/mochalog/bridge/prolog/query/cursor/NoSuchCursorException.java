@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.cursor;
+
+/**
+ * Exception indicating that a named query cursor is not open,
+ * having never been opened, been closed or been reclaimed
+ * after idling
+ */
+public class NoSuchCursorException extends CursorException
+{
+    /**
+     * Constructor.
+     */
+    public NoSuchCursorException()
+    {
+        super();
+    }
+
+    /**
+     * Constructor.
+     * @param message Exception message
+     */
+    public NoSuchCursorException(String message)
+    {
+        super(message);
+    }
+}
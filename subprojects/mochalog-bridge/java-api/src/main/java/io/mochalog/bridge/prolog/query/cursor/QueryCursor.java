@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.cursor;
+
+import io.mochalog.bridge.prolog.query.QuerySolution;
+import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Named, resumable position in the solutions to an open query,
+ * allowing solutions to be fetched a page at a time across
+ * separate requests without re-proving earlier solutions.
+ * <p>
+ * Cursors are opened over collectors operating on an engine of
+ * their own (see ThreadedQuerySolutionCollector), so they may be
+ * advanced from any thread regardless of other open queries.
+ * Closing the cursor detaches the collector, returning its
+ * engine to the pool.
+ */
+public class QueryCursor implements AutoCloseable
+{
+    // Name of the cursor within its registry
+    private final String name;
+    // Registry the cursor is open in
+    private final CursorRegistry registry;
+    // Collector of the solutions to the cursor query
+    private final QuerySolutionCollector collector;
+
+    // Number of solutions fetched through the cursor
+    private int position;
+    // Flag indicating whether all solutions have been fetched
+    private boolean exhausted;
+    // Flag indicating whether the cursor has been closed
+    private volatile boolean closed;
+    // Time of the most recent access to the cursor
+    private volatile long lastAccess;
+
+    /**
+     * Constructor.
+     * @param name Cursor name
+     * @param registry Registry the cursor is open in
+     * @param opener Supplier opening the cursor collector
+     */
+    QueryCursor(String name, CursorRegistry registry, Supplier<QuerySolutionCollector> opener)
+    {
+        this.name = name;
+        this.registry = registry;
+        this.collector = opener.get();
+
+        lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Getter.
+     * @return Name of the cursor
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Get the number of solutions fetched through
+     * the cursor so far
+     * @return Index of the next solution to fetch
+     */
+    public synchronized int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Check whether all solutions have been fetched
+     * through the cursor
+     * @return True if no solutions remain, false otherwise.
+     */
+    public synchronized boolean isExhausted()
+    {
+        return exhausted;
+    }
+
+    /**
+     * Check whether the cursor has been closed
+     * @return True if closed, false otherwise.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Get the time elapsed since the cursor was last accessed
+     * @return Idle time in nanoseconds
+     */
+    public long getIdleNanos()
+    {
+        return System.nanoTime() - lastAccess;
+    }
+
+    /**
+     * Fetch the next page of solutions, advancing the cursor.
+     * Only the solutions of the page are proved, and solutions
+     * are not retained by the cursor once returned.
+     * @param size Maximum number of solutions to fetch
+     * @return Solutions in order (fewer than size given
+     * the solutions are exhausted)
+     * @throws NoSuchCursorException Cursor has been closed
+     * @throws IllegalArgumentException Negative page size
+     */
+    public List<QuerySolution> fetch(int size)
+        throws NoSuchCursorException
+    {
+        // Mark the cursor as accessed before waiting on any
+        // fetch in progress, so that it is not reclaimed as
+        // idle while the fetch is pending
+        lastAccess = System.nanoTime();
+        synchronized (this)
+        {
+            return fetchPage(size);
+        }
+    }
+
+    /**
+     * Fetch the next page of solutions while holding
+     * the cursor lock
+     * @param size Maximum number of solutions to fetch
+     * @return Solutions in order
+     * @throws NoSuchCursorException Cursor has been closed
+     */
+    private List<QuerySolution> fetchPage(int size) throws NoSuchCursorException
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Page size must not be negative.");
+        }
+        if (closed)
+        {
+            throw new NoSuchCursorException("Cursor " + name + " has been closed.");
+        }
+
+        if (exhausted || size == 0)
+        {
+            return Collections.emptyList();
+        }
+
+        // Take rather than fetch solutions so that the
+        // collector does not retain earlier pages
+        List<QuerySolution> page = new ArrayList<>(size);
+        try
+        {
+            while (page.size() < size)
+            {
+                page.add(collector.takeSolution());
+                ++position;
+            }
+        }
+        catch (NoSuchSolutionException e)
+        {
+            exhausted = true;
+        }
+
+        lastAccess = System.nanoTime();
+        return page;
+    }
+
+    /**
+     * Close the cursor given it has been idle for longer than
+     * the given timeout. Idleness is checked again while holding
+     * the cursor lock, so a cursor accessed since it was found
+     * idle (or with a fetch in progress) is not closed.
+     * @param idleTimeoutNanos Idle timeout in nanoseconds
+     * @return True if the cursor was closed, false otherwise.
+     */
+    boolean closeIfIdle(long idleTimeoutNanos)
+    {
+        synchronized (this)
+        {
+            if (closed || getIdleNanos() <= idleTimeoutNanos)
+            {
+                return false;
+            }
+
+            closed = true;
+            collector.detach();
+        }
+
+        registry.remove(this);
+        return true;
+    }
+
+    /**
+     * Close the cursor, detaching its collector and
+     * removing it from its registry
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+
+            closed = true;
+            collector.detach();
+        }
+
+        registry.remove(this);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.mapping;
+
+import io.mochalog.util.exception.UncheckedMochalogException;
+
+/**
+ * Exception indicating that query solutions could not be
+ * mapped onto instances of a Java type
+ */
+public class MappingException extends UncheckedMochalogException
+{
+    /**
+     * Constructor.
+     */
+    public MappingException()
+    {
+        super();
+    }
+
+    /**
+     * Constructor.
+     * @param message Exception message
+     */
+    public MappingException(String message)
+    {
+        super(message);
+    }
+
+    /**
+     * Constructor.
+     * @param message Exception message
+     * @param cause Exception cause
+     */
+    public MappingException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.mapping;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reflective access to Java record classes, allowing records
+ * to be mapped on Java 16 or later while compiling against
+ * earlier Java versions
+ */
+final class RecordSupport
+{
+    // Class.isRecord (null if records are unsupported)
+    private static final Method IS_RECORD;
+    // Class.getRecordComponents
+    private static final Method GET_RECORD_COMPONENTS;
+
+    static
+    {
+        Method isRecord = null;
+        Method getRecordComponents = null;
+        try
+        {
+            isRecord = Class.class.getMethod("isRecord");
+            getRecordComponents = Class.class.getMethod("getRecordComponents");
+        }
+        catch (NoSuchMethodException e)
+        {
+            // Records unsupported by running Java version
+        }
+
+        IS_RECORD = isRecord;
+        GET_RECORD_COMPONENTS = getRecordComponents;
+    }
+
+    /**
+     * Constructor.
+     */
+    private RecordSupport()
+    {
+
+    }
+
+    /**
+     * Check whether a class is a record
+     * @param type Class to check
+     * @return True if record, false otherwise.
+     */
+    static boolean isRecord(Class<?> type)
+    {
+        return IS_RECORD != null && (Boolean) invoke(IS_RECORD, type);
+    }
+
+    /**
+     * Get the names of the components of a record
+     * @param type Record class
+     * @return Component names in declaration order
+     */
+    static String[] getComponentNames(Class<?> type)
+    {
+        Object[] components = (Object[]) invoke(GET_RECORD_COMPONENTS, type);
+        String[] names = new String[components.length];
+        for (int i = 0; i < components.length; ++i)
+        {
+            names[i] = (String) invoke(getComponentMethod(components[i], "getName"), components[i]);
+        }
+
+        return names;
+    }
+
+    /**
+     * Get the canonical constructor of a record
+     * @param type Record class
+     * @return Constructor taking each component in
+     * declaration order
+     * @throws MappingException Constructor not found
+     */
+    static Constructor<?> getCanonicalConstructor(Class<?> type) throws MappingException
+    {
+        Object[] components = (Object[]) invoke(GET_RECORD_COMPONENTS, type);
+        Class<?>[] types = new Class<?>[components.length];
+        for (int i = 0; i < components.length; ++i)
+        {
+            types[i] = (Class<?>) invoke(getComponentMethod(components[i], "getType"), components[i]);
+        }
+
+        try
+        {
+            return type.getDeclaredConstructor(types);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new MappingException("Record " + type.getName() +
+                " has no canonical constructor", e);
+        }
+    }
+
+    /**
+     * Get a method of a java.lang.reflect.RecordComponent
+     * @param component Record component
+     * @param name Method name
+     * @return Method
+     */
+    private static Method getComponentMethod(Object component, String name)
+    {
+        try
+        {
+            return component.getClass().getMethod(name);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new MappingException("Unable to inspect record component", e);
+        }
+    }
+
+    /**
+     * Invoke a reflective method taking no arguments
+     * @param method Method to invoke
+     * @param target Target object
+     * @return Result
+     */
+    private static Object invoke(Method method, Object target)
+    {
+        try
+        {
+            return method.invoke(target);
+        }
+        catch (IllegalAccessException | InvocationTargetException e)
+        {
+            throw new MappingException("Unable to inspect record " + target, e);
+        }
+    }
+}
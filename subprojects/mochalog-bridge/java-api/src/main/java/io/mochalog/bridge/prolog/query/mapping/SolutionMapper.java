@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.mapping;
+
+import io.mochalog.bridge.prolog.query.QuerySolution;
+
+import org.jpl7.Term;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper of query solutions onto instances of a Java type.
+ * <p>
+ * Each record component (or non-static, non-transient field of
+ * other classes, which require a no-argument constructor) is bound
+ * to the solution variable of the same name with its first letter
+ * capitalised (e.g. component price to variable Price). Values are
+ * converted according to the component type: primitives and their
+ * boxed types, String, BigInteger, enums (from atoms), org.jpl7.Term
+ * and nested records (from compounds whose arguments correspond to
+ * the record components in order).
+ * <p>
+ * Mappers are composed of method handles once per type and cached,
+ * so solutions are mapped without reflection.
+ * @param <T> Mapped type
+ */
+public final class SolutionMapper<T>
+{
+    // Mappers cached per type
+    private static final ClassValue<SolutionMapper<?>> MAPPERS = new ClassValue<SolutionMapper<?>>()
+    {
+        @Override
+        protected SolutionMapper<?> computeValue(Class<?> type)
+        {
+            return new SolutionMapper<>(type);
+        }
+    };
+
+    // QuerySolution.get(String) handle
+    private static final MethodHandle SOLUTION_GET;
+
+    static
+    {
+        try
+        {
+            SOLUTION_GET = MethodHandles.lookup().findVirtual(QuerySolution.class, "get",
+                MethodType.methodType(Term.class, String.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Mapped type
+    private final Class<T> type;
+    // Handle of type (QuerySolution)Object constructing a mapped
+    // instance (from every variable given a record, otherwise
+    // with no values)
+    private final MethodHandle constructor;
+    // Handles of type (Object, QuerySolution)void setting each
+    // field from its variable (empty given a record)
+    private final MethodHandle[] setters;
+
+    /**
+     * Constructor.
+     * @param type Mapped type
+     * @throws MappingException Type cannot be mapped
+     */
+    private SolutionMapper(Class<T> type) throws MappingException
+    {
+        this.type = type;
+
+        if (RecordSupport.isRecord(type))
+        {
+            Constructor<?> canonical = RecordSupport.getCanonicalConstructor(type);
+            String[] names = RecordSupport.getComponentNames(type);
+            Class<?>[] types = canonical.getParameterTypes();
+
+            MethodHandle[] extractors = new MethodHandle[names.length];
+            for (int i = 0; i < extractors.length; ++i)
+            {
+                extractors[i] = getExtractor(names[i], types[i]);
+            }
+
+            constructor = TermConverters.construct(canonical, extractors, QuerySolution.class)
+                .asType(MethodType.methodType(Object.class, QuerySolution.class));
+            setters = new MethodHandle[0];
+        }
+        else
+        {
+            Constructor<?> noArguments;
+            try
+            {
+                noArguments = type.getDeclaredConstructor();
+            }
+            catch (NoSuchMethodException e)
+            {
+                throw new MappingException("Type " + type.getName() +
+                    " is neither a record nor has a no-argument constructor", e);
+            }
+
+            constructor = TermConverters.construct(noArguments, new MethodHandle[0], QuerySolution.class)
+                .asType(MethodType.methodType(Object.class, QuerySolution.class));
+            setters = getSetters(type);
+        }
+    }
+
+    /**
+     * Get the mapper of a given type
+     * @param type Mapped type
+     * @param <T> Mapped type
+     * @return Solution mapper
+     * @throws MappingException Type cannot be mapped
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SolutionMapper<T> of(Class<T> type) throws MappingException
+    {
+        return (SolutionMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * Map a query solution onto a new instance
+     * @param solution Query solution
+     * @return Mapped instance
+     * @throws MappingException Solution could not be mapped
+     */
+    public T map(QuerySolution solution) throws MappingException
+    {
+        try
+        {
+            Object instance = constructor.invokeExact(solution);
+            for (MethodHandle setter : setters)
+            {
+                setter.invokeExact(instance, solution);
+            }
+
+            return type.cast(instance);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new MappingException("Unable to map solution onto " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Getter.
+     * @return Mapped type
+     */
+    public Class<T> getType()
+    {
+        return type;
+    }
+
+    /**
+     * Get handles setting each mapped field of a class
+     * (and its superclasses) from its variable
+     * @param type Mapped class
+     * @return Setter handles
+     * @throws MappingException Field is inaccessible or
+     * of an unsupported type
+     */
+    private static MethodHandle[] getSetters(Class<?> type) throws MappingException
+    {
+        List<MethodHandle> setters = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+        {
+            for (Field field : c.getDeclaredFields())
+            {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) ||
+                    field.isSynthetic())
+                {
+                    continue;
+                }
+
+                MethodHandle setter;
+                try
+                {
+                    field.setAccessible(true);
+                    setter = MethodHandles.lookup().unreflectSetter(field);
+                }
+                catch (IllegalAccessException | RuntimeException e)
+                {
+                    throw new MappingException("Field " + field.getName() + " of " +
+                        c.getName() + " is inaccessible", e);
+                }
+
+                // (instance, solution) -> instance.field = convert(solution.get(Variable))
+                MethodHandle extractor = getExtractor(field.getName(), field.getType());
+                setters.add(MethodHandles.filterArguments(setter, 1, extractor)
+                    .asType(MethodType.methodType(void.class, Object.class, QuerySolution.class)));
+            }
+        }
+
+        return setters.toArray(new MethodHandle[setters.size()]);
+    }
+
+    /**
+     * Get a handle extracting and converting the value of the
+     * variable corresponding to a component from a solution
+     * @param component Component (or field) name
+     * @param componentType Component type
+     * @return Handle of type (QuerySolution)componentType
+     * @throws MappingException Component type is not supported
+     */
+    private static MethodHandle getExtractor(String component, Class<?> componentType)
+        throws MappingException
+    {
+        String variable = Character.toUpperCase(component.charAt(0)) + component.substring(1);
+        MethodHandle get = MethodHandles.insertArguments(SOLUTION_GET, 1, variable);
+        return MethodHandles.filterReturnValue(get, TermConverters.get(componentType));
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.mapping;
+
+import org.jpl7.Term;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Method handles converting Prolog terms into Java values
+ * of a given type, composed once per mapped type so that
+ * solutions may be mapped without reflection
+ */
+final class TermConverters
+{
+    // Conversion handles keyed by target type
+    private static final Map<Class<?>, MethodHandle> CONVERTERS;
+    // Term.arg(int) handle
+    private static final MethodHandle TERM_ARG;
+    // Compound arity validation handle
+    private static final MethodHandle CHECK_ARITY;
+    // Enum constant conversion handle
+    private static final MethodHandle TO_ENUM;
+
+    static
+    {
+        CONVERTERS = new HashMap<>();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try
+        {
+            register(lookup, "toInt", int.class, Integer.class);
+            register(lookup, "toLong", long.class, Long.class);
+            register(lookup, "toDouble", double.class, Double.class);
+            register(lookup, "toFloat", float.class, Float.class);
+            register(lookup, "toShort", short.class, Short.class);
+            register(lookup, "toByte", byte.class, Byte.class);
+            register(lookup, "toBoolean", boolean.class, Boolean.class);
+            register(lookup, "toChar", char.class, Character.class);
+            register(lookup, "toText", String.class, CharSequence.class);
+            CONVERTERS.put(BigInteger.class, lookup.findStatic(TermConverters.class, "toBigInteger",
+                MethodType.methodType(BigInteger.class, Term.class)));
+
+            TERM_ARG = lookup.findVirtual(Term.class, "arg",
+                MethodType.methodType(Term.class, int.class));
+            CHECK_ARITY = lookup.findStatic(TermConverters.class, "checkArity",
+                MethodType.methodType(Term.class, int.class, Term.class));
+            TO_ENUM = lookup.findStatic(TermConverters.class, "toEnum",
+                MethodType.methodType(Object.class, Class.class, Term.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    private TermConverters()
+    {
+
+    }
+
+    /**
+     * Get a method handle converting a Prolog term into
+     * a Java value of the given type. Records are converted
+     * from compounds, their arguments corresponding to the
+     * record components in order.
+     * @param type Target type
+     * @return Conversion handle of type (Term)type
+     * @throws MappingException Type is not supported
+     */
+    static MethodHandle get(Class<?> type) throws MappingException
+    {
+        if (type.isAssignableFrom(Term.class))
+        {
+            // Terms are passed through as is
+            return MethodHandles.identity(Term.class)
+                .asType(MethodType.methodType(type, Term.class));
+        }
+
+        MethodHandle converter = CONVERTERS.get(type);
+        if (converter != null)
+        {
+            return converter;
+        }
+        else if (type.isEnum())
+        {
+            return MethodHandles.insertArguments(TO_ENUM, 0, type)
+                .asType(MethodType.methodType(type, Term.class));
+        }
+        else if (RecordSupport.isRecord(type))
+        {
+            Constructor<?> constructor = RecordSupport.getCanonicalConstructor(type);
+            Class<?>[] componentTypes = constructor.getParameterTypes();
+
+            MethodHandle[] extractors = new MethodHandle[componentTypes.length];
+            for (int i = 0; i < extractors.length; ++i)
+            {
+                // Compound arguments are indexed from 1
+                MethodHandle argument = MethodHandles.insertArguments(TERM_ARG, 1, i + 1);
+                extractors[i] = MethodHandles.filterReturnValue(argument, get(componentTypes[i]));
+            }
+
+            MethodHandle fromArguments = construct(constructor, extractors, Term.class);
+            return MethodHandles.filterArguments(fromArguments, 0,
+                MethodHandles.insertArguments(CHECK_ARITY, 0, extractors.length));
+        }
+
+        throw new MappingException("Mapping of Prolog terms to type " +
+            type.getName() + " is not supported.");
+    }
+
+    /**
+     * Compose a constructor with handles extracting each
+     * of its arguments from a single source value
+     * @param constructor Constructor to invoke
+     * @param extractors Handles of type (source)parameter for
+     * each constructor parameter
+     * @param source Source value type
+     * @return Handle of type (source)instance
+     * @throws MappingException Constructor is inaccessible
+     */
+    static MethodHandle construct(Constructor<?> constructor, MethodHandle[] extractors,
+        Class<?> source) throws MappingException
+    {
+        MethodHandle handle;
+        try
+        {
+            constructor.setAccessible(true);
+            handle = MethodHandles.lookup().unreflectConstructor(constructor);
+        }
+        catch (IllegalAccessException | RuntimeException e)
+        {
+            throw new MappingException("Constructor of " +
+                constructor.getDeclaringClass().getName() + " is inaccessible", e);
+        }
+
+        // Pass the single source value to every extractor
+        MethodHandle extracted = MethodHandles.filterArguments(handle, 0, extractors);
+        return MethodHandles.permuteArguments(extracted,
+            MethodType.methodType(handle.type().returnType(), source),
+            new int[extractors.length]);
+    }
+
+    /**
+     * Register a conversion method for a type and
+     * its boxed (or otherwise wider) type
+     * @param lookup Lookup of conversion methods
+     * @param name Conversion method name
+     * @param type Type returned by conversion method
+     * @param boxedType Type converted to through the method
+     * @throws NoSuchMethodException Conversion method not found
+     * @throws IllegalAccessException Conversion method inaccessible
+     */
+    private static void register(MethodHandles.Lookup lookup, String name,
+        Class<?> type, Class<?> boxedType) throws NoSuchMethodException, IllegalAccessException
+    {
+        MethodHandle converter = lookup.findStatic(TermConverters.class, name,
+            MethodType.methodType(type, Term.class));
+
+        CONVERTERS.put(type, converter);
+        CONVERTERS.put(boxedType, converter.asType(MethodType.methodType(boxedType, Term.class)));
+    }
+
+    /**
+     * Validate that a term is a compound of the given arity
+     * @param arity Expected arity
+     * @param term Prolog term
+     * @return Term
+     * @throws MappingException Term is not a compound
+     * of the given arity
+     */
+    private static Term checkArity(int arity, Term term) throws MappingException
+    {
+        if (!term.isCompound() || term.arity() != arity)
+        {
+            throw new MappingException("Expected compound of arity " + arity +
+                " but got " + term);
+        }
+
+        return term;
+    }
+
+    /**
+     * Convert an atom into an enum constant of the same name
+     * @param type Enum type
+     * @param term Prolog term
+     * @return Enum constant
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object toEnum(Class type, Term term)
+    {
+        return Enum.valueOf(type, term.name());
+    }
+
+    /**
+     * Convert a term into an int value
+     * @param term Prolog term
+     * @return Integer value
+     */
+    private static int toInt(Term term)
+    {
+        return term.intValue();
+    }
+
+    /**
+     * Convert a term into a long value
+     * @param term Prolog term
+     * @return Long value
+     */
+    private static long toLong(Term term)
+    {
+        return term.longValue();
+    }
+
+    /**
+     * Convert a term into a double value
+     * @param term Prolog term
+     * @return Double value
+     */
+    private static double toDouble(Term term)
+    {
+        return term.doubleValue();
+    }
+
+    /**
+     * Convert a term into a float value
+     * @param term Prolog term
+     * @return Float value
+     */
+    private static float toFloat(Term term)
+    {
+        return term.floatValue();
+    }
+
+    /**
+     * Convert a term into a short value
+     * @param term Prolog term
+     * @return Short value
+     */
+    private static short toShort(Term term)
+    {
+        return (short) term.intValue();
+    }
+
+    /**
+     * Convert a term into a byte value
+     * @param term Prolog term
+     * @return Byte value
+     */
+    private static byte toByte(Term term)
+    {
+        return (byte) term.intValue();
+    }
+
+    /**
+     * Convert a term into a boolean value
+     * @param term Prolog term
+     * @return True if term is the atom true, false otherwise.
+     */
+    private static boolean toBoolean(Term term)
+    {
+        return term.isAtom() && "true".equals(term.name());
+    }
+
+    /**
+     * Convert a term into a char value
+     * @param term Prolog term
+     * @return Character code of an integer term, otherwise
+     * the first character of an atom or string
+     */
+    private static char toChar(Term term)
+    {
+        return term.isInteger() ? (char) term.intValue() : term.name().charAt(0);
+    }
+
+    /**
+     * Convert a term into text
+     * @param term Prolog term
+     * @return Name of an atom or string term, otherwise
+     * the textual form of the term
+     */
+    private static String toText(Term term)
+    {
+        return term.isAtom() ? term.name() : term.toString();
+    }
+
+    /**
+     * Convert a term into a big integer value
+     * @param term Prolog term
+     * @return Integer value
+     */
+    private static BigInteger toBigInteger(Term term)
+    {
+        return term.isBigInteger() ? term.bigValue() : BigInteger.valueOf(term.longValue());
+    }
+}
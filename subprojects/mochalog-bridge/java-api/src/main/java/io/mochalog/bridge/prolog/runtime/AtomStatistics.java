@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+/**
+ * Snapshot of the state of the process-wide SWI-Prolog atom
+ * table and of atom garbage collection
+ */
+public class AtomStatistics
+{
+    // Number of atoms in the atom table
+    private final long atoms;
+    // Memory used by atom text in bytes
+    private final long atomSpace;
+    // Number of atom garbage collections performed
+    private final long collections;
+    // Number of atoms reclaimed by atom garbage collection
+    private final long reclaimed;
+    // Time spent in atom garbage collection in milliseconds
+    private final long collectionMillis;
+
+    /**
+     * Constructor.
+     * @param atoms Number of atoms
+     * @param atomSpace Atom text memory usage
+     * @param collections Atom garbage collections performed
+     * @param reclaimed Atoms reclaimed
+     * @param collectionMillis Time spent collecting atoms
+     */
+    public AtomStatistics(long atoms, long atomSpace, long collections,
+        long reclaimed, long collectionMillis)
+    {
+        this.atoms = atoms;
+        this.atomSpace = atomSpace;
+        this.collections = collections;
+        this.reclaimed = reclaimed;
+        this.collectionMillis = collectionMillis;
+    }
+
+    /**
+     * Getter.
+     * @return Number of atoms in the atom table
+     */
+    public long getAtoms()
+    {
+        return atoms;
+    }
+
+    /**
+     * Getter.
+     * @return Memory used by atom text in bytes
+     */
+    public long getAtomSpace()
+    {
+        return atomSpace;
+    }
+
+    /**
+     * Getter.
+     * @return Number of atom garbage collections performed
+     */
+    public long getCollections()
+    {
+        return collections;
+    }
+
+    /**
+     * Getter.
+     * @return Number of atoms reclaimed by atom garbage collection
+     */
+    public long getReclaimed()
+    {
+        return reclaimed;
+    }
+
+    /**
+     * Getter.
+     * @return Time spent in atom garbage collection in milliseconds
+     */
+    public long getCollectionMillis()
+    {
+        return collectionMillis;
+    }
+
+    /**
+     * Get the change in atom table state since an
+     * earlier snapshot
+     * @param earlier Earlier snapshot
+     * @return Difference between snapshots (atom count and
+     * space may be negative given atoms were reclaimed)
+     */
+    public AtomStatistics since(AtomStatistics earlier)
+    {
+        return new AtomStatistics(atoms - earlier.atoms, atomSpace - earlier.atomSpace,
+            collections - earlier.collections, reclaimed - earlier.reclaimed,
+            collectionMillis - earlier.collectionMillis);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("atoms=%d atomSpace=%d collections=%d reclaimed=%d time=%dms",
+            atoms, atomSpace, collections, reclaimed, collectionMillis);
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.LatencyHistogram;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
+import io.mochalog.bridge.prolog.query.Query;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler moving Prolog garbage collection out of request
+ * paths by collecting during idle periods, or on a fixed cadence
+ * regardless of activity.
+ * <p>
+ * Query activity is observed through the query metrics interface;
+ * install the scheduler as (or alongside, through
+ * {@link io.mochalog.bridge.prolog.metrics.CompositeQueryMetrics})
+ * the metrics of each context it should observe. Collectors left
+ * attached and garbage collected are reported closed once found
+ * unreachable, so leaked queries do not hold off idle collection.
+ * Collections are performed on a dedicated daemon thread, and the
+ * pause of each collection is recorded. Failed collections are
+ * recorded rather than stopping the scheduler.
+ */
+public class GarbageCollectionScheduler implements QueryMetrics, AutoCloseable
+{
+    /**
+     * Kinds of garbage collection performed by the scheduler
+     */
+    public enum Collection
+    {
+        // Stack garbage collection (garbage_collect/0) - only
+        // collects the stacks of the engine of the collecting thread
+        STACKS,
+        // Atom garbage collection (garbage_collect_atoms/0)
+        ATOMS,
+        // Clause garbage collection (garbage_collect_clauses/0)
+        CLAUSES
+    }
+
+    /**
+     * Facilitates the building of GarbageCollectionScheduler
+     * instances
+     */
+    public static class Builder
+    {
+        // Minimum time without open queries before
+        // collecting, in nanoseconds
+        private long idleNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        // Maximum time between collections regardless of
+        // activity, in nanoseconds (0 to only collect when idle)
+        private long periodNanos;
+        // Interval at which idleness is checked, in nanoseconds
+        private long pollNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        // Kinds of collection performed
+        private final Set<Collection> collections =
+            EnumSet.of(Collection.ATOMS, Collection.CLAUSES);
+        // Flag indicating whether automatic atom garbage
+        // collection should be disabled
+        private boolean suppressAutomaticAtomCollection;
+
+        /**
+         * Set the time without open queries after which
+         * collection is performed
+         * @param idle Idle time
+         * @param unit Unit of idle time
+         * @return Current builder
+         */
+        public Builder setIdleThreshold(long idle, TimeUnit unit)
+        {
+            this.idleNanos = unit.toNanos(idle);
+            return this;
+        }
+
+        /**
+         * Set the maximum time between collections, after which
+         * collection is performed regardless of activity
+         * @param period Collection period (0 to only collect when idle)
+         * @param unit Unit of period
+         * @return Current builder
+         */
+        public Builder setPeriod(long period, TimeUnit unit)
+        {
+            this.periodNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * Set the interval at which idleness is checked
+         * @param poll Poll interval
+         * @param unit Unit of interval
+         * @return Current builder
+         */
+        public Builder setPollInterval(long poll, TimeUnit unit)
+        {
+            this.pollNanos = unit.toNanos(poll);
+            return this;
+        }
+
+        /**
+         * Set whether a kind of collection is performed (atom and
+         * clause collection by default). Stack collection only applies
+         * to the engine of the collecting thread, so is only of use
+         * with {@link GarbageCollectionScheduler#collectNow()}.
+         * @param collection Kind of collection
+         * @param enabled True to perform, false otherwise.
+         * @return Current builder
+         */
+        public Builder setCollection(Collection collection, boolean enabled)
+        {
+            if (enabled)
+            {
+                collections.add(collection);
+            }
+            else
+            {
+                collections.remove(collection);
+            }
+            return this;
+        }
+
+        /**
+         * Set whether automatic atom garbage collection is disabled
+         * while the scheduler runs, leaving atom collection solely
+         * to the scheduler
+         * @param suppress True to disable automatic collection,
+         * false otherwise.
+         * @return Current builder
+         */
+        public Builder setSuppressAutomaticAtomCollection(boolean suppress)
+        {
+            this.suppressAutomaticAtomCollection = suppress;
+            return this;
+        }
+
+        /**
+         * Build the scheduler (not yet started)
+         * @return Constructed GarbageCollectionScheduler
+         */
+        public GarbageCollectionScheduler build()
+        {
+            return new GarbageCollectionScheduler(this);
+        }
+    }
+
+    // Minimum time without open queries before collecting
+    private final long idleNanos;
+    // Maximum time between collections (0 if unbounded)
+    private final long periodNanos;
+    // Interval at which idleness is checked
+    private final long pollNanos;
+    // Kinds of collection performed
+    private final Set<Collection> collections;
+    // Flag indicating whether automatic atom collection is disabled
+    private final boolean suppressAutomaticAtomCollection;
+    // Pauses of each kind of collection
+    private final Map<Collection, LatencyHistogram> pauses;
+
+    // Number of queries currently open
+    private final AtomicInteger openQueries = new AtomicInteger();
+    // Number of collection cycles performed
+    private final AtomicLong cycles = new AtomicLong();
+    // Number of scheduled collection cycles which failed
+    private final AtomicLong failures = new AtomicLong();
+    // Most recent failure of a scheduled collection
+    private volatile RuntimeException lastFailure;
+    // Time of the most recent query activity
+    private volatile long lastActivity = System.nanoTime();
+    // Time of the most recent collection
+    private volatile long lastCollection = System.nanoTime();
+    // Executor performing collections
+    private ScheduledExecutorService executor;
+    // Automatic atom collection margin prior to suppression
+    private volatile long previousAtomCollectionMargin;
+
+    /**
+     * Private constructor.
+     * @param builder Builder to construct from
+     */
+    private GarbageCollectionScheduler(Builder builder)
+    {
+        idleNanos = builder.idleNanos;
+        periodNanos = builder.periodNanos;
+        pollNanos = builder.pollNanos;
+        collections = EnumSet.copyOf(builder.collections);
+        suppressAutomaticAtomCollection = builder.suppressAutomaticAtomCollection;
+
+        pauses = new EnumMap<>(Collection.class);
+        for (Collection collection : Collection.values())
+        {
+            pauses.put(collection, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Start checking for collection opportunities
+     * on a dedicated daemon thread
+     */
+    public synchronized void start()
+    {
+        if (executor != null)
+        {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mochalog-gc-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (suppressAutomaticAtomCollection)
+        {
+            executor.execute(() -> {
+                previousAtomCollectionMargin = PrologRuntime.getAtomCollectionMargin();
+                PrologRuntime.setAtomCollectionMargin(0);
+            });
+        }
+        executor.scheduleWithFixedDelay(this::poll, pollNanos, pollNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop the scheduler, restoring automatic atom
+     * collection if it was disabled
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (executor == null)
+        {
+            return;
+        }
+
+        if (suppressAutomaticAtomCollection)
+        {
+            executor.execute(() ->
+                PrologRuntime.setAtomCollectionMargin(previousAtomCollectionMargin));
+        }
+        executor.shutdown();
+        executor = null;
+    }
+
+    /**
+     * Check whether collection is due, collecting if so
+     */
+    private void poll()
+    {
+        long now = System.nanoTime();
+        boolean idle = openQueries.get() == 0 &&
+            now - lastActivity >= idleNanos &&
+            lastActivity - lastCollection > 0;
+        boolean overdue = periodNanos > 0 && now - lastCollection >= periodNanos;
+
+        if (idle || overdue)
+        {
+            // Exceptions escaping a scheduled task cancel all
+            // of its future runs, so record failures instead
+            try
+            {
+                collectNow();
+            }
+            catch (RuntimeException e)
+            {
+                failures.incrementAndGet();
+                lastFailure = e;
+                // Wait for further activity or the next
+                // period before retrying
+                lastCollection = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Perform all enabled kinds of collection immediately
+     * on the calling thread
+     */
+    public void collectNow()
+    {
+        for (Collection collection : collections)
+        {
+            long start = System.nanoTime();
+            switch (collection)
+            {
+                case STACKS:
+                    PrologRuntime.collectGarbage();
+                    break;
+                case ATOMS:
+                    PrologRuntime.collectAtoms();
+                    break;
+                case CLAUSES:
+                    PrologRuntime.collectClauses();
+                    break;
+            }
+            pauses.get(collection).record(System.nanoTime() - start);
+        }
+
+        lastCollection = System.nanoTime();
+        cycles.incrementAndGet();
+    }
+
+    /**
+     * Get the number of collection cycles performed, each
+     * performing all enabled kinds of collection
+     * @return Collection cycle count
+     */
+    public long getCollectionCount()
+    {
+        return cycles.get();
+    }
+
+    /**
+     * Get the number of scheduled collection cycles which failed
+     * @return Failed collection cycle count
+     */
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Get the most recent failure of a scheduled collection
+     * @return Exception raised (null if none failed)
+     */
+    public RuntimeException getLastFailure()
+    {
+        return lastFailure;
+    }
+
+    /**
+     * Get the pauses recorded for a kind of collection
+     * performed by the scheduler
+     * @param collection Kind of collection
+     * @return Pause histogram
+     */
+    public LatencyHistogram getPauses(Collection collection)
+    {
+        return pauses.get(collection);
+    }
+
+    @Override
+    public void collectorOpened(Query query, Module module)
+    {
+        openQueries.incrementAndGet();
+        lastActivity = System.nanoTime();
+    }
+
+    @Override
+    public void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+        openQueries.decrementAndGet();
+        lastActivity = System.nanoTime();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import org.jpl7.Term;
+
+/**
+ * Snapshot of the memory usage of a Prolog engine and the
+ * shared program space. Stack and space values are in bytes,
+ * with UNSUPPORTED given the value is not reported by the
+ * running SWI-Prolog version.
+ */
+public class MemoryStatistics
+{
+    // Value of statistics unsupported by SWI-Prolog
+    public static final long UNSUPPORTED = -1;
+
+    // Global stack usage
+    private final long globalUsed;
+    // Local stack usage
+    private final long localUsed;
+    // Trail stack usage
+    private final long trailUsed;
+    // Combined stack limit
+    private final long stackLimit;
+    // Table space limit
+    private final long tableSpace;
+    // Number of clauses in the program
+    private final long clauses;
+    // Memory used by the program (clauses and predicates)
+    private final long programSpace;
+    // Memory allocated on the heap
+    private final long heapUsed;
+    // Number of atoms in the atom table
+    private final long atoms;
+    // Memory used by atom text
+    private final long atomSpace;
+
+    /**
+     * Constructor.
+     * @param globalUsed Global stack usage
+     * @param localUsed Local stack usage
+     * @param trailUsed Trail stack usage
+     * @param stackLimit Combined stack limit
+     * @param tableSpace Table space limit
+     * @param clauses Number of clauses
+     * @param programSpace Program memory usage
+     * @param heapUsed Heap memory usage
+     * @param atoms Number of atoms
+     * @param atomSpace Atom text memory usage
+     */
+    public MemoryStatistics(long globalUsed, long localUsed, long trailUsed,
+        long stackLimit, long tableSpace, long clauses, long programSpace,
+        long heapUsed, long atoms, long atomSpace)
+    {
+        this.globalUsed = globalUsed;
+        this.localUsed = localUsed;
+        this.trailUsed = trailUsed;
+        this.stackLimit = stackLimit;
+        this.tableSpace = tableSpace;
+        this.clauses = clauses;
+        this.programSpace = programSpace;
+        this.heapUsed = heapUsed;
+        this.atoms = atoms;
+        this.atomSpace = atomSpace;
+    }
+
+    /**
+     * Construct statistics from the term produced by
+     * mochalog:memory_statistics/1
+     * @param term Term of the form memory_statistics(...)
+     * @return Memory statistics
+     */
+    public static MemoryStatistics fromTerm(Term term)
+    {
+        return new MemoryStatistics(
+            term.arg(1).longValue(), term.arg(2).longValue(),
+            term.arg(3).longValue(), term.arg(4).longValue(),
+            term.arg(5).longValue(), term.arg(6).longValue(),
+            term.arg(7).longValue(), term.arg(8).longValue(),
+            term.arg(9).longValue(), term.arg(10).longValue()
+        );
+    }
+
+    /**
+     * Getter.
+     * @return Global stack usage
+     */
+    public long getGlobalUsed()
+    {
+        return globalUsed;
+    }
+
+    /**
+     * Getter.
+     * @return Local stack usage
+     */
+    public long getLocalUsed()
+    {
+        return localUsed;
+    }
+
+    /**
+     * Getter.
+     * @return Trail stack usage
+     */
+    public long getTrailUsed()
+    {
+        return trailUsed;
+    }
+
+    /**
+     * Get the combined usage of the global,
+     * local and trail stacks
+     * @return Stack usage
+     */
+    public long getStackUsed()
+    {
+        return globalUsed + localUsed + trailUsed;
+    }
+
+    /**
+     * Getter.
+     * @return Combined stack limit, or -1 given the runtime
+     * predates the stack_limit flag (SWI-Prolog 7.7.14)
+     */
+    public long getStackLimit()
+    {
+        return stackLimit;
+    }
+
+    /**
+     * Getter.
+     * @return Table space limit, or -1 given the runtime
+     * predates the table_space flag
+     */
+    public long getTableSpace()
+    {
+        return tableSpace;
+    }
+
+    /**
+     * Getter.
+     * @return Number of clauses in the program
+     */
+    public long getClauses()
+    {
+        return clauses;
+    }
+
+    /**
+     * Getter.
+     * @return Memory used by the program
+     */
+    public long getProgramSpace()
+    {
+        return programSpace;
+    }
+
+    /**
+     * Getter.
+     * @return Memory allocated on the heap
+     */
+    public long getHeapUsed()
+    {
+        return heapUsed;
+    }
+
+    /**
+     * Getter.
+     * @return Number of atoms in the atom table
+     */
+    public long getAtoms()
+    {
+        return atoms;
+    }
+
+    /**
+     * Getter.
+     * @return Memory used by atom text
+     */
+    public long getAtomSpace()
+    {
+        return atomSpace;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("global=%d local=%d trail=%d stackLimit=%d tableSpace=%d " +
+                "clauses=%d program=%d heap=%d atoms=%d atomSpace=%d",
+            globalUsed, localUsed, trailUsed, stackLimit, tableSpace,
+            clauses, programSpace, heapUsed, atoms, atomSpace);
+    }
+}
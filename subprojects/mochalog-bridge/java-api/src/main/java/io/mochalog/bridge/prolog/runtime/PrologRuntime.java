@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import org.jpl7.Term;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access to process-wide state of the SWI-Prolog runtime
+ * shared by all Prolog contexts
+ */
+public final class PrologRuntime
+{
+    // Maximum number of engines in the JPL engine pool (fixed
+    // when JPL is built), each thread operating queries holding
+    // an engine of its own
+    public static final int ENGINE_POOL_SIZE = 10;
+
+    // Whether snapshot/1 is available (resolved on first use,
+    // as the runtime version does not change)
+    private static volatile Boolean snapshotSupported;
+    // Whether each queried Prolog flag is available
+    private static final Map<String, Boolean> FLAGS_SUPPORTED = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor. Static utility.
+     */
+    private PrologRuntime()
+    {
+
+    }
+
+    /**
+     * Check whether the running SWI-Prolog version supports
+     * database snapshots (snapshot/1, SWI-Prolog 8.3.x or later),
+     * required by snapshot queries
+     * @return True if supported, false otherwise.
+     */
+    public static boolean isSnapshotSupported()
+    {
+        Boolean supported = snapshotSupported;
+        if (supported == null)
+        {
+            supported = new org.jpl7.Query("predicate_property(system:snapshot(_), defined)")
+                .hasSolution();
+            snapshotSupported = supported;
+        }
+
+        return supported;
+    }
+
+    /**
+     * Require database snapshots to be supported by the
+     * running SWI-Prolog version
+     * @throws UnsupportedFeatureException snapshot/1 is unavailable
+     */
+    public static void requireSnapshotSupport() throws UnsupportedFeatureException
+    {
+        if (!isSnapshotSupported())
+        {
+            throw new UnsupportedFeatureException("Snapshot queries require " +
+                "SWI-Prolog 8.3.x or later (snapshot/1).");
+        }
+    }
+
+    /**
+     * Check whether the running SWI-Prolog version
+     * defines the given Prolog flag
+     * @param flag Flag name
+     * @return True if defined, false otherwise.
+     */
+    public static boolean isFlagSupported(String flag)
+    {
+        return FLAGS_SUPPORTED.computeIfAbsent(flag, f ->
+            new org.jpl7.Query("current_prolog_flag(" + f + ", _)").hasSolution());
+    }
+
+    /**
+     * Require the limits set in the given resource limits to
+     * be supported by the running SWI-Prolog version
+     * @param limits Resource limits
+     * @throws UnsupportedFeatureException Flag of a set limit is
+     * unavailable (stack_limit requires SWI-Prolog 7.7.14 or later)
+     */
+    public static void requireResourceLimitSupport(ResourceLimits limits)
+        throws UnsupportedFeatureException
+    {
+        if (limits.getStackLimit() != ResourceLimits.UNLIMITED &&
+            !isFlagSupported("stack_limit"))
+        {
+            throw new UnsupportedFeatureException("Stack limits require " +
+                "SWI-Prolog 7.7.14 or later (stack_limit flag).");
+        }
+
+        if (limits.getTableSpace() != ResourceLimits.UNLIMITED &&
+            !isFlagSupported("table_space"))
+        {
+            throw new UnsupportedFeatureException("Table space limits require " +
+                "a SWI-Prolog version supporting tabling (table_space flag).");
+        }
+    }
+
+    /**
+     * Get the state of the atom table and atom
+     * garbage collection
+     * @return Atom statistics
+     */
+    public static AtomStatistics getAtomStatistics()
+    {
+        Map<String, Term> solution = new org.jpl7.Query(
+            "statistics(atoms, Atoms), statistics(atom_space, AtomSpace), " +
+            "statistics(agc, Collections), statistics(agc_gained, Reclaimed), " +
+            "statistics(agc_time, Time)"
+        ).oneSolution();
+
+        return new AtomStatistics(
+            solution.get("Atoms").longValue(),
+            solution.get("AtomSpace").longValue(),
+            solution.get("Collections").longValue(),
+            solution.get("Reclaimed").longValue(),
+            // agc_time is reported in seconds
+            (long) (solution.get("Time").doubleValue() * 1000)
+        );
+    }
+
+    /**
+     * Perform atom garbage collection, reclaiming atoms
+     * no longer referenced
+     * @return True if collection succeeded, false otherwise.
+     */
+    public static boolean collectAtoms()
+    {
+        return new org.jpl7.Query("garbage_collect_atoms").hasSolution();
+    }
+
+    /**
+     * Get the number of atoms which may be created before
+     * atom garbage collection is triggered automatically
+     * @return Atom garbage collection margin
+     */
+    public static long getAtomCollectionMargin()
+    {
+        return new org.jpl7.Query("current_prolog_flag(agc_margin, Margin)")
+            .oneSolution().get("Margin").longValue();
+    }
+
+    /**
+     * Set the number of atoms which may be created before
+     * atom garbage collection is triggered automatically
+     * (agc_margin flag). A margin of 0 disables automatic
+     * collection, allowing it to be scheduled explicitly
+     * through {@link #collectAtoms()}.
+     * @param margin Atom garbage collection margin
+     * @return True if the margin was set, false otherwise.
+     */
+    public static boolean setAtomCollectionMargin(long margin)
+    {
+        return new org.jpl7.Query("set_prolog_flag(agc_margin, " + margin + ")").hasSolution();
+    }
+
+    /**
+     * Perform garbage collection of the stacks of the
+     * engine servicing the calling thread
+     * @return True if collection succeeded, false otherwise.
+     */
+    public static boolean collectGarbage()
+    {
+        return new org.jpl7.Query("garbage_collect").hasSolution();
+    }
+
+    /**
+     * Reclaim clauses of predicates which were retracted
+     * or redefined and are no longer referenced
+     * @return True if collection succeeded, false otherwise.
+     */
+    public static boolean collectClauses()
+    {
+        return new org.jpl7.Query("garbage_collect_clauses").hasSolution();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import io.mochalog.util.exception.UncheckedMochalogException;
+
+import org.jpl7.PrologException;
+import org.jpl7.Term;
+
+/**
+ * Exception indicating that a query exhausted a Prolog
+ * resource (e.g. exceeded its stack limit) and was aborted
+ */
+public class ResourceExhaustedException extends UncheckedMochalogException
+{
+    // Name of the exhausted resource
+    private final String resource;
+
+    /**
+     * Constructor.
+     * @param resource Name of the exhausted resource
+     * @param message Exception message
+     * @param cause Prolog exception raised
+     */
+    public ResourceExhaustedException(String resource, String message, Throwable cause)
+    {
+        super(message, cause);
+        this.resource = resource;
+    }
+
+    /**
+     * Get the name of the exhausted resource as reported by
+     * SWI-Prolog (e.g. stack_overflow, table_space, memory)
+     * @return Resource name
+     */
+    public String getResource()
+    {
+        return resource;
+    }
+
+    /**
+     * Translate a Prolog exception into a resource exhaustion
+     * exception given it corresponds to a resource_error
+     * @param e Prolog exception raised
+     * @return Resource exhaustion exception, or the original
+     * exception if not a resource error
+     */
+    public static RuntimeException translate(PrologException e)
+    {
+        // Exceptions of the form error(resource_error(Resource), Context)
+        Term error = e.term();
+        if (error != null && error.isCompound() && error.hasFunctor("error", 2))
+        {
+            Term formal = error.arg(1);
+            if (formal.isCompound() && formal.hasFunctor("resource_error", 1))
+            {
+                String resource = formal.arg(1).toString();
+                return new ResourceExhaustedException(resource,
+                    "Prolog resource exhausted: " + resource + ".", e);
+            }
+        }
+
+        return e;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import java.util.Objects;
+
+/**
+ * Memory limits applied to the Prolog engine proving a query,
+ * bounding the damage a runaway query can do to the process
+ */
+public class ResourceLimits
+{
+    // Value of unset limits
+    public static final long UNLIMITED = -1;
+    // Limits leaving the engine defaults unchanged
+    public static final ResourceLimits NONE = new Builder().build();
+
+    /**
+     * Facilitates the building of ResourceLimits instances
+     */
+    public static class Builder
+    {
+        // Combined stack limit in bytes
+        private long stackLimit = UNLIMITED;
+        // Table space limit in bytes
+        private long tableSpace = UNLIMITED;
+
+        /**
+         * Set the combined size limit of the global, local
+         * and trail stacks (stack_limit flag)
+         * @param bytes Stack limit in bytes
+         * @return Current builder
+         */
+        public Builder setStackLimit(long bytes)
+        {
+            this.stackLimit = bytes;
+            return this;
+        }
+
+        /**
+         * Set the size limit of answer tables
+         * (table_space flag)
+         * @param bytes Table space limit in bytes
+         * @return Current builder
+         */
+        public Builder setTableSpace(long bytes)
+        {
+            this.tableSpace = bytes;
+            return this;
+        }
+
+        /**
+         * Build the resource limits
+         * @return Constructed ResourceLimits
+         */
+        public ResourceLimits build()
+        {
+            return new ResourceLimits(stackLimit, tableSpace);
+        }
+    }
+
+    // Combined stack limit in bytes
+    private final long stackLimit;
+    // Table space limit in bytes
+    private final long tableSpace;
+
+    /**
+     * Private constructor.
+     * @param stackLimit Combined stack limit in bytes
+     * @param tableSpace Table space limit in bytes
+     */
+    private ResourceLimits(long stackLimit, long tableSpace)
+    {
+        this.stackLimit = stackLimit;
+        this.tableSpace = tableSpace;
+    }
+
+    /**
+     * Getter.
+     * @return Combined stack limit in bytes, or UNLIMITED
+     */
+    public long getStackLimit()
+    {
+        return stackLimit;
+    }
+
+    /**
+     * Getter.
+     * @return Table space limit in bytes, or UNLIMITED
+     */
+    public long getTableSpace()
+    {
+        return tableSpace;
+    }
+
+    /**
+     * Check whether no limits are set
+     * @return True if engine defaults are left unchanged,
+     * false otherwise.
+     */
+    public boolean isUnlimited()
+    {
+        return stackLimit == UNLIMITED && tableSpace == UNLIMITED;
+    }
+
+    @Override
+    public final boolean equals(Object o)
+    {
+        // Early termination for self-identity
+        if (this == o)
+        {
+            return true;
+        }
+
+        // null/type validation
+        if (o != null && o instanceof ResourceLimits)
+        {
+            ResourceLimits limits = (ResourceLimits) o;
+            // Field comparisons
+            return stackLimit == limits.stackLimit &&
+                tableSpace == limits.tableSpace;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(stackLimit, tableSpace);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import org.jpl7.Term;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of a Prolog list held in the Mochalog binary
+ * term encoding. Elements are decoded on access rather than the
+ * list being converted into nested '[|]' compounds, the offset of
+ * each element being indexed on construction for constant-time
+ * random access.
+ */
+public final class PrologListView extends AbstractList<Term> implements RandomAccess
+{
+    // Buffer holding the encoded list
+    private final ByteBuffer buffer;
+    // Offsets of each element (followed by the list tail)
+    private final int[] offsets;
+
+    /**
+     * Constructor.
+     * @param buffer Buffer positioned at an encoded list
+     * (the buffer position is advanced beyond the list)
+     * @throws MalformedTermException Buffer does not hold
+     * an encoded list
+     */
+    public PrologListView(ByteBuffer buffer) throws MalformedTermException
+    {
+        this.buffer = buffer.duplicate();
+
+        try
+        {
+            int start = buffer.position();
+            byte tag = buffer.get();
+            if (tag == TermDecoder.NIL)
+            {
+                // Empty list has only its (implicit) tail
+                offsets = new int[] { start };
+                return;
+            }
+            else if (tag != TermDecoder.LIST)
+            {
+                throw new MalformedTermException("Encoded term is not a list");
+            }
+
+            int length = TermDecoder.readLength(buffer);
+            offsets = new int[length + 1];
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new MalformedTermException("Encoded term is truncated");
+        }
+
+        for (int i = 0; i < offsets.length; ++i)
+        {
+            offsets[i] = buffer.position();
+            TermDecoder.skip(buffer);
+        }
+    }
+
+    @Override
+    public Term get(int index)
+    {
+        return TermDecoder.decode(element(index));
+    }
+
+    /**
+     * Decode an element into the given sink
+     * @param index Element index
+     * @param sink Sink to receive element structure
+     * @param <S> Sink type
+     * @return Sink
+     */
+    public <S extends TermSink> S get(int index, S sink)
+    {
+        return TermDecoder.decode(element(index), sink);
+    }
+
+    /**
+     * Get a view of an element which is itself a list
+     * @param index Element index
+     * @return List view
+     * @throws MalformedTermException Element is not a list
+     */
+    public PrologListView getList(int index) throws MalformedTermException
+    {
+        return new PrologListView(element(index));
+    }
+
+    /**
+     * Get a view of an element which is text (a string,
+     * atom or list of character codes)
+     * @param index Element index
+     * @return Text view
+     * @throws MalformedTermException Element is not text
+     */
+    public PrologStringView getString(int index) throws MalformedTermException
+    {
+        return new PrologStringView(element(index));
+    }
+
+    /**
+     * Decode the tail of the list ([] for proper lists,
+     * otherwise the unbound tail of a partial list)
+     * @return List tail
+     */
+    public Term getTail()
+    {
+        return TermDecoder.decode(at(offsets[offsets.length - 1]));
+    }
+
+    @Override
+    public int size()
+    {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get a buffer positioned at an element
+     * @param index Element index
+     * @return Element buffer
+     * @throws IndexOutOfBoundsException Index out of range
+     */
+    private ByteBuffer element(int index)
+    {
+        if (index < 0 || index >= size())
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for list of size " + size());
+        }
+
+        return at(offsets[index]);
+    }
+
+    /**
+     * Get a buffer positioned at an offset
+     * @param offset Offset into the encoded list
+     * @return Positioned buffer (independent of the view buffer)
+     */
+    private ByteBuffer at(int offset)
+    {
+        ByteBuffer positioned = buffer.duplicate();
+        positioned.position(offset);
+        return positioned;
+    }
+}
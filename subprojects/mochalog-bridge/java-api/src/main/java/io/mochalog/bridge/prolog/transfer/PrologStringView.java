@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only character view of Prolog text (a string, atom or
+ * list of character codes) held in the Mochalog binary term
+ * encoding. ASCII text and code lists of the basic multilingual
+ * plane are read in place with constant-time random access; other
+ * text is decoded once, on first access.
+ */
+public final class PrologStringView implements CharSequence
+{
+    // Size of an encoded character code (tag and 64-bit value)
+    private static final int CODE_SIZE = 1 + Long.BYTES;
+
+    // Buffer holding the encoded text
+    private final ByteBuffer buffer;
+    // Offset of the first character
+    private final int offset;
+    // Number of characters (or of UTF-8 bytes given
+    // text cannot be read in place)
+    private final int length;
+    // Encoded size of each character (0 if not read in place)
+    private final int stride;
+    // Flag indicating whether the text is held as UTF-8
+    private final boolean isText;
+    // Decoded text (given text cannot be read in place)
+    private volatile String decoded;
+
+    /**
+     * Constructor.
+     * @param buffer Buffer positioned at encoded text
+     * (the buffer position is advanced beyond the text)
+     * @throws MalformedTermException Buffer does not hold
+     * encoded text
+     */
+    public PrologStringView(ByteBuffer buffer) throws MalformedTermException
+    {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+        try
+        {
+            byte tag = buffer.get();
+            if (tag == TermDecoder.STRING || tag == TermDecoder.ATOM)
+            {
+                isText = true;
+                length = TermDecoder.readLength(buffer);
+                offset = buffer.position();
+                TermDecoder.advance(buffer, length);
+                stride = isAscii() ? 1 : 0;
+            }
+            else if (tag == TermDecoder.LIST || tag == TermDecoder.NIL)
+            {
+                isText = false;
+                length = tag == TermDecoder.LIST ? TermDecoder.readLength(buffer) : 0;
+                offset = buffer.position();
+                stride = readCodes(buffer) ? CODE_SIZE : 0;
+            }
+            else
+            {
+                throw new MalformedTermException("Encoded term is not text");
+            }
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new MalformedTermException("Encoded term is truncated");
+        }
+    }
+
+    /**
+     * Constructor of a subsequence of a view read in place
+     * @param view View to take subsequence of
+     * @param start Start index (inclusive)
+     * @param end End index (exclusive)
+     */
+    private PrologStringView(PrologStringView view, int start, int end)
+    {
+        this.buffer = view.buffer;
+        this.offset = view.offset + start * view.stride;
+        this.length = end - start;
+        this.stride = view.stride;
+        this.isText = view.isText;
+    }
+
+    @Override
+    public int length()
+    {
+        return stride == 0 ? getDecoded().length() : length;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if (stride == 0)
+        {
+            return getDecoded().charAt(index);
+        }
+        else if (index < 0 || index >= length)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for text of length " + length);
+        }
+
+        int position = offset + index * stride;
+        return isText ?
+            (char) buffer.get(position) :
+            (char) buffer.getLong(position + 1);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        if (stride == 0)
+        {
+            return getDecoded().subSequence(start, end);
+        }
+        else if (start < 0 || end > length || start > end)
+        {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of range " +
+                "for text of length " + length);
+        }
+
+        return new PrologStringView(this, start, end);
+    }
+
+    /**
+     * Get the UTF-8 bytes of the text without copying
+     * @return Read-only buffer of UTF-8 bytes
+     * @throws UnsupportedOperationException Text is a list
+     * of character codes (not held as UTF-8)
+     */
+    public ByteBuffer asByteBuffer() throws UnsupportedOperationException
+    {
+        if (!isText)
+        {
+            throw new UnsupportedOperationException("Character code lists are not held as UTF-8");
+        }
+
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        bytes.limit(offset + length);
+        bytes.position(offset);
+        return bytes.slice();
+    }
+
+    @Override
+    public String toString()
+    {
+        if (stride == 0)
+        {
+            return getDecoded();
+        }
+        else if (isText)
+        {
+            // ASCII is a subset of UTF-8
+            return decodeText();
+        }
+
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i)
+        {
+            chars[i] = charAt(i);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Check whether the text is solely ASCII, permitting
+     * characters to be read as single bytes
+     * @return True if ASCII, false otherwise.
+     */
+    private boolean isAscii()
+    {
+        for (int i = offset; i < offset + length; ++i)
+        {
+            if (buffer.get(i) < 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Validate a list of character codes, advancing the given
+     * buffer beyond the list
+     * @param source Buffer positioned at the first element
+     * @return True if every code is a single UTF-16 character
+     * (permitting codes to be read in place), false otherwise.
+     * @throws MalformedTermException List is not a proper
+     * list of character codes
+     */
+    private boolean readCodes(ByteBuffer source) throws MalformedTermException
+    {
+        boolean isBasic = true;
+        for (int i = 0; i < length; ++i)
+        {
+            if (source.get() != TermDecoder.INTEGER)
+            {
+                throw new MalformedTermException("Encoded list is not a list of character codes");
+            }
+
+            long code = TermDecoder.readLong(source);
+            if (code < 0 || code > Character.MAX_CODE_POINT)
+            {
+                throw new MalformedTermException("Encoded list is not a list of character codes");
+            }
+
+            isBasic &= code <= Character.MAX_VALUE;
+        }
+
+        // Non-empty lists are followed by their tail
+        if (length > 0 && source.get() != TermDecoder.NIL)
+        {
+            throw new MalformedTermException("Encoded list of character codes is partial");
+        }
+
+        return isBasic;
+    }
+
+    /**
+     * Get the text decoded in full, decoding it once
+     * on first access
+     * @return Decoded text
+     */
+    private String getDecoded()
+    {
+        String text = decoded;
+        if (text == null)
+        {
+            text = isText ? decodeText() : decodeCodes();
+            decoded = text;
+        }
+
+        return text;
+    }
+
+    /**
+     * Decode UTF-8 text
+     * @return Decoded text
+     */
+    private String decodeText()
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i)
+        {
+            bytes[i] = buffer.get(offset + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode a list of character codes
+     * @return Decoded text
+     */
+    private String decodeCodes()
+    {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; ++i)
+        {
+            text.appendCodePoint((int) buffer.getLong(offset + i * CODE_SIZE + 1));
+        }
+
+        return text.toString();
+    }
+}
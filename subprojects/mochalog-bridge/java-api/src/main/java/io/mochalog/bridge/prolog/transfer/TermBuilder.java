@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import org.jpl7.Atom;
+import org.jpl7.Compound;
+import org.jpl7.JPL;
+import org.jpl7.Term;
+import org.jpl7.Variable;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Sink constructing the org.jpl7.Term representation
+ * of a decoded term
+ */
+final class TermBuilder implements TermSink
+{
+    // Name of Prolog list cells
+    private static final String LIST_PAIR = "[|]";
+
+    /**
+     * Compound or list under construction
+     */
+    private static final class Frame
+    {
+        // Compound name (null for lists)
+        private final String name;
+        // Compound arguments, or list elements followed by tail
+        private final Term[] terms;
+        // Number of terms received
+        private int count;
+
+        /**
+         * Constructor.
+         * @param name Compound name (null for lists)
+         * @param size Number of terms to receive
+         */
+        private Frame(String name, int size)
+        {
+            this.name = name;
+            this.terms = new Term[size];
+        }
+    }
+
+    // Compounds and lists under construction
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    // Variables by index
+    private final List<Variable> variables = new ArrayList<>();
+    // Constructed term
+    private Term term;
+
+    /**
+     * Getter.
+     * @return Constructed term
+     */
+    Term getTerm()
+    {
+        return term;
+    }
+
+    @Override
+    public void variable(int index)
+    {
+        while (variables.size() <= index)
+        {
+            // Named as JPL names variables of retrieved terms
+            variables.add(new Variable("_" + variables.size()));
+        }
+
+        add(variables.get(index));
+    }
+
+    @Override
+    public void integer(long value)
+    {
+        add(new org.jpl7.Integer(value));
+    }
+
+    @Override
+    public void bigInteger(BigInteger value)
+    {
+        add(new org.jpl7.Integer(value));
+    }
+
+    @Override
+    public void floating(double value)
+    {
+        add(new org.jpl7.Float(value));
+    }
+
+    @Override
+    public void atom(String name)
+    {
+        add(new Atom(name));
+    }
+
+    @Override
+    public void string(String text)
+    {
+        add(new Atom(text, "string"));
+    }
+
+    @Override
+    public void nil()
+    {
+        add(JPL.LIST_NIL);
+    }
+
+    @Override
+    public void startList(int length)
+    {
+        frames.push(new Frame(null, length + 1));
+    }
+
+    @Override
+    public void endList()
+    {
+        Term[] terms = frames.pop().terms;
+
+        // Link cells from the tail backwards
+        Term list = terms[terms.length - 1];
+        for (int i = terms.length - 2; i >= 0; --i)
+        {
+            list = new Compound(LIST_PAIR, new Term[] { terms[i], list });
+        }
+
+        add(list);
+    }
+
+    @Override
+    public void startCompound(String name, int arity)
+    {
+        frames.push(new Frame(name, arity));
+    }
+
+    @Override
+    public void endCompound()
+    {
+        Frame frame = frames.pop();
+        add(new Compound(frame.name, frame.terms));
+    }
+
+    /**
+     * Add a completed term to the innermost compound or
+     * list, or complete construction if outermost
+     * @param completed Completed term
+     */
+    private void add(Term completed)
+    {
+        Frame frame = frames.peek();
+        if (frame == null)
+        {
+            term = completed;
+        }
+        else
+        {
+            frame.terms[frame.count++] = completed;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import org.jpl7.Term;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Decoder of terms serialised in the Mochalog binary term
+ * encoding (see mochalog:encode_term/2), transferring an entire
+ * term across the JPL interface as a single string rather than
+ * converting each of its nodes individually.
+ * <p>
+ * Terms are decoded in a single pass over the buffer, without
+ * recursion, so deeply nested terms and long lists may be decoded
+ * without exhausting the Java stack.
+ */
+public final class TermDecoder
+{
+    // Encoding tags
+    static final byte VARIABLE = 'V';
+    static final byte INTEGER = 'I';
+    static final byte BIG_INTEGER = 'B';
+    static final byte FLOAT = 'F';
+    static final byte ATOM = 'A';
+    static final byte STRING = 'S';
+    static final byte NIL = 'N';
+    static final byte LIST = 'L';
+    static final byte COMPOUND = 'C';
+
+    /**
+     * Constructor.
+     */
+    private TermDecoder()
+    {
+
+    }
+
+    /**
+     * Get a buffer over the bytes of an encoded term
+     * @param encoded Base64 text produced by mochalog:encode_term/2
+     * @return Buffer positioned at the start of the term
+     * @throws MalformedTermException Text is not valid base64
+     */
+    public static ByteBuffer toBuffer(String encoded) throws MalformedTermException
+    {
+        try
+        {
+            return ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new MalformedTermException("Encoded term is not valid base64");
+        }
+    }
+
+    /**
+     * Decode the term at the position of the given buffer
+     * into its org.jpl7.Term representation, advancing the
+     * buffer beyond the term
+     * @param buffer Buffer holding encoded term
+     * @return Decoded term
+     * @throws MalformedTermException Buffer does not hold a
+     * valid encoded term
+     */
+    public static Term decode(ByteBuffer buffer) throws MalformedTermException
+    {
+        return decode(buffer, new TermBuilder()).getTerm();
+    }
+
+    /**
+     * Decode the term at the position of the given buffer
+     * into the given sink, advancing the buffer beyond the term
+     * @param buffer Buffer holding encoded term
+     * @param sink Sink to receive term structure
+     * @param <S> Sink type
+     * @return Sink
+     * @throws MalformedTermException Buffer does not hold a
+     * valid encoded term
+     */
+    public static <S extends TermSink> S decode(ByteBuffer buffer, S sink)
+        throws MalformedTermException
+    {
+        try
+        {
+            decodeTerm(buffer, sink);
+            return sink;
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new MalformedTermException("Encoded term is truncated");
+        }
+    }
+
+    /**
+     * Advance the given buffer beyond the term at its
+     * position without decoding it
+     * @param buffer Buffer holding encoded term
+     * @throws MalformedTermException Buffer does not hold a
+     * valid encoded term
+     */
+    static void skip(ByteBuffer buffer) throws MalformedTermException
+    {
+        try
+        {
+            // Number of terms remaining to be skipped
+            long remaining = 1;
+            while (remaining-- > 0)
+            {
+                byte tag = buffer.get();
+                switch (tag)
+                {
+                    case VARIABLE:
+                        readLength(buffer);
+                        break;
+                    case INTEGER:
+                        advance(buffer, Long.BYTES);
+                        break;
+                    case BIG_INTEGER:
+                    case FLOAT:
+                    case ATOM:
+                    case STRING:
+                        advance(buffer, readLength(buffer));
+                        break;
+                    case NIL:
+                        break;
+                    case LIST:
+                        // Elements followed by tail
+                        remaining += readLength(buffer) + 1L;
+                        break;
+                    case COMPOUND:
+                        advance(buffer, readLength(buffer));
+                        remaining += readLength(buffer);
+                        break;
+                    default:
+                        throw new MalformedTermException("Unknown term encoding tag " + tag);
+                }
+            }
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new MalformedTermException("Encoded term is truncated");
+        }
+    }
+
+    /**
+     * Decode a term into the given sink
+     * @param buffer Buffer holding encoded term
+     * @param sink Sink to receive term structure
+     */
+    private static void decodeTerm(ByteBuffer buffer, TermSink sink)
+    {
+        // Terms remaining in each open compound or list
+        // (lists including their tail)
+        int[] remaining = new int[16];
+        boolean[] isList = new boolean[16];
+        int depth = 0;
+
+        do
+        {
+            byte tag = buffer.get();
+            switch (tag)
+            {
+                case VARIABLE:
+                    sink.variable(readLength(buffer));
+                    break;
+                case INTEGER:
+                    sink.integer(readLong(buffer));
+                    break;
+                case BIG_INTEGER:
+                    sink.bigInteger(new BigInteger(readText(buffer)));
+                    break;
+                case FLOAT:
+                    sink.floating(parseDouble(readText(buffer)));
+                    break;
+                case ATOM:
+                    sink.atom(readText(buffer));
+                    break;
+                case STRING:
+                    sink.string(readText(buffer));
+                    break;
+                case NIL:
+                    sink.nil();
+                    break;
+                case LIST:
+                case COMPOUND:
+                    int size;
+                    if (tag == LIST)
+                    {
+                        size = readLength(buffer);
+                        sink.startList(size);
+                        // Tail follows the elements
+                        ++size;
+                    }
+                    else
+                    {
+                        String name = readText(buffer);
+                        size = readLength(buffer);
+                        sink.startCompound(name, size);
+                        if (size == 0)
+                        {
+                            sink.endCompound();
+                            break;
+                        }
+                    }
+
+                    if (depth == remaining.length)
+                    {
+                        remaining = Arrays.copyOf(remaining, depth * 2);
+                        isList = Arrays.copyOf(isList, depth * 2);
+                    }
+
+                    remaining[depth] = size;
+                    isList[depth] = tag == LIST;
+                    ++depth;
+                    // Arguments follow
+                    continue;
+                default:
+                    throw new MalformedTermException("Unknown term encoding tag " + tag);
+            }
+
+            // Term completed - end each structure it completes
+            while (depth > 0 && --remaining[depth - 1] == 0)
+            {
+                --depth;
+                if (isList[depth])
+                {
+                    sink.endList();
+                }
+                else
+                {
+                    sink.endCompound();
+                }
+            }
+        }
+        while (depth > 0);
+    }
+
+    /**
+     * Advance the position of a buffer
+     * @param buffer Buffer to advance
+     * @param length Number of bytes to advance by
+     */
+    static void advance(ByteBuffer buffer, int length)
+    {
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Read a big-endian 64-bit integer
+     * @param buffer Buffer to read from
+     * @return Integer
+     */
+    static long readLong(ByteBuffer buffer)
+    {
+        long value = buffer.getLong();
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    /**
+     * Read a non-negative integer encoded in groups of 7
+     * bits, least significant first
+     * @param buffer Buffer to read from
+     * @return Integer
+     * @throws MalformedTermException Integer exceeds the range of int
+     */
+    static int readLength(ByteBuffer buffer) throws MalformedTermException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7)
+        {
+            byte b = buffer.get();
+            if (shift == 28 && (b & 0x78) != 0)
+            {
+                // Bits beyond those of a non-negative int
+                break;
+            }
+
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+            {
+                return value;
+            }
+        }
+
+        throw new MalformedTermException("Encoded length exceeds range of int");
+    }
+
+    /**
+     * Read counted UTF-8 text
+     * @param buffer Buffer to read from
+     * @return Text
+     */
+    static String readText(ByteBuffer buffer)
+    {
+        int length = readLength(buffer);
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+
+        String text;
+        if (buffer.hasArray())
+        {
+            // Decode in place from the backing array
+            text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        }
+        else
+        {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        return text;
+    }
+
+    /**
+     * Parse float text, accepting the SWI-Prolog
+     * representations of infinity and NaN
+     * @param text Float text
+     * @return Float value
+     * @throws MalformedTermException Text is not a float
+     */
+    private static double parseDouble(String text) throws MalformedTermException
+    {
+        String lowerText = text.toLowerCase();
+        if (lowerText.endsWith("inf"))
+        {
+            // inf or 1.0Inf
+            return lowerText.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        else if (lowerText.endsWith("nan"))
+        {
+            // nan or 1.5NaN
+            return Double.NaN;
+        }
+
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new MalformedTermException("Encoded float is invalid: " + text);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import java.math.BigInteger;
+
+/**
+ * Receiver of the structure of a decoded term, allowing
+ * terms to be consumed without constructing org.jpl7.Term
+ * instances. Compounds and lists are reported between start
+ * and end calls, arguments (and list elements followed by
+ * the list tail) being reported in order.
+ */
+public interface TermSink
+{
+    /**
+     * Receive a variable
+     * @param index Index of the variable within the decoded
+     * term (identical variables share an index)
+     */
+    void variable(int index);
+
+    /**
+     * Receive an integer
+     * @param value Integer value
+     */
+    void integer(long value);
+
+    /**
+     * Receive an integer beyond the range of long
+     * @param value Integer value
+     */
+    void bigInteger(BigInteger value);
+
+    /**
+     * Receive a float
+     * @param value Float value
+     */
+    void floating(double value);
+
+    /**
+     * Receive an atom
+     * @param name Atom name
+     */
+    void atom(String name);
+
+    /**
+     * Receive a string
+     * @param text String text
+     */
+    void string(String text);
+
+    /**
+     * Receive the empty list
+     */
+    void nil();
+
+    /**
+     * Begin a list, the given number of elements and
+     * the list tail being received before the list ends
+     * @param length Number of elements
+     */
+    void startList(int length);
+
+    /**
+     * End the current list
+     */
+    void endList();
+
+    /**
+     * Begin a compound, its arguments being received
+     * before the compound ends
+     * @param name Compound name
+     * @param arity Compound arity
+     */
+    void startCompound(String name, int arity);
+
+    /**
+     * End the current compound
+     */
+    void endCompound();
+}
@@ -37,4 +37,14 @@ public abstract class UncheckedMochalogException extends RuntimeException
     {
         super(message);
     }
+
+    /**
+     * Constructor.
+     * @param message Custom exception message
+     * @param cause Underlying cause of exception
+     */
+    public UncheckedMochalogException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
 }
@@ -59,7 +59,7 @@ public abstract class AbstractFormatter implements Formatter
             Object arg = args[i];
 
             // Format the specified rule according to given specifications
-            String replacement = FORMAT_SPEC.applyRule(rule, arg);
+            String replacement = applyRule(rule, arg);
             // Ensure replacement string is converted into literal
             // string (ensure \ and $ characters are treated correctly)
             matcher.appendReplacement(formatBuffer, Matcher.quoteReplacement(replacement));
@@ -69,6 +69,19 @@ public abstract class AbstractFormatter implements Formatter
         return formatBuffer.toString();
     }
 
+    /**
+     * Apply the formatting rule corresponding to given identifier
+     * @param identifier Rule identifier
+     * @param arg Object substitution argument
+     * @return Formatted replacement string
+     * @throws IllegalFormatException Unable to format given object argument
+     * according to specified rule
+     */
+    protected String applyRule(String identifier, Object arg) throws IllegalFormatException
+    {
+        return FORMAT_SPEC.applyRule(identifier, arg);
+    }
+
     @Override
     public void setRule(String identifier, FormattingRule rule)
     {
@@ -16,8 +16,8 @@
 
 package io.mochalog.util.format;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.util.IllegalFormatException;
 import java.util.UnknownFormatConversionException;
@@ -25,6 +25,7 @@ import java.util.UnknownFormatConversionException;
 /**
  * Specification of bindings between string identifiers
  * and formatting rules for specific types of object arguments
+ * (safe for concurrent use)
  */
 public class FormatSpec
 {
@@ -36,7 +37,7 @@ public class FormatSpec
      */
     public FormatSpec()
     {
-        formattingRules = new HashMap<>();
+        formattingRules = new ConcurrentHashMap<>();
     }
 
     /**
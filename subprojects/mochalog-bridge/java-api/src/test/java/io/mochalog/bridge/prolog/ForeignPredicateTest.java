@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Test suite for Prolog to Java calls through
+ * registered foreign predicates
+ */
+public class ForeignPredicateTest
+{
+    // Flag set once the stream of streamUpTo is closed
+    private static final AtomicBoolean STREAM_CLOSED = new AtomicBoolean();
+
+    /**
+     * Deterministic function-style foreign predicate
+     * @param value Input value
+     * @return Doubled value
+     */
+    public static int twice(int value)
+    {
+        return value * 2;
+    }
+
+    /**
+     * Semideterministic test-style foreign predicate
+     * @param name Input name
+     * @return True if name is permitted
+     */
+    public static boolean permitted(String name)
+    {
+        return name.startsWith("allowed");
+    }
+
+    /**
+     * Nondeterministic foreign predicate
+     * @param count Number of values to generate
+     * @return Generated values
+     */
+    public static List<Integer> upTo(int count)
+    {
+        Integer[] values = new Integer[count];
+        for (int i = 0; i < count; ++i)
+        {
+            values[i] = i + 1;
+        }
+
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Nondeterministic foreign predicate returning a stream
+     * @param count Number of values to generate
+     * @return Generated values
+     */
+    public static Stream<Integer> streamUpTo(int count)
+    {
+        return IntStream.rangeClosed(1, count).boxed()
+            .onClose(() -> STREAM_CLOSED.set(true));
+    }
+
+    /**
+     * Ensure Java methods registered as predicates are callable
+     * from Prolog with the expected determinism
+     */
+    @Test
+    public void foreignPredicateTest() throws ReflectiveOperationException
+    {
+        PrologContext prolog = new SandboxedPrologContext("foreign_predicate_test");
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        assert(prolog.registerPredicate("twice", 2, lookup.findStatic(ForeignPredicateTest.class,
+            "twice", MethodType.methodType(int.class, int.class))));
+        assert(prolog.registerPredicate("permitted", 1, lookup.findStatic(ForeignPredicateTest.class,
+            "permitted", MethodType.methodType(boolean.class, String.class))));
+        assert(prolog.registerNondeterministicPredicate("up_to", 2, lookup.findStatic(
+            ForeignPredicateTest.class, "upTo", MethodType.methodType(List.class, int.class))));
+
+        assertEquals(42, prolog.askForSolution("twice(21, X)").get("X").intValue());
+
+        assert(prolog.prove("permitted(allowed_user)"));
+        assertFalse(prolog.prove("permitted(blocked_user)"));
+
+        assertEquals(3, prolog.askForAllSolutions("up_to(3, X)").size());
+        assert(prolog.prove("aggregate_all(sum(X), up_to(4, X), 10)"));
+    }
+
+    /**
+     * Ensure re-registering a predicate replaces its backing method,
+     * and that stream results are closed once enumerated
+     */
+    @Test
+    public void reregistrationTest() throws ReflectiveOperationException
+    {
+        PrologContext prolog = new SandboxedPrologContext("foreign_reregistration_test");
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        assert(prolog.registerNondeterministicPredicate("values", 2, lookup.findStatic(
+            ForeignPredicateTest.class, "upTo", MethodType.methodType(List.class, int.class))));
+        assert(prolog.registerNondeterministicPredicate("values", 2, lookup.findStatic(
+            ForeignPredicateTest.class, "streamUpTo",
+            MethodType.methodType(Stream.class, int.class))));
+
+        STREAM_CLOSED.set(false);
+        assertEquals(3, prolog.askForAllSolutions("values(3, X)").size());
+        assert(STREAM_CLOSED.get());
+    }
+}
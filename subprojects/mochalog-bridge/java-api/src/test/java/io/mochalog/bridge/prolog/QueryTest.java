@@ -16,16 +16,42 @@
 
 package io.mochalog.bridge.prolog;
 
+import io.mochalog.bridge.prolog.metrics.RecordingQueryMetrics;
 import io.mochalog.bridge.prolog.namespace.NoSuchVariableException;
+import io.mochalog.bridge.prolog.profile.PredicateProfile;
+import io.mochalog.bridge.prolog.profile.ProfileReport;
+import io.mochalog.bridge.prolog.runtime.AtomStatistics;
+import io.mochalog.bridge.prolog.runtime.GarbageCollectionScheduler;
+import io.mochalog.bridge.prolog.runtime.MemoryStatistics;
+import io.mochalog.bridge.prolog.runtime.PrologRuntime;
+import io.mochalog.bridge.prolog.runtime.ResourceExhaustedException;
+import io.mochalog.bridge.prolog.runtime.ResourceLimits;
+import io.mochalog.bridge.prolog.runtime.UnsupportedFeatureException;
 import io.mochalog.bridge.prolog.query.Query;
 import io.mochalog.bridge.prolog.query.QuerySolution;
+import io.mochalog.bridge.prolog.query.QuerySolutionIterator;
+import io.mochalog.bridge.prolog.query.aggregate.AggregateGroup;
+import io.mochalog.bridge.prolog.query.aggregate.Aggregation;
+import io.mochalog.bridge.prolog.query.collectors.QueryLeak;
+import io.mochalog.bridge.prolog.query.collectors.QueryLeakTracker;
+import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.cursor.NoSuchCursorException;
+import io.mochalog.bridge.prolog.query.cursor.QueryCursor;
 
+import org.jpl7.Atom;
+import org.jpl7.JPLException;
+import org.jpl7.Term;
 import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test suite for Java to Prolog queries
@@ -139,4 +165,497 @@ public class QueryTest
         assert(firstModule.retract("shared_predicate"));
         assert(secondModule.prove("shared_predicate"));
     }
+
+    /**
+     * Ensure snapshot queries are isolated from clauses
+     * asserted after the query was opened
+     */
+    @Test
+    public void snapshotQueryTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("snapshot_query_test");
+
+        assert(prolog.assertLast("reading(1)"));
+        assert(prolog.assertLast("reading(2)"));
+
+        // Runtimes without transactions reject snapshot queries
+        if (!PrologRuntime.isSnapshotSupported())
+        {
+            try
+            {
+                prolog.askSnapshot("reading(X)");
+                fail();
+            }
+            catch (UnsupportedFeatureException e)
+            {
+                // Expected - snapshot/1 unavailable
+            }
+            return;
+        }
+
+        QuerySolutionCollector collector = prolog.askSnapshot("reading(X)");
+        // Modify the database while the snapshot collector remains open
+        assert(prolog.assertLast("reading(3)"));
+
+        // Only the clauses visible at the time of opening should be seen
+        assertEquals(2, collector.solutionCount());
+        collector.detach();
+
+        // Non-snapshot queries observe the modification
+        assertEquals(3, prolog.askForAllSolutions("reading(X)").size());
+    }
+
+    /**
+     * Ensure profiled queries report port counts of
+     * the predicates called
+     */
+    @Test
+    public void profileTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("profile_test");
+
+        assert(prolog.assertLast("edge(a, b)"));
+        assert(prolog.assertLast("edge(b, c)"));
+        assert(prolog.assertLast("(path(X, Y) :- edge(X, Y))"));
+        assert(prolog.assertLast("(path(X, Z) :- edge(X, Y), path(Y, Z))"));
+
+        ProfileReport report = prolog.profile("forall(path(a, _), true)");
+        assert(report.isSucceeded());
+        assert(report.getInferences() > 0);
+
+        PredicateProfile edge = report.getPredicate("profile_test:edge/2");
+        assert(edge != null);
+        assert(edge.getCalls() > 0);
+    }
+
+    /**
+     * Ensure queries exceeding the context stack limit raise
+     * a typed exception rather than exhausting the process
+     */
+    @Test
+    public void resourceLimitTest()
+    {
+        SandboxedPrologContext prolog = new SandboxedPrologContext("resource_limit_test");
+
+        MemoryStatistics statistics = prolog.getMemoryStatistics();
+        assert(statistics.getGlobalUsed() > 0);
+        assert(statistics.getAtoms() > 0);
+
+        ResourceLimits limits = new ResourceLimits.Builder()
+            .setStackLimit(8 * 1024 * 1024)
+            .build();
+        if (!PrologRuntime.isFlagSupported("stack_limit"))
+        {
+            try
+            {
+                prolog.setResourceLimits(limits);
+                fail();
+            }
+            catch (UnsupportedFeatureException e)
+            {
+                // Expected - stack_limit requires SWI-Prolog 7.7.14
+                return;
+            }
+        }
+
+        prolog.setResourceLimits(limits);
+
+        try
+        {
+            prolog.prove("numlist(1, 100000000, List)");
+            fail();
+        }
+        catch (ResourceExhaustedException e)
+        {
+            // Expected - list exceeds stack limit
+        }
+
+        // Context remains usable after the failed query
+        assert(prolog.prove("numlist(1, 10, List)"));
+    }
+
+    /**
+     * Ensure parameterised queries bind arguments without
+     * growing the atom table
+     */
+    @Test
+    public void parameterisedQueryTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("parameterised_query_test");
+        assert(prolog.assertLast("session(@S, @I)", "session-0", 0));
+
+        QuerySolution solution = prolog.askForSolution(
+            Query.parameterise("session(@S, Index)", "session-0"));
+        assertEquals(0, solution.get("Index").intValue());
+
+        final int QUERY_COUNT = 10000;
+        AtomStatistics before = PrologRuntime.getAtomStatistics();
+        for (int i = 1; i <= QUERY_COUNT; ++i)
+        {
+            assertFalse(prolog.prove(Query.parameterise("session(@S, @I)", "session-" + i, i)));
+        }
+
+        // Distinct arguments must not be interned as atoms
+        long growth = PrologRuntime.getAtomStatistics().since(before).getAtoms();
+        assert(growth < QUERY_COUNT / 10);
+    }
+
+    /**
+     * Ensure numeric variables are projected from every
+     * solution in solution order
+     */
+    @Test
+    public void numericSolutionsTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("numeric_solutions_test");
+
+        assert(prolog.assertLast("price(apple, 3)"));
+        assert(prolog.assertLast("price(pear, -2)"));
+        assert(prolog.assertLast("price(plum, 9000000000)"));
+
+        assertArrayEquals(new long[] { 3, -2, 9000000000L }, prolog.askForLongs("P", "price(_, P)"));
+        assertArrayEquals(new int[] { 3 }, prolog.askForInts("P", "price(@A, P)", "apple"));
+        assertArrayEquals(new double[] { 1.5, -1.0 },
+            prolog.askForDoubles("Q", "price(Id, P), Id \\== plum, Q is P / 2"), 0);
+        assertEquals(0, prolog.askForInts("P", "price(cherry, P)").length);
+        // Query variables do not collide with the projection
+        assertArrayEquals(new int[] { 3 },
+            prolog.askForInts("Projection", "price(@A, Projection)", "apple"));
+    }
+
+    /**
+     * Ensure large terms transferred in the binary encoding
+     * match those transferred node by node
+     */
+    @Test
+    public void encodedTermTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("encoded_term_test");
+
+        Term encoded = prolog.askForTerm("L", "numlist(1, 100000, L)");
+        assertEquals(100000, encoded.listLength());
+
+        final String QUERY = "T = point(a, \"text\", [1, 2.5|b], 18446744073709551616)";
+        Term nodes = prolog.askForSolution(QUERY).get("T");
+        assertEquals(nodes.toString(), prolog.askForTerm("T", QUERY).toString());
+    }
+
+    /**
+     * Ensure Java collections passed as query parameters
+     * are received as Prolog lists
+     */
+    @Test
+    public void collectionArgumentTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("collection_argument_test");
+
+        assert(prolog.prove(Query.parameterise("sum_list(@L, 6)", new int[] { 1, 2, 3 })));
+        assert(prolog.prove(Query.parameterise("@L == [[a, \"b\"], []]",
+            Arrays.asList(Arrays.asList(new Atom("a"), "b"), Collections.emptyList()))));
+        assert(prolog.prove(Query.parameterise("pairs_values(@M, [1])",
+            Collections.singletonMap("key", 1))));
+    }
+
+    /**
+     * Fruit price mapped from query solutions
+     */
+    private static class FruitPrice
+    {
+        // Fruit name
+        private String fruit;
+        // Fruit price
+        private int price;
+    }
+
+    /**
+     * Ensure solutions are mapped onto the fields
+     * corresponding to query variables
+     */
+    @Test
+    public void askAsTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("ask_as_test");
+
+        assert(prolog.assertLast("price(apple, 3)"));
+        assert(prolog.assertLast("price(pear, 5)"));
+
+        List<FruitPrice> prices = prolog.askAs(FruitPrice.class, "price(Fruit, Price)");
+        assertEquals(2, prices.size());
+        assertEquals("apple", prices.get(0).fruit);
+        assertEquals(3, prices.get(0).price);
+        assertEquals("pear", prices.get(1).fruit);
+        assertEquals(5, prices.get(1).price);
+    }
+
+    /**
+     * Ensure solutions are aggregated, and grouped,
+     * before being transferred
+     */
+    @Test
+    public void aggregateTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("aggregate_test");
+
+        assert(prolog.assertLast("salary(sales, 10)"));
+        assert(prolog.assertLast("salary(sales, 20)"));
+        assert(prolog.assertLast("salary(support, 30)"));
+
+        Aggregation total = Aggregation.builder()
+            .count()
+            .sum("Salary")
+            .max("Salary")
+            .build();
+        List<AggregateGroup> totals = prolog.aggregate(total, "salary(_, Salary)");
+        assertEquals(1, totals.size());
+        assertEquals(3, totals.get(0).get(0).intValue());
+        assertEquals(60, totals.get(0).get(1).intValue());
+        assertEquals(30, totals.get(0).get(2).intValue());
+        // Query variables do not collide with the aggregated groups
+        assertEquals(60, prolog.aggregate(total, "salary(_, Salary), Groups = Salary")
+            .get(0).get(1).intValue());
+
+        Aggregation byDepartment = Aggregation.builder()
+            .groupBy("Department")
+            .count()
+            .avg("Salary")
+            .build();
+        List<AggregateGroup> departments = prolog.aggregate(byDepartment,
+            "salary(Department, Salary)");
+        assertEquals(2, departments.size());
+        assertEquals("sales", departments.get(0).getKey("Department").name());
+        assertEquals(2, departments.get(0).get(0).intValue());
+        assertEquals(15.0, departments.get(0).get(1).doubleValue(), 0.0);
+        assertEquals("support", departments.get(1).getKey(0).name());
+        assertEquals(30.0, departments.get(1).get(1).doubleValue(), 0.0);
+
+        // Maximum of no solutions has no value
+        Aggregation none = Aggregation.builder().max("Salary").build();
+        assert(prolog.aggregate(none, "salary(marketing, Salary)").isEmpty());
+    }
+
+    /**
+     * Ensure ordering, distinct and paging modifiers are
+     * applied by Prolog before solutions are collected
+     */
+    @Test
+    public void modifierTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("modifier_test");
+
+        for (int score : new int[] { 3, 9, 3, 7, 5 })
+        {
+            assert(prolog.assertLast("score(@I)", score));
+        }
+
+        Query query = Query.format("score(Score)")
+            .orderBy("desc(Score)")
+            .distinct()
+            .offset(1)
+            .limit(2);
+        assertArrayEquals(new int[] { 7, 5 }, prolog.askForInts(query, "Score"));
+    }
+
+    /**
+     * Ensure cursors resume from the end of the previous
+     * page, and are no longer available once closed
+     */
+    @Test
+    public void cursorTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("cursor_test");
+
+        QueryCursor cursor = prolog.openCursor("numbers", "between(1, 5, N)");
+        List<QuerySolution> page = cursor.fetch(2);
+        assertEquals(2, page.size());
+        assertEquals(2, page.get(1).get("N").intValue());
+
+        page = prolog.getCursor("numbers").fetch(2);
+        assertEquals(3, page.get(0).get("N").intValue());
+        assertFalse(cursor.isExhausted());
+
+        page = cursor.fetch(2);
+        assertEquals(1, page.size());
+        assert(cursor.isExhausted());
+
+        assert(prolog.closeCursor("numbers"));
+        try
+        {
+            prolog.getCursor("numbers");
+            fail("Closed cursor should not be available.");
+        }
+        catch (NoSuchCursorException e)
+        {
+            // Expected
+        }
+    }
+
+    /**
+     * Ensure closing a solution iterator detaches it
+     * from the interpreter
+     */
+    @Test
+    public void closeTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("close_test");
+
+        QuerySolutionIterator iterator =
+            new QuerySolutionIterator(prolog.ask("between(1, 3, N)"));
+        try
+        {
+            assertEquals(1, iterator.next().get("N").intValue());
+        }
+        finally
+        {
+            iterator.close();
+        }
+
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * Ensure a query which cannot be parsed is not counted
+     * as an open collector
+     */
+    @Test
+    public void unparsableQueryMetricsTest()
+    {
+        SandboxedPrologContext prolog = new SandboxedPrologContext("unparsable_query_test");
+        RecordingQueryMetrics metrics = new RecordingQueryMetrics();
+        prolog.setMetrics(metrics);
+
+        try
+        {
+            prolog.prove("reading((");
+            fail("Unparsable query should not be proved.");
+        }
+        catch (JPLException e)
+        {
+            // Expected - syntax error raised on opening
+        }
+
+        assertEquals(0, metrics.getOpenCollectors());
+        assert(prolog.prove("true"));
+        assertEquals(0, metrics.getOpenCollectors());
+    }
+
+    /**
+     * Ensure a query which cannot be parsed does not hold off
+     * idle garbage collection
+     * @throws InterruptedException Interrupted awaiting collection
+     */
+    @Test
+    public void idleCollectionAfterUnparsableQueryTest() throws InterruptedException
+    {
+        SandboxedPrologContext prolog = new SandboxedPrologContext("idle_collection_test");
+        try (GarbageCollectionScheduler scheduler = new GarbageCollectionScheduler.Builder()
+            .setIdleThreshold(20, TimeUnit.MILLISECONDS)
+            .setPollInterval(5, TimeUnit.MILLISECONDS)
+            .build())
+        {
+            prolog.setMetrics(scheduler);
+            scheduler.start();
+
+            try
+            {
+                prolog.prove("reading((");
+                fail("Unparsable query should not be proved.");
+            }
+            catch (JPLException e)
+            {
+                // Expected - syntax error raised on opening
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (scheduler.getCollectionCount() == 0 && System.nanoTime() - deadline < 0)
+            {
+                Thread.sleep(5);
+            }
+            assertEquals(1, scheduler.getCollectionCount());
+            assertEquals(0, scheduler.getFailureCount());
+        }
+    }
+
+    /**
+     * Ensure a collector abandoned while attached is reclaimed
+     * on the thread which opened it, reporting the leak along
+     * with where the collector was opened
+     */
+    @Test
+    public void leakReclamationTest() throws InterruptedException
+    {
+        PrologContext prolog = new SandboxedPrologContext("leak_reclamation_test");
+
+        QueryLeakTracker.setTracking(true);
+        QueryLeakTracker.clear();
+        try
+        {
+            abandonCollector(prolog);
+
+            // Abandoned query is closed by the next collector
+            // operated on this thread once it is unreachable
+            List<QueryLeak> leaks = QueryLeakTracker.getRecentLeaks();
+            for (int attempt = 0; attempt < 100 && leaks.isEmpty(); ++attempt)
+            {
+                System.gc();
+                Thread.sleep(10);
+                assert(prolog.prove("true"));
+                leaks = QueryLeakTracker.getRecentLeaks();
+            }
+
+            assertEquals(1, leaks.size());
+            QueryLeak leak = leaks.get(0);
+            assert(leak.isReclaimed());
+            assertEquals(Thread.currentThread().getName(), leak.getThreadName());
+
+            boolean tracedToOpener = false;
+            for (StackTraceElement element : leak.getOpenTrace())
+            {
+                if (element.getMethodName().equals("abandonCollector"))
+                {
+                    tracedToOpener = true;
+                }
+            }
+            assert(tracedToOpener);
+        }
+        finally
+        {
+            QueryLeakTracker.setTracking(false);
+            QueryLeakTracker.clear();
+        }
+    }
+
+    /**
+     * Open a collector and abandon it while still attached
+     * @param prolog Context to open collector in
+     */
+    private static void abandonCollector(PrologContext prolog)
+    {
+        QuerySolutionCollector collector = prolog.ask("between(1, 3, N)");
+        assert(collector.hasSolutions());
+    }
+
+    /**
+     * Ensure solutions to interleaved queries may be
+     * streamed in lockstep
+     */
+    @Test
+    public void interleavedTest()
+    {
+        PrologContext prolog = new SandboxedPrologContext("interleaved_test");
+
+        try (QuerySolutionIterator left =
+                new QuerySolutionIterator(prolog.askInterleaved("between(1, 3, N)"));
+             QuerySolutionIterator right =
+                new QuerySolutionIterator(prolog.askInterleaved("member(N, [a, b, c])")))
+        {
+            assertEquals(1, left.next().get("N").intValue());
+            assertEquals("a", right.next().get("N").name());
+            assertEquals(2, left.next().get("N").intValue());
+            assertEquals("b", right.next().get("N").name());
+            assertEquals(3, left.next().get("N").intValue());
+            assertEquals("c", right.next().get("N").name());
+            assertFalse(left.hasNext());
+            assertFalse(right.hasNext());
+        }
+    }
 }
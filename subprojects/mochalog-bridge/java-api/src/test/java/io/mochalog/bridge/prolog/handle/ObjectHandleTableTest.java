@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.handle;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Test suite for reference-counted Java object handles
+ */
+public class ObjectHandleTableTest
+{
+    /**
+     * Ensure handles resolve to their referenced objects
+     * until every reference has been released
+     */
+    @Test
+    public void handleLifetimeTest()
+    {
+        ObjectHandleTable table = new ObjectHandleTable();
+        Object payload = new Object();
+
+        ObjectHandle handle = table.create(payload);
+        assertSame(payload, table.resolve(handle.getId()));
+
+        // Second reference keeps the object alive
+        handle.retain();
+        assertFalse(handle.release());
+        assertSame(payload, handle.get());
+
+        assert(handle.release());
+        assertEquals(0, table.size());
+
+        try
+        {
+            handle.get();
+            fail();
+        }
+        catch (InvalidHandleException e)
+        {
+            // Expected - handle released
+        }
+    }
+
+    /**
+     * Ensure handles to released slots are not resolved
+     * once the slot is reused by a new handle
+     */
+    @Test
+    public void staleHandleTest()
+    {
+        ObjectHandleTable table = new ObjectHandleTable();
+
+        ObjectHandle stale = table.create("first");
+        stale.release();
+        ObjectHandle fresh = table.create("second");
+
+        assertNotEquals(stale.getId(), fresh.getId());
+        assertEquals("second", fresh.get());
+
+        try
+        {
+            stale.get();
+            fail();
+        }
+        catch (InvalidHandleException e)
+        {
+            // Expected - slot reused by another handle
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test suite for forwarding of query metrics to delegates
+ */
+public class CompositeQueryMetricsTest
+{
+    /**
+     * Ensure the query lifecycle is forwarded to every delegate
+     */
+    @Test
+    public void fanOutTest()
+    {
+        RecordingQueryMetrics first = new RecordingQueryMetrics();
+        RecordingQueryMetrics second = new RecordingQueryMetrics();
+        second.setInferenceCounting(true);
+        CompositeQueryMetrics metrics = new CompositeQueryMetrics(first, QueryMetrics.NONE, second);
+
+        assertTrue(metrics.isEnabled());
+        assertTrue(metrics.isInferenceCountingEnabled());
+
+        Module module = new Module("composite_metrics_test");
+        Query query = new Query("reading(1, X)", "reading(@I, X)", new Object[] { 1 });
+
+        metrics.startPhase(QueryPhase.FETCH, query.getTemplate(), module).stop(1);
+        metrics.collectorOpened(query, module);
+        assertEquals(1, first.getOpenCollectors());
+        assertEquals(1, second.getOpenCollectors());
+
+        metrics.collectorClosed(query, module,
+            new QueryStatistics(1, 1000, 0, 0, 10, 3, QueryStatistics.UNMEASURED));
+        for (RecordingQueryMetrics delegate : new RecordingQueryMetrics[] { first, second })
+        {
+            RecordingQueryMetrics.TemplateMetrics template = delegate.getTemplate("reading(@I, X)");
+            assertEquals(1, template.getPhase(QueryPhase.FETCH).getCount());
+            assertEquals(1, template.getSolutions());
+            assertEquals(0, delegate.getOpenCollectors());
+            assertEquals(3, delegate.getNativeCalls());
+        }
+    }
+
+    /**
+     * Ensure delegates which measure nothing are not timed
+     */
+    @Test
+    public void disabledTest()
+    {
+        CompositeQueryMetrics empty = new CompositeQueryMetrics(QueryMetrics.NONE, QueryMetrics.NONE);
+        assertFalse(empty.isEnabled());
+        assertFalse(empty.isInferenceCountingEnabled());
+        assertSame(PhaseTimer.NONE, empty.startPhase(QueryPhase.OPEN, "true", null));
+
+        // Single measuring delegate timed directly
+        RecordingQueryMetrics recording = new RecordingQueryMetrics();
+        CompositeQueryMetrics single = new CompositeQueryMetrics(QueryMetrics.NONE, recording);
+        single.startPhase(QueryPhase.OPEN, "true", null).stop(0);
+        assertEquals(1, recording.getTemplate("true").getPhase(QueryPhase.OPEN).getCount());
+    }
+}
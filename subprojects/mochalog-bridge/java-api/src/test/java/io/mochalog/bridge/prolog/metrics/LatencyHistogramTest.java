@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test suite for log-linear latency histograms
+ */
+public class LatencyHistogramTest
+{
+    /**
+     * Ensure values below the first power-of-two bucket
+     * boundary are recorded exactly
+     */
+    @Test
+    public void exactBucketTest()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        // Negative latencies clamped to zero
+        histogram.record(-5);
+        for (long value = 1; value < 16; ++value)
+        {
+            histogram.record(value);
+        }
+
+        assertEquals(16, histogram.getCount());
+        assertEquals(15, histogram.getMax());
+        assertEquals(7.5, histogram.getMean(), 0.0);
+
+        // Single-value buckets up to 2^4
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(7, histogram.getValueAtPercentile(50));
+        assertEquals(8, histogram.getValueAtPercentile(56.25));
+        assertEquals(15, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Ensure values beyond 2^4 share buckets with neighbouring
+     * values, reporting the upper bound of their bucket
+     */
+    @Test
+    public void bucketBoundaryTest()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(16);
+        histogram.record(17);
+        histogram.record(18);
+        histogram.record(1000);
+
+        // 16 and 17 share the bucket [16, 17]
+        assertEquals(17, histogram.getValueAtPercentile(25));
+        assertEquals(17, histogram.getValueAtPercentile(50));
+        // 18 begins the next bucket [18, 19]
+        assertEquals(19, histogram.getValueAtPercentile(75));
+    }
+
+    /**
+     * Ensure percentiles are clamped to the largest recorded
+     * value rather than the upper bound of its bucket
+     */
+    @Test
+    public void percentileClampTest()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; ++value)
+        {
+            histogram.record(value);
+        }
+
+        // 50 lies in the bucket [48, 51]
+        assertEquals(51, histogram.getValueAtPercentile(50));
+        // 99 lies in the bucket [96, 103], exceeding the maximum
+        assertEquals(100, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getMax());
+
+        // 1000 lies in the bucket [960, 1023]
+        LatencyHistogram single = new LatencyHistogram();
+        single.record(1000);
+        assertEquals(1000, single.getValueAtPercentile(50));
+        assertEquals(1000, single.getValueAtPercentile(99));
+
+        // Largest bucket does not overflow
+        single.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, single.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+/**
+ * Test suite for in-memory recording of query metrics
+ */
+public class RecordingQueryMetricsTest
+{
+    /**
+     * Ensure phases and collector statistics are recorded
+     * against the template of their query
+     */
+    @Test
+    public void recordTest()
+    {
+        RecordingQueryMetrics metrics = new RecordingQueryMetrics();
+        Module module = new Module("recording_metrics_test");
+        Query query = new Query("reading(1, X)", "reading(@I, X)", new Object[] { 1 });
+
+        metrics.startPhase(QueryPhase.OPEN, query.getTemplate(), module).stop(0);
+        metrics.startPhase(QueryPhase.FETCH, query.getTemplate(), module).stop(1);
+        metrics.startPhase(QueryPhase.FETCH, query.getTemplate(), module).stop(2);
+
+        metrics.collectorOpened(query, module);
+        metrics.collectorOpened(query, module);
+        assertEquals(2, metrics.getOpenCollectors());
+
+        metrics.collectorClosed(query, module,
+            new QueryStatistics(3, 1000000000L, 0, 0, 500, 4, QueryStatistics.UNMEASURED));
+        metrics.collectorClosed(query, module,
+            new QueryStatistics(0, 1000000000L, 0, 0, QueryStatistics.UNMEASURED, 2, 50));
+        assertEquals(0, metrics.getOpenCollectors());
+        assertEquals(6, metrics.getNativeCalls());
+
+        assertEquals(Collections.singleton("reading(@I, X)"), metrics.getTemplates());
+        RecordingQueryMetrics.TemplateMetrics template = metrics.getTemplate("reading(@I, X)");
+        assertEquals(1, template.getPhase(QueryPhase.OPEN).getCount());
+        assertEquals(2, template.getPhase(QueryPhase.FETCH).getCount());
+        assertEquals(0, template.getPhase(QueryPhase.DETACH).getCount());
+
+        // Unmeasured statistics are not recorded
+        assertEquals(3, template.getSolutions());
+        assertEquals(1.5, template.getSolutionsPerSecond(), 1e-9);
+        assertEquals(1, template.getFirstSolution().getCount());
+        assertEquals(500, template.getFirstSolution().getMax());
+        assertEquals(50, template.getInferences());
+    }
+
+    /**
+     * Ensure templates without closed collectors report no throughput
+     */
+    @Test
+    public void emptyTemplateTest()
+    {
+        RecordingQueryMetrics metrics = new RecordingQueryMetrics();
+        RecordingQueryMetrics.TemplateMetrics template = metrics.getTemplate("true");
+
+        assertTrue(metrics.getTemplates().contains("true"));
+        assertEquals(0.0, template.getSolutionsPerSecond(), 0.0);
+        assertEquals(0, template.getFirstSolution().getValueAtPercentile(99));
+    }
+}
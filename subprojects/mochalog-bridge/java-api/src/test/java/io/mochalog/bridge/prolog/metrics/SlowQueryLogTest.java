@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.query.Query;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test suite for capture of slow queries
+ */
+public class SlowQueryLogTest
+{
+    /**
+     * Ensure only queries exceeding a threshold are captured,
+     * retaining the most recent captures once full
+     */
+    @Test
+    public void captureTest()
+    {
+        SlowQueryLog log = new SlowQueryLog.Builder()
+            .setLatencyThreshold(10, TimeUnit.MILLISECONDS)
+            .setSolutionThreshold(1000)
+            .setCapacity(2)
+            .build();
+
+        Module module = new Module("slow_query_test");
+        Query query = new Query("reading(1, X)", "reading(@I, X)", new Object[] { 1 });
+
+        // Below every threshold
+        log.collectorClosed(query, module, statistics(TimeUnit.MILLISECONDS.toNanos(1), 1));
+        assertEquals(0, log.getCapturedCount());
+
+        log.collectorClosed(query, module, statistics(TimeUnit.MILLISECONDS.toNanos(20), 1));
+        log.collectorClosed(query, module, statistics(TimeUnit.MILLISECONDS.toNanos(1), 5000));
+        log.collectorClosed(query, module, statistics(TimeUnit.MILLISECONDS.toNanos(30), 1));
+        assertEquals(3, log.getCapturedCount());
+
+        // Oldest capture overwritten
+        List<SlowQuery> entries = log.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(5000, entries.get(0).getStatistics().getSolutionCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30),
+            entries.get(1).getStatistics().getLifetimeNanos());
+
+        SlowQuery entry = entries.get(1);
+        assertEquals("reading(1, X)", entry.getText());
+        assertEquals("reading(@I, X)", entry.getTemplate());
+        assertEquals("slow_query_test", entry.getModule());
+        assertEquals(Arrays.asList("1"), entry.getArguments());
+    }
+
+    /**
+     * Construct statistics of a query
+     * @param lifetimeNanos Collector lifetime
+     * @param solutionCount Number of solutions retrieved
+     * @return Query statistics
+     */
+    private static QueryStatistics statistics(long lifetimeNanos, int solutionCount)
+    {
+        return new QueryStatistics(solutionCount, lifetimeNanos, 0, lifetimeNanos,
+            QueryStatistics.UNMEASURED, 2, QueryStatistics.UNMEASURED);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IllegalFormatException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Test suite for formatting of query strings
+ */
+public class QueryFormatterTest
+{
+    /**
+     * Ensure setter syntax applies to the innermost compound
+     * containing it, regardless of floats, quoting and nesting
+     */
+    @Test
+    public void setterTest()
+    {
+        Query.Formatter formatter = Query.Formatter.getShared();
+
+        assertEquals("point(X, Y), replace_clauses(point(X, Y), point(1, 2.5))",
+            formatter.format("point(X <- 1, Y <- @A)", 2.5));
+        assertEquals("foo(bar(X), Y), replace_clauses(foo(bar(X), Y), foo(bar(X), 3))",
+            formatter.format("foo(bar(X), Y <- 3)"));
+        assertEquals("f('a <- b', X), replace_clauses(f('a <- b', X), f('a <- b', y))",
+            formatter.format("f('a <- b', X <- y)"));
+        // Setter syntax outside of a compound is left as is
+        assertEquals("a(X), X <- 3", formatter.format("a(X), X <- 3"));
+    }
+
+    /**
+     * Ensure substituted text is not itself substituted
+     */
+    @Test
+    public void substitutionTest()
+    {
+        Query.Formatter formatter = Query.Formatter.getShared();
+
+        assertEquals("pack_install('foo', [interactive(false)])",
+            formatter.format("pack_install('@A', [interactive(false)])", "foo"));
+        assertEquals("call(atom(@A))", formatter.format("@A(@A)", "call", "atom(@A)"));
+    }
+
+    /**
+     * Ensure parameterised rules are only replaced outside of
+     * quoted text, with one argument per rule
+     */
+    @Test
+    public void parameteriseTest()
+    {
+        Query query = Query.parameterise("greet('@A', @A, \"@S\", 0'@, X)", "bob");
+        assertEquals("greet('@A', ?, \"@S\", 0'@, X)", query.toString());
+        assertEquals(1, query.getParameters().length);
+
+        try
+        {
+            Query.parameterise("score(@A, @I)", "quiz");
+            fail();
+        }
+        catch (IllegalFormatException e)
+        {
+            // Expected - rule without argument
+        }
+
+        try
+        {
+            Query.parameterise("score(@A, Score)", "quiz", 10);
+            fail();
+        }
+        catch (IllegalFormatException e)
+        {
+            // Expected - argument without rule
+        }
+    }
+
+    /**
+     * Ensure arrays, collections and maps are formatted
+     * as Prolog lists
+     */
+    @Test
+    public void collectionTest()
+    {
+        Query.Formatter formatter = Query.Formatter.getShared();
+
+        assertEquals("member(X, [1, 2, 3])", formatter.format("member(X, @L)", new int[] { 1, 2, 3 }));
+        assertEquals("member(X, [\"a\\\"b\", [1.5], true])",
+            formatter.format("member(X, @L)", Arrays.asList("a\"b", Collections.singleton(1.5), true)));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("k", -1);
+        map.put("it's", new String[] { "v" });
+        assertEquals("pairs_keys(['k'-(-1), 'it\\'s'-([\"v\"])], Keys)",
+            formatter.format("pairs_keys(@M, Keys)", map));
+    }
+
+    /**
+     * Ensure solution sequence modifiers wrap the query
+     * text from the inside out
+     */
+    @Test
+    public void modifierTest()
+    {
+        Query query = Query.format("score(@A, Name, Score)", "quiz")
+            .orderBy("desc(Score)", "Name")
+            .distinct()
+            .offset(20)
+            .limit(10);
+
+        assertEquals("limit(10, (offset(20, (distinct((order_by([desc(Score), asc(Name)], " +
+            "(score(quiz, Name, Score)))))))))", query.toString());
+        assertEquals("score(@A, Name, Score)", query.getTemplate());
+    }
+}
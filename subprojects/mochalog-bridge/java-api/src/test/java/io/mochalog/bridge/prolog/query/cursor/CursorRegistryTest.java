@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.query.cursor;
+
+import io.mochalog.bridge.prolog.query.QuerySolution;
+import io.mochalog.bridge.prolog.query.collectors.QuerySolutionCollector;
+import io.mochalog.bridge.prolog.query.exception.NoSuchSolutionException;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+
+/**
+ * Test suite for capping of open query cursors
+ */
+public class CursorRegistryTest
+{
+    /**
+     * Collector without solutions (so no interpreter is required)
+     */
+    private static class EmptyCollector implements QuerySolutionCollector
+    {
+        @Override
+        public int solutionCount()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean hasSolutions()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean hasSolution(int index)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean hasSolution(QuerySolution solution)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean hasAllSolutions(Collection<QuerySolution> solutions)
+        {
+            return solutions.isEmpty();
+        }
+
+        @Override
+        public QuerySolution fetchSolution(int index) throws NoSuchSolutionException
+        {
+            throw new NoSuchSolutionException("No solutions.");
+        }
+
+        @Override
+        public QuerySolution takeSolution() throws NoSuchSolutionException
+        {
+            throw new NoSuchSolutionException("No solutions.");
+        }
+
+        @Override
+        public QuerySolution fetchFirstSolution() throws NoSuchSolutionException
+        {
+            throw new NoSuchSolutionException("No solutions.");
+        }
+
+        @Override
+        public QuerySolution fetchLastSolution() throws NoSuchSolutionException
+        {
+            throw new NoSuchSolutionException("No solutions.");
+        }
+
+        @Override
+        public QuerySolution[] fetchAllSolutions()
+        {
+            return new QuerySolution[0];
+        }
+
+        @Override
+        public boolean detach()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Ensure the cap on open cursors applies across every
+     * registry, and that closed cursors free their engine
+     */
+    @Test
+    public void globalCapTest()
+    {
+        CursorRegistry first = new CursorRegistry();
+        CursorRegistry second = new CursorRegistry();
+
+        int half = CursorRegistry.MAX_OPEN / 2;
+        for (int i = 0; i < half; ++i)
+        {
+            first.open("first_" + i, EmptyCollector::new);
+        }
+        for (int i = half; i < CursorRegistry.MAX_OPEN; ++i)
+        {
+            second.open("second_" + i, EmptyCollector::new);
+        }
+        assertEquals(CursorRegistry.MAX_OPEN, CursorRegistry.getTotalOpenCount());
+
+        try
+        {
+            first.open("excess", EmptyCollector::new);
+            fail("Cursors beyond the global cap should not open.");
+        }
+        catch (CursorException e)
+        {
+            // Expected - every engine permit is held
+        }
+
+        second.closeAll();
+        first.open("excess", EmptyCollector::new);
+        first.closeAll();
+        assertEquals(0, CursorRegistry.getTotalOpenCount());
+    }
+
+    /**
+     * Ensure a cursor whose collector fails to open
+     * releases its reservation
+     */
+    @Test
+    public void failedOpenTest()
+    {
+        CursorRegistry registry = new CursorRegistry();
+        try
+        {
+            registry.open("failing", () -> {
+                throw new IllegalStateException("No engine.");
+            });
+            fail("Cursor with failing collector should not open.");
+        }
+        catch (IllegalStateException e)
+        {
+            // Expected - raised by the opener
+        }
+
+        assertEquals(0, CursorRegistry.getTotalOpenCount());
+        registry.open("failing", EmptyCollector::new);
+        registry.closeAll();
+    }
+}
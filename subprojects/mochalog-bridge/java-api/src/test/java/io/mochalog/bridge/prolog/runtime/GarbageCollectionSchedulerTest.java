@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.runtime;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
+import io.mochalog.bridge.prolog.query.Query;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test suite for scheduling of Prolog garbage collection
+ */
+public class GarbageCollectionSchedulerTest
+{
+    // Query reported to schedulers
+    private static final Query QUERY = new Query("true", "true", new Object[0]);
+    // Statistics of a closed query
+    private static final QueryStatistics STATISTICS = new QueryStatistics(0, 0, 0, 0,
+        QueryStatistics.UNMEASURED, 0, QueryStatistics.UNMEASURED);
+
+    /**
+     * Ensure collection is performed once all queries are
+     * closed for the idle threshold, and not repeated
+     * without further activity
+     * @throws InterruptedException Interrupted awaiting collection
+     */
+    @Test
+    public void idleTest() throws InterruptedException
+    {
+        Module module = new Module("gc_scheduler_test");
+        try (GarbageCollectionScheduler scheduler = builder()
+            .setIdleThreshold(20, TimeUnit.MILLISECONDS)
+            .build())
+        {
+            scheduler.start();
+
+            // No activity since construction
+            Thread.sleep(100);
+            assertEquals(0, scheduler.getCollectionCount());
+
+            // Open queries hold off collection
+            scheduler.collectorOpened(QUERY, module);
+            Thread.sleep(100);
+            assertEquals(0, scheduler.getCollectionCount());
+
+            scheduler.collectorClosed(QUERY, module, STATISTICS);
+            assertTrue(awaitCollections(scheduler, 1));
+            Thread.sleep(100);
+            assertEquals(1, scheduler.getCollectionCount());
+        }
+    }
+
+    /**
+     * Ensure collection is performed on the collection period
+     * regardless of open queries
+     * @throws InterruptedException Interrupted awaiting collection
+     */
+    @Test
+    public void overdueTest() throws InterruptedException
+    {
+        Module module = new Module("gc_scheduler_test");
+        try (GarbageCollectionScheduler scheduler = builder()
+            .setIdleThreshold(1, TimeUnit.HOURS)
+            .setPeriod(20, TimeUnit.MILLISECONDS)
+            .build())
+        {
+            scheduler.collectorOpened(QUERY, module);
+            scheduler.start();
+
+            assertTrue(awaitCollections(scheduler, 3));
+        }
+    }
+
+    /**
+     * Construct a scheduler polling rapidly and performing
+     * no kinds of collection (so no interpreter is required)
+     * @return Scheduler builder
+     */
+    private static GarbageCollectionScheduler.Builder builder()
+    {
+        return new GarbageCollectionScheduler.Builder()
+            .setPollInterval(5, TimeUnit.MILLISECONDS)
+            .setCollection(GarbageCollectionScheduler.Collection.ATOMS, false)
+            .setCollection(GarbageCollectionScheduler.Collection.CLAUSES, false);
+    }
+
+    /**
+     * Wait for a scheduler to perform a number of collections
+     * @param scheduler Scheduler to wait on
+     * @param count Number of collections
+     * @return True if performed within 5 seconds, false otherwise.
+     * @throws InterruptedException Interrupted awaiting collection
+     */
+    private static boolean awaitCollections(GarbageCollectionScheduler scheduler, long count)
+        throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getCollectionCount() < count)
+        {
+            if (System.nanoTime() - deadline > 0)
+            {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.transfer;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Test suite for decoding of the Mochalog binary term encoding
+ */
+public class TermDecoderTest
+{
+    /**
+     * Sink recording received term structure as text
+     */
+    private static class RecordingSink implements TermSink
+    {
+        // Recorded structure
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public void variable(int index)
+        {
+            text.append("_").append(index).append(' ');
+        }
+
+        @Override
+        public void integer(long value)
+        {
+            text.append(value).append(' ');
+        }
+
+        @Override
+        public void bigInteger(BigInteger value)
+        {
+            text.append(value).append("n ");
+        }
+
+        @Override
+        public void floating(double value)
+        {
+            text.append(value).append(' ');
+        }
+
+        @Override
+        public void atom(String name)
+        {
+            text.append(name).append(' ');
+        }
+
+        @Override
+        public void string(String value)
+        {
+            text.append('"').append(value).append("\" ");
+        }
+
+        @Override
+        public void nil()
+        {
+            text.append("[] ");
+        }
+
+        @Override
+        public void startList(int length)
+        {
+            text.append("list/").append(length).append("( ");
+        }
+
+        @Override
+        public void endList()
+        {
+            text.append(") ");
+        }
+
+        @Override
+        public void startCompound(String name, int arity)
+        {
+            text.append(name).append('/').append(arity).append("( ");
+        }
+
+        @Override
+        public void endCompound()
+        {
+            text.append(") ");
+        }
+    }
+
+    /**
+     * Ensure each kind of term is decoded in order, with
+     * lists reporting their elements followed by their tail
+     */
+    @Test
+    public void decodeTest()
+    {
+        // foo([1, 2|T], "\u00e9", T, 1.5, 2^70, bar, baz())
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compound(bytes, "foo", 7);
+        bytes.write('L');
+        bytes.write(2);
+        integer(bytes, 1);
+        integer(bytes, 2);
+        bytes.write('V');
+        bytes.write(0);
+        text(bytes, 'S', "\u00e9");
+        bytes.write('V');
+        bytes.write(0);
+        text(bytes, 'F', "1.5");
+        text(bytes, 'B', "1180591620717411303424");
+        text(bytes, 'A', "bar");
+        compound(bytes, "baz", 0);
+
+        // Base64 text as produced by mochalog:encode_term/2
+        String encoded = Base64.getEncoder().encodeToString(bytes.toByteArray());
+        ByteBuffer buffer = TermDecoder.toBuffer(encoded);
+        RecordingSink sink = TermDecoder.decode(buffer, new RecordingSink());
+
+        assertEquals("foo/7( list/2( 1 2 _0 ) \"\u00e9\" _0 1.5 1180591620717411303424n " +
+            "bar baz/0( ) ) ", sink.text.toString());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Ensure truncated encodings are rejected
+     */
+    @Test(expected = MalformedTermException.class)
+    public void truncatedTest()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compound(bytes, "foo", 2);
+        integer(bytes, 1);
+
+        TermDecoder.decode(ByteBuffer.wrap(bytes.toByteArray()), new RecordingSink());
+    }
+
+    /**
+     * Ensure list and text views read elements and characters
+     * in place, matching the decoded terms
+     */
+    @Test
+    public void viewTest()
+    {
+        // ["abc", '\u00e9t\u00e9', `hi`, [], 7]
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write('L');
+        bytes.write(5);
+        text(bytes, 'S', "abc");
+        text(bytes, 'A', "\u00e9t\u00e9");
+        bytes.write('L');
+        bytes.write(2);
+        integer(bytes, 'h');
+        integer(bytes, 'i');
+        bytes.write('N');
+        bytes.write('N');
+        integer(bytes, 7);
+        bytes.write('N');
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        PrologListView list = new PrologListView(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(5, list.size());
+
+        PrologStringView ascii = list.getString(0);
+        assertEquals('b', ascii.charAt(1));
+        assertEquals("bc", ascii.subSequence(1, 3).toString());
+        assertEquals(3, ascii.asByteBuffer().remaining());
+
+        PrologStringView unicode = list.getString(1);
+        assertEquals(3, unicode.length());
+        assertEquals("\u00e9t\u00e9", unicode.toString());
+        assertEquals(5, unicode.asByteBuffer().remaining());
+
+        assertEquals("hi", list.getString(2).toString());
+        assertEquals(0, list.getList(3).size());
+        assertEquals("7 ", list.get(4, new RecordingSink()).text.toString());
+    }
+
+    /**
+     * Write the header of an encoded compound
+     * @param bytes Bytes to write to
+     * @param name Compound name
+     * @param arity Compound arity
+     */
+    private static void compound(ByteArrayOutputStream bytes, String name, int arity)
+    {
+        text(bytes, 'C', name);
+        bytes.write(arity);
+    }
+
+    /**
+     * Write an encoded 64-bit integer
+     * @param bytes Bytes to write to
+     * @param value Integer value
+     */
+    private static void integer(ByteArrayOutputStream bytes, long value)
+    {
+        bytes.write('I');
+        byte[] encoded = ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        bytes.write(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Write tagged counted text (shorter than 128 bytes)
+     * @param bytes Bytes to write to
+     * @param tag Encoding tag
+     * @param text Text to write
+     */
+    private static void text(ByteArrayOutputStream bytes, char tag, String text)
+    {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        bytes.write(tag);
+        bytes.write(encoded.length);
+        bytes.write(encoded, 0, encoded.length);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics.jfr;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryMetrics;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
+import io.mochalog.bridge.prolog.query.Query;
+
+/**
+ * Query metrics implementation emitting Java Flight Recorder
+ * events for each phase of the query lifecycle, allowing Prolog
+ * time to be correlated with JVM activity in JFR/JMC.
+ * <p>
+ * Events are only constructed and committed while enabled in
+ * an active recording. Registered as a QueryMetrics service
+ * provider, so loaded as the process-wide metrics given this
+ * module is on the classpath of a JDK providing jdk.jfr
+ * (OpenJDK 8u262+), or install through
+ * {@link io.mochalog.bridge.prolog.metrics.Metrics#install}.
+ */
+public class JfrQueryMetrics implements QueryMetrics
+{
+    @Override
+    public PhaseTimer startPhase(QueryPhase phase, String template, Module module)
+    {
+        QueryEvent event = createEvent(phase);
+        if (!event.isEnabled())
+        {
+            return PhaseTimer.NONE;
+        }
+
+        event.template = template;
+        event.module = module == null ? null : module.getName();
+        event.begin();
+
+        return solutionCount -> {
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.solutionCount = solutionCount;
+                event.commit();
+            }
+        };
+    }
+
+    @Override
+    public void collectorClosed(Query query, Module module, QueryStatistics statistics)
+    {
+        QueryCollectedEvent event = new QueryCollectedEvent();
+        if (event.shouldCommit())
+        {
+            event.template = query.getTemplate();
+            event.module = module == null ? null : module.getName();
+            event.solutionCount = statistics.getSolutionCount();
+            event.lifetime = statistics.getLifetimeNanos();
+            event.firstSolution = statistics.getFirstSolutionNanos();
+            event.nativeCalls = statistics.getNativeCalls();
+            event.inferences = statistics.getInferences();
+            event.commit();
+        }
+    }
+
+    /**
+     * Create the flight recorder event corresponding
+     * to the given query phase
+     * @param phase Query phase
+     * @return Uncommitted event
+     */
+    private static QueryEvent createEvent(QueryPhase phase)
+    {
+        switch (phase)
+        {
+            case FORMAT:
+                return new QueryFormatEvent();
+            case OPEN:
+                return new QueryOpenEvent();
+            case FETCH:
+                return new SolutionFetchEvent();
+            case DETACH:
+                return new QueryDetachEvent();
+            case IMPORT:
+                return new ImportEvent();
+            case ASSERT:
+                return new AssertEvent();
+            default:
+                return new RetractEvent();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Event summarising the work performed over the lifetime
+ * of a query solution collector, emitted once detached
+ */
+@Name("io.mochalog.QueryCollected")
+@Label("Query Collected")
+@Description("Summary of a detached query solution collector")
+@Category({ "Mochalog", "Query" })
+@StackTrace(false)
+class QueryCollectedEvent extends Event
+{
+    @Label("Query Template")
+    @Description("Unformatted query text")
+    String template;
+
+    @Label("Module")
+    @Description("Working module the query is operated from")
+    String module;
+
+    @Label("Solution Count")
+    int solutionCount;
+
+    @Label("Lifetime")
+    @Timespan(Timespan.NANOSECONDS)
+    long lifetime;
+
+    @Label("Time To First Solution")
+    @Timespan(Timespan.NANOSECONDS)
+    long firstSolution;
+
+    @Label("Native Calls")
+    @Description("Calls made through the JPL native interface")
+    long nativeCalls;
+
+    @Label("Inferences")
+    @Description("Prolog inferences performed, -1 if not counted")
+    long inferences;
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base Java Flight Recorder event for a timed phase
+ * of the Mochalog query lifecycle
+ */
+@Category({ "Mochalog", "Query" })
+@StackTrace(false)
+abstract class QueryEvent extends Event
+{
+    @Label("Query Template")
+    @Description("Unformatted query text")
+    String template;
+
+    @Label("Module")
+    @Description("Working module the query is operated from")
+    String module;
+
+    @Label("Solution Count")
+    @Description("Number of solutions retrieved at the end of the phase")
+    int solutionCount;
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 The Mochalog Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mochalog.bridge.prolog.metrics.jfr;
+
+import io.mochalog.bridge.prolog.lang.Module;
+import io.mochalog.bridge.prolog.metrics.PhaseTimer;
+import io.mochalog.bridge.prolog.metrics.QueryPhase;
+import io.mochalog.bridge.prolog.metrics.QueryStatistics;
+import io.mochalog.bridge.prolog.query.Query;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Test suite for emission of flight recorder events
+ */
+public class JfrQueryMetricsTest
+{
+    /**
+     * Ensure phases are not timed outside of a recording
+     */
+    @Test
+    public void disabledTest()
+    {
+        JfrQueryMetrics metrics = new JfrQueryMetrics();
+        assertSame(PhaseTimer.NONE, metrics.startPhase(QueryPhase.OPEN, "true", null));
+    }
+
+    /**
+     * Ensure events enabled in a recording are committed
+     * with the details of their query
+     * @throws IOException Unable to read recording
+     */
+    @Test
+    public void recordingTest() throws IOException
+    {
+        JfrQueryMetrics metrics = new JfrQueryMetrics();
+        Module module = new Module("jfr_metrics_test");
+        Query query = new Query("reading(1, X)", "reading(@I, X)", new Object[] { 1 });
+
+        Path dump = Files.createTempFile("mochalog-metrics", ".jfr");
+        try
+        {
+            try (Recording recording = new Recording())
+            {
+                recording.enable("io.mochalog.QueryOpen").withThreshold(Duration.ZERO);
+                recording.enable("io.mochalog.QueryCollected");
+                recording.disable("io.mochalog.SolutionFetch");
+                recording.start();
+
+                metrics.startPhase(QueryPhase.OPEN, query.getTemplate(), module).stop(0);
+                // Disabled in recording
+                metrics.startPhase(QueryPhase.FETCH, query.getTemplate(), module).stop(1);
+                metrics.collectorClosed(query, module,
+                    new QueryStatistics(3, 1000, 0, 0, 500, 4, QueryStatistics.UNMEASURED));
+
+                recording.stop();
+                recording.dump(dump);
+            }
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().startsWith("io.mochalog."))
+                .collect(Collectors.toList());
+            assertEquals(2, events.size());
+
+            RecordedEvent open = events.get(0);
+            assertEquals("io.mochalog.QueryOpen", open.getEventType().getName());
+            assertEquals("reading(@I, X)", open.getString("template"));
+            assertEquals("jfr_metrics_test", open.getString("module"));
+
+            RecordedEvent collected = events.get(1);
+            assertEquals("io.mochalog.QueryCollected", collected.getEventType().getName());
+            assertEquals(3, collected.getInt("solutionCount"));
+            assertEquals(4, collected.getLong("nativeCalls"));
+            assertEquals(QueryStatistics.UNMEASURED, collected.getLong("inferences"));
+        }
+        finally
+        {
+            Files.delete(dump);
+        }
+    }
+}
@@ -17,9 +17,34 @@
 :- module(mochalog,
     [
         import_file/2,
-        import_file/3
+        import_file/3,
+        snapshot_solutions/1,
+        replace_clauses/2,
+        numeric_solutions/4,
+        encode_solution/3,
+        encode_term/2,
+        aggregate_groups/4,
+        call_foreign_predicate/2,
+        call_foreign_function/3,
+        profile_goal/5,
+        memory_statistics/1,
+        with_resource_limits/3
     ]).
 
+:- use_module(library(jpl)).
+:- use_module(library(aggregate)).
+:- use_module(library(statistics)).
+:- use_module(library(base64)).
+:- use_module(library(utf8)).
+
+:- meta_predicate snapshot_solutions(0).
+:- meta_predicate replace_clauses(:, :).
+:- meta_predicate numeric_solutions(+, ?, 0, -).
+:- meta_predicate encode_solution(?, 0, -).
+:- meta_predicate aggregate_groups(?, +, 0, -).
+:- meta_predicate profile_goal(0, -, -, -, -).
+:- meta_predicate with_resource_limits(+, +, 0).
+
 /**
  * import_file(+File:string, +Module:atom) is semidet.
 
@@ -44,4 +69,462 @@ import_file(File, Module, Options) :-
     %! Load file into module from file stream
     Module:load_files(FileID,[ stream(FileStream) | Options ]),
     %! Ensure file stream is closed after use
-    close(FileStream).
\ No newline at end of file
+    close(FileStream).
+
+/**
+ * snapshot_solutions(:Goal) is nondet.
+ *
+ * Prove Goal against a snapshot of the database taken at call
+ * time. All solutions are gathered inside snapshot/1 and replayed
+ * on backtracking, so clauses asserted or retracted by other threads
+ * are never observed between solutions. Requires SWI-Prolog
+ * transaction support (snapshot/1).
+ */
+snapshot_solutions(Goal) :-
+    term_variables(Goal, Variables),
+    snapshot(findall(Variables, Goal, Solutions)),
+    member(Variables, Solutions).
+
+/**
+ * replace_clauses(:Old:callable, :New:callable) is det.
+ *
+ * Replace the clauses whose head unifies with Old by the fact
+ * New, as written with setter syntax (Previous <- New) in formatted
+ * queries. Both arguments resolve in the calling module. SWI-Prolog
+ * has no in-place clause update, so this is retractall/1 followed
+ * by assertz/1; Old and New are left unbound by the update.
+ */
+replace_clauses(Old, New) :-
+    retractall(Old),
+    assertz(New).
+
+/**
+ * numeric_solutions(+Type:atom, ?Value:number, :Goal, -Values:string) is det.
+ *
+ * Gather Value for each solution to Goal into a string of
+ * space-separated numbers, transferring every solution across the
+ * JPL interface as a single term. Type is integer (Value must be
+ * an integer) or float (Value is converted to a float).
+ */
+numeric_solutions(Type, Value, Goal, Values) :-
+    findall(Value, Goal, Solutions),
+    with_output_to(string(Values), write_numbers(Solutions, Type)).
+
+%! write_numbers(+Numbers:list, +Type:atom) is det.
+%
+%  Write each of Numbers as the given Type, followed by a space.
+write_numbers([], _).
+write_numbers([Number|Numbers], Type) :-
+    numeric_value(Type, Number, Value),
+    write(Value),
+    put_char(' '),
+    write_numbers(Numbers, Type).
+
+%! numeric_value(+Type:atom, +Number:number, -Value:number) is det.
+%
+%  Validate Number as Type, converting it given Type is float.
+numeric_value(integer, Number, Number) :-
+    must_be(integer, Number).
+numeric_value(float, Number, Value) :-
+    must_be(number, Number),
+    Value is float(Number).
+
+/**
+ * encode_solution(?Template, :Goal, -Encoded:string) is semidet.
+ *
+ * Prove Goal once, encoding Template with encode_term/2 so that the
+ * solution crosses the JPL interface as a single term.
+ */
+encode_solution(Template, Goal, Encoded) :-
+    once(Goal),
+    encode_term(Template, Encoded).
+
+/**
+ * encode_term(@Term, -Encoded:string) is det.
+ *
+ * Serialise Term into the Mochalog binary term encoding, as base64
+ * text (decoded by io.mochalog.bridge.prolog.transfer.TermDecoder).
+ * Each term is written as a tag byte followed by its content:
+ *
+ *   - V: variable, numbered in depth-first order (varint)
+ *   - I: integer (64-bit big-endian)
+ *   - B: integer beyond 64 bits (counted decimal text)
+ *   - F: float (counted text)
+ *   - A, S: atom, string (counted UTF-8 text)
+ *   - N: empty list
+ *   - L: list of length N (varint), its N elements then its tail
+ *   - C: compound name (counted UTF-8 text), arity (varint), arguments
+ *
+ * Counted text is its byte length (varint) followed by its bytes.
+ */
+encode_term(Term, Encoded) :-
+    must_be(acyclic, Term),
+    copy_term_nat(Term, Copy),
+    term_variables(Copy, Variables),
+    number_variables(Variables, 0),
+    phrase(term_bytes(Copy), Bytes),
+    phrase(base64(Bytes), Codes),
+    string_codes(Encoded, Codes).
+
+%! number_variables(+Variables:list, +Index:integer) is det.
+%
+%  Bind each of Variables to a marker of its index.
+number_variables([], _).
+number_variables(['$mochalog_variable'(Index)|Variables], Index) :-
+    Next is Index + 1,
+    number_variables(Variables, Next).
+
+%! term_bytes(+Term)// is det.
+%
+%  Bytes of the encoding of Term (see encode_term/2).
+term_bytes('$mochalog_variable'(Index)) -->
+    !,
+    [0'V], varint(Index).
+term_bytes(Term) -->
+    { integer(Term) }, !,
+    integer_bytes(Term).
+term_bytes(Term) -->
+    { float(Term) }, !,
+    { format(codes(Codes), '~w', [Term]) },
+    [0'F], counted_bytes(Codes).
+term_bytes([]) -->
+    !,
+    [0'N].
+term_bytes(Term) -->
+    { atom(Term) }, !,
+    [0'A], text_bytes(Term).
+term_bytes(Term) -->
+    { string(Term) }, !,
+    [0'S], text_bytes(Term).
+term_bytes(Term) -->
+    { Term = [_|_] }, !,
+    %! Lists are encoded flat, avoiding nesting proportional
+    %  to their length
+    { '$skip_list'(Length, Term, Tail) },
+    [0'L], varint(Length),
+    element_bytes(Length, Term),
+    term_bytes(Tail).
+term_bytes(Term) -->
+    { compound(Term) }, !,
+    { compound_name_arity(Term, Name, Arity) },
+    [0'C], text_bytes(Name), varint(Arity),
+    argument_bytes(1, Arity, Term).
+term_bytes(Term) -->
+    { type_error(encodable, Term) }.
+
+%! integer_bytes(+Integer:integer)// is det.
+%
+%  Bytes of Integer, as a 64-bit value given it is in range.
+integer_bytes(Integer) -->
+    { Integer >= -9223372036854775808, Integer =< 9223372036854775807 }, !,
+    [0'I], long_bytes(56, Integer).
+integer_bytes(Integer) -->
+    { number_codes(Integer, Codes) },
+    [0'B], counted_bytes(Codes).
+
+%! long_bytes(+Shift:integer, +Integer:integer)// is det.
+%
+%  Big-endian bytes of Integer from the given bit Shift down.
+long_bytes(Shift, Integer) -->
+    { Byte is (Integer >> Shift) /\ 0xff },
+    [Byte],
+    (   { Shift > 0 }
+    ->  { Next is Shift - 8 },
+        long_bytes(Next, Integer)
+    ;   []
+    ).
+
+%! element_bytes(+Length:integer, +List:list)// is det.
+%
+%  Bytes of the first Length elements of List.
+element_bytes(0, _) -->
+    !.
+element_bytes(Length, [Element|Elements]) -->
+    term_bytes(Element),
+    { Next is Length - 1 },
+    element_bytes(Next, Elements).
+
+%! argument_bytes(+Index:integer, +Arity:integer, +Compound:compound)// is det.
+%
+%  Bytes of the arguments of Compound from Index onwards.
+argument_bytes(Index, Arity, _) -->
+    { Index > Arity }, !.
+argument_bytes(Index, Arity, Compound) -->
+    { arg(Index, Compound, Argument),
+      Next is Index + 1 },
+    term_bytes(Argument),
+    argument_bytes(Next, Arity, Compound).
+
+%! text_bytes(+Text:text)// is det.
+%
+%  Counted UTF-8 bytes of Text.
+text_bytes(Text) -->
+    { atom_codes(Text, Codes),
+      phrase(utf8_codes(Codes), Bytes) },
+    counted_bytes(Bytes).
+
+%! counted_bytes(+Bytes:list)// is det.
+%
+%  Length of Bytes (varint) followed by Bytes.
+counted_bytes(Bytes) -->
+    { length(Bytes, Length) },
+    varint(Length),
+    bytes(Bytes).
+
+%! bytes(+Bytes:list)// is det.
+%
+%  Each of Bytes, in order.
+bytes([]) -->
+    [].
+bytes([Byte|Bytes]) -->
+    [Byte],
+    bytes(Bytes).
+
+%! varint(+Value:integer)// is det.
+%
+%  Bytes of non-negative Value in groups of 7 bits, least
+%  significant first, the high bit set on all but the last.
+varint(Value) -->
+    { Value < 0x80 }, !,
+    [Value].
+varint(Value) -->
+    { Byte is (Value /\ 0x7f) \/ 0x80,
+      Next is Value >> 7 },
+    [Byte],
+    varint(Next).
+
+/**
+ * aggregate_groups(?Keys:list, +Specs:list, :Goal, -Groups:list) is det.
+ *
+ * Aggregate the solutions to Goal, grouped by the bindings of the
+ * variables in Keys, with each of Specs (count, sum(Expr), min(Expr),
+ * max(Expr), avg(Expr), bag(Template) or set(Template)). Groups is a
+ * list of Keys-Results pairs in standard order of Keys, Results
+ * holding a value for each of Specs. Given Keys is empty, solutions
+ * are aggregated as a single group with aggregate_all/3; otherwise
+ * each group is proved by aggregate/3 with every other variable of
+ * Goal existentially quantified. Groups for which a spec has no
+ * value (min, max or avg of no solutions) are omitted.
+ */
+aggregate_groups([], Specs, Goal, Groups) :- !,
+    aggregate_template(Specs, Template),
+    findall([]-Results,
+        ( aggregate_all(Template, Goal, Aggregate),
+          aggregate_results(Specs, Aggregate, Results) ),
+        Groups).
+aggregate_groups(Keys, Specs, Goal, Groups) :-
+    aggregate_template(Specs, Template),
+    %! Variables of Keys are listed first, so every variable
+    %  following them is quantified away from the grouping
+    term_variables(Keys, KeyVariables),
+    term_variables(KeyVariables-Goal, Variables),
+    append(KeyVariables, Existential, Variables),
+    findall(Keys-Results,
+        ( aggregate(Template, Existential^Goal, Aggregate),
+          aggregate_results(Specs, Aggregate, Results) ),
+        Groups).
+
+%! aggregate_template(+Specs:list, -Template:compound) is det.
+%
+%  Combine Specs into a single aggregation template, computing
+%  each average as a count and a sum.
+aggregate_template(Specs, Template) :-
+    aggregate_template_args(Specs, Args),
+    Template =.. [aggregate|Args].
+
+aggregate_template_args([], []).
+aggregate_template_args([avg(Expr)|Specs], [count, sum(Expr)|Args]) :- !,
+    aggregate_template_args(Specs, Args).
+aggregate_template_args([Spec|Specs], [Spec|Args]) :-
+    aggregate_template_args(Specs, Args).
+
+%! aggregate_results(+Specs:list, +Aggregate:compound, -Results:list) is semidet.
+%
+%  Extract a result for each of Specs from the Aggregate computed
+%  for the template of aggregate_template/2, failing given an
+%  average is taken over no solutions.
+aggregate_results(Specs, Aggregate, Results) :-
+    Aggregate =.. [aggregate|Values],
+    aggregate_values(Specs, Values, Results).
+
+aggregate_values([], [], []).
+aggregate_values([avg(_)|Specs], [Count, Sum|Values], [Average|Results]) :- !,
+    Count > 0,
+    Average is Sum / float(Count),
+    aggregate_values(Specs, Values, Results).
+aggregate_values([_|Specs], [Value|Values], [Value|Results]) :-
+    aggregate_values(Specs, Values, Results).
+
+/**
+ * call_foreign_predicate(+Id:integer, +Arguments:list) is semidet.
+ *
+ * Call the Java method registered as foreign predicate Id with
+ * the given input Arguments. Succeeds given the method succeeds.
+ */
+call_foreign_predicate(Id, Arguments) :-
+    foreign_solutions(Id, Arguments, Solutions),
+    Solutions \== [].
+
+/**
+ * call_foreign_function(+Id:integer, +Arguments:list, ?Result) is nondet.
+ *
+ * Call the Java method registered as foreign predicate Id with
+ * the given input Arguments, unifying Result with each solution
+ * produced by the method.
+ */
+call_foreign_function(Id, Arguments, Result) :-
+    foreign_solutions(Id, Arguments, Solutions),
+    member(Result, Solutions).
+
+%! foreign_solutions(+Id:integer, +Arguments:list, -Solutions:list) is det.
+%
+%  Dispatch to the Java foreign predicate registry. Arguments are
+%  passed as a single org.jpl7.Term to minimise JNI crossings. The
+%  registry entry method is called directly by its cached method ID
+%  through the low-level JNI interface of JPL, avoiding the class,
+%  method and overload resolution jpl_call/4 performs on every call.
+foreign_solutions(Id, Arguments, Solutions) :-
+    foreign_entry(Class, MethodID),
+    foreign_entry_type(method(ParameterTypes, _)),
+    jpl:jCallStaticObjectMethod(Class, MethodID, ParameterTypes,
+        [Id, {Arguments}], SolutionsRef),
+    jpl:jni_jref_to_term(SolutionsRef, Solutions).
+
+:- dynamic foreign_entry_cache/2.
+
+%! foreign_entry(-Class:jref, -MethodID) is det.
+%
+%  Class reference and static method ID of the foreign predicate
+%  registry entry method, resolved once on first dispatch.
+foreign_entry(Class, MethodID) :-
+    foreign_entry_cache(Class, MethodID), !.
+foreign_entry(Class, MethodID) :-
+    with_mutex(mochalog_foreign_entry, resolve_foreign_entry(Class, MethodID)).
+
+%! resolve_foreign_entry(-Class:jref, -MethodID) is det.
+%
+%  Resolve and cache the registry entry method, given no other
+%  thread has done so already.
+resolve_foreign_entry(Class, MethodID) :-
+    foreign_entry_cache(Class, MethodID), !.
+resolve_foreign_entry(Class, MethodID) :-
+    jpl_classname_to_class('io.mochalog.bridge.prolog.foreign.ForeignPredicateRegistry',
+        Class),
+    foreign_entry_type(Type),
+    jpl:jGetStaticMethodID(Class, invoke, Type, MethodID),
+    assertz(foreign_entry_cache(Class, MethodID)).
+
+%! foreign_entry_type(-Type:compound) is det.
+%
+%  JPL type of ForeignPredicateRegistry.invoke(int, Term).
+foreign_entry_type(method([int, class([org, jpl7], ['Term'])],
+    class([org, jpl7], ['Term']))).
+
+/**
+ * profile_goal(:Goal, -Succeeded:boolean, -Inferences:integer,
+ *     -Summary:compound, -Entries:list) is det.
+ *
+ * Prove Goal once under the execution profiler. Summary is of the
+ * form profile_summary(Time, Ticks), Time being the CPU seconds spent
+ * in Goal and Ticks the number of samples taken over that time. Each
+ * element of Entries is of the form profile_entry(Predicate, Calls,
+ * Redos, Exits, SelfTicks, CumulativeTicks) for a predicate called
+ * while proving Goal.
+ */
+profile_goal(Goal, Succeeded, Inferences, Summary, Entries) :-
+    reset_profiler,
+    statistics(inferences, InferencesBefore),
+    %! Ensure the profiler is stopped regardless of
+    %  exceptions thrown by Goal
+    setup_call_cleanup(
+        profiler(_, true),
+        ( call(Goal) -> Succeeded = true ; Succeeded = false ),
+        profiler(_, false)),
+    statistics(inferences, InferencesAfter),
+    Inferences is InferencesAfter - InferencesBefore,
+    profile_data(Data),
+    get_dict(summary, Data, DataSummary),
+    get_dict(time, DataSummary, Time),
+    get_dict(ticks, DataSummary, Ticks),
+    Summary = profile_summary(Time, Ticks),
+    get_dict(nodes, Data, Nodes),
+    maplist(profile_entry, Nodes, Entries).
+
+%! profile_entry(+Node:dict, -Entry:compound) is det.
+%
+%  Convert a node of the profile_data/1 call graph into a
+%  plain term, avoiding dicts crossing the JPL interface.
+profile_entry(Node, profile_entry(Predicate, Calls, Redos, Exits,
+        SelfTicks, CumulativeTicks)) :-
+    get_dict(predicate, Node, Indicator),
+    format(string(Predicate), '~q', [Indicator]),
+    get_dict(call, Node, Calls),
+    get_dict(redo, Node, Redos),
+    get_dict(exit, Node, Exits),
+    get_dict(ticks_self, Node, SelfTicks),
+    get_dict(ticks_siblings, Node, SiblingTicks),
+    CumulativeTicks is SelfTicks + SiblingTicks.
+
+/**
+ * memory_statistics(-Statistics:compound) is det.
+ *
+ * Unify Statistics with a term of the form memory_statistics(
+ * GlobalUsed, LocalUsed, TrailUsed, StackLimit, TableSpace, Clauses,
+ * ProgramSpace, HeapUsed, Atoms, AtomSpace) describing the memory
+ * usage of the calling engine. Stack and space values are in bytes.
+ * Values unsupported by the running SWI-Prolog version are -1.
+ */
+memory_statistics(memory_statistics(GlobalUsed, LocalUsed, TrailUsed,
+        StackLimit, TableSpace, Clauses, ProgramSpace, HeapUsed,
+        Atoms, AtomSpace)) :-
+    statistic_value(globalused, GlobalUsed),
+    statistic_value(localused, LocalUsed),
+    statistic_value(trailused, TrailUsed),
+    flag_value(stack_limit, StackLimit),
+    flag_value(table_space, TableSpace),
+    statistic_value(clauses, Clauses),
+    statistic_value(program, ProgramSpace),
+    statistic_value(heapused, HeapUsed),
+    statistic_value(atoms, Atoms),
+    statistic_value(atom_space, AtomSpace).
+
+%! statistic_value(+Key:atom, -Value:integer) is det.
+%
+%  Value of statistics/2 key, or -1 if the key is unsupported.
+statistic_value(Key, Value) :-
+    catch(statistics(Key, Value), error(domain_error(_, _), _), Value = -1).
+
+%! flag_value(+Flag:atom, -Value:integer) is det.
+%
+%  Value of Prolog flag, or -1 if the flag is unsupported.
+flag_value(Flag, Value) :-
+    (   current_prolog_flag(Flag, Value)
+    ->  true
+    ;   Value = -1
+    ).
+
+/**
+ * with_resource_limits(+StackLimit:integer, +TableSpace:integer, :Goal) is nondet.
+ *
+ * Prove Goal with the stack_limit and table_space flags of the
+ * calling engine set to the given number of bytes (-1 to leave a
+ * limit unchanged). Limits are restored once Goal completes or is
+ * cut. Exceeding a limit raises a resource_error. Requires
+ * SWI-Prolog 7.7.14 or later (stack_limit flag).
+ */
+with_resource_limits(StackLimit, TableSpace, Goal) :-
+    setup_call_cleanup(
+        ( swap_flag(stack_limit, StackLimit, OldStackLimit),
+          swap_flag(table_space, TableSpace, OldTableSpace) ),
+        Goal,
+        ( swap_flag(stack_limit, OldStackLimit, _),
+          swap_flag(table_space, OldTableSpace, _) )).
+
+%! swap_flag(+Flag:atom, +Value:integer, -Old:integer) is det.
+%
+%  Set Flag to Value, unifying Old with its previous value (-1 if
+%  previously unset). The flag is left unchanged given Value is -1.
+swap_flag(_, -1, -1) :- !.
+swap_flag(Flag, Value, Old) :-
+    flag_value(Flag, Old),
+    set_prolog_flag(Flag, Value).
\ No newline at end of file